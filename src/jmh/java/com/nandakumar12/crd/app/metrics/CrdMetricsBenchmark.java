@@ -0,0 +1,75 @@
+package com.nandakumar12.crd.app.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost the timers add to every request: {@code clock} reads the clock like the start of an
+ * operation, {@code record} also records the elapsed time into the read timer. With
+ * {@code NONE} the timer records into no registry, {@code PERCENTILES} is the prometheus registry
+ * with the HdrHistogram percentiles of the default configuration and {@code HISTOGRAM} adds the
+ * prometheus buckets. The difference of {@code record} and {@code clock} should stay within a few
+ * tens of nanoseconds
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(4)
+public class CrdMetricsBenchmark {
+
+  public enum Registry {
+    NONE,
+    PERCENTILES,
+    HISTOGRAM
+  }
+
+  @Param({"NONE", "PERCENTILES", "HISTOGRAM"})
+  Registry registry;
+
+  CrdMetrics metrics;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    if (registry == Registry.NONE) {
+      metrics = CrdMetrics.NONE;
+      return;
+    }
+    MeterRegistry meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    boolean histogram = registry == Registry.HISTOGRAM;
+    meterRegistry
+        .config()
+        .meterFilter(
+            new MeterFilter() {
+              @Override
+              public DistributionStatisticConfig configure(
+                  Meter.Id id, DistributionStatisticConfig config) {
+                return DistributionStatisticConfig.builder()
+                    .percentiles(0.5, 0.9, 0.99, 0.999)
+                    .percentilesHistogram(histogram)
+                    .build()
+                    .merge(config);
+              }
+            });
+    metrics = new CrdMetrics(meterRegistry);
+  }
+
+  @Benchmark
+  public long clock() {
+    return System.nanoTime();
+  }
+
+  @Benchmark
+  public void record() {
+    metrics.recordRead(System.nanoTime());
+  }
+}
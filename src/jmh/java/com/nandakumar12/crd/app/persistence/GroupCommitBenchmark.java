@@ -0,0 +1,70 @@
+package com.nandakumar12.crd.app.persistence;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of the appends to a {@link WriteAheadLog} which wait for their {@link Durability}.
+ * With {@code FSYNC} the writes waiting at the same time share a force, so the throughput should
+ * grow with the number of threads instead of staying at one write per force of the disk. The
+ * nested classes run with 1, 4, 16 and 64 threads, run it on the disk of the data store
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public abstract class GroupCommitBenchmark {
+
+  @Param({"NONE", "BUFFERED", "FSYNC"})
+  Durability durability;
+
+  @Param({"256"})
+  int valueSize;
+
+  Path directory;
+
+  WriteAheadLog writeAheadLog;
+
+  String value;
+
+  @Threads(1)
+  public static class OneThread extends GroupCommitBenchmark {}
+
+  @Threads(4)
+  public static class FourThreads extends GroupCommitBenchmark {}
+
+  @Threads(16)
+  public static class SixteenThreads extends GroupCommitBenchmark {}
+
+  @Threads(64)
+  public static class SixtyFourThreads extends GroupCommitBenchmark {}
+
+  @Setup(Level.Trial)
+  public void open() throws Exception {
+    directory = Files.createTempDirectory("crd-bench");
+    writeAheadLog = new WriteAheadLog(directory.resolve("data.wal"), FsyncPolicy.OS, 50);
+    value = "{\"key\":\"" + "x".repeat(valueSize - 10) + "\"}";
+  }
+
+  /** the log is sealed and dropped every iteration, so the file doesn't grow over the run */
+  @TearDown(Level.Iteration)
+  public void roll() throws Exception {
+    writeAheadLog.dropRolledSegments(writeAheadLog.roll());
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws Exception {
+    writeAheadLog.close();
+  }
+
+  @Benchmark
+  public void appendPut() throws Exception {
+    long position = writeAheadLog.appendPut("key-" + Thread.currentThread().getId(), value, 0);
+    writeAheadLog.commit(position, durability).get();
+  }
+}
@@ -0,0 +1,97 @@
+package com.nandakumar12.crd.app.persistence;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Startup cost of loading the data store: the whole-file Gson deserialization that was used
+ * before, the streaming {@link JsonSnapshotLoader} and the memory mapped binary
+ * {@link SnapshotReader}. Half of the entries are already expired, run with {@code -prof gc} to
+ * compare the allocation as well
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SnapshotLoaderBenchmark {
+
+  @Param({"1000000"})
+  int keys;
+
+  Path file;
+
+  Path binaryFile;
+
+  @Setup(Level.Trial)
+  public void writeDataStore() throws IOException {
+    file = Files.createTempFile("crd-bench", ".json");
+    long now = System.currentTimeMillis();
+    try (JsonWriter writer =
+        new JsonWriter(
+            new BufferedWriter(
+                new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8)))) {
+      writer.beginObject();
+      for (int i = 0; i < keys; i++) {
+        writer.name("key-" + i).beginObject();
+        writer.name("value").value("{\"key1\":\"value\",\"key2\":[{\"prop\":\"value" + i + "\"}]}");
+        writer.name("timeToLive").value(Long.toString(i % 2 == 0 ? now - 1000 : now + 3_600_000));
+        writer.endObject();
+      }
+      writer.endObject();
+    }
+    Map<String, Data> data = new ConcurrentHashMap<>();
+    new JsonSnapshotLoader().load(file, data, 0);
+    binaryFile = file.resolveSibling(file.getFileName() + ".db");
+    Path logFile = file.resolveSibling(file.getFileName() + ".wal");
+    try (WriteAheadLog writeAheadLog = new WriteAheadLog(logFile, FsyncPolicy.OS, 0)) {
+      new Snapshotter(binaryFile, data, writeAheadLog, new ReentrantLock(), Long.MAX_VALUE)
+          .snapshot();
+    } catch (DataStoreSizeExceeded e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteDataStore() throws IOException {
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(binaryFile);
+  }
+
+  @Benchmark
+  public Map<String, Data> gsonFromJson() throws IOException {
+    Type type = new TypeToken<ConcurrentHashMap<String, Data>>() {}.getType();
+    try (Reader reader = new FileReader(file.toFile())) {
+      return new Gson().fromJson(reader, type);
+    }
+  }
+
+  @Benchmark
+  public Map<String, Data> streamingJsonLoader() throws IOException {
+    Map<String, Data> data = new ConcurrentHashMap<>();
+    new JsonSnapshotLoader().load(file, data, System.currentTimeMillis());
+    return data;
+  }
+
+  @Benchmark
+  public Map<String, Data> mappedBinaryReader() throws IOException {
+    Map<String, Data> data = new ConcurrentHashMap<>();
+    new SnapshotReader().load(binaryFile, data, System.currentTimeMillis());
+    return data;
+  }
+}
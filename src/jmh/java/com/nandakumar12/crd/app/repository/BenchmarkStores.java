@@ -0,0 +1,34 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+
+import java.nio.file.Path;
+
+/**
+ * The data stores of the benchmarks of the repository, the log is forced by the OS and the
+ * background snapshots and the quota are out of the way, so a benchmark only sets the options it
+ * measures on the returned builder
+ */
+final class BenchmarkStores {
+
+  private BenchmarkStores() {}
+
+  static CrdStore.Builder builder(Path directory) {
+    return CrdStore.builder()
+        .filePath(directory.toString())
+        .fsyncPolicy(FsyncPolicy.OS)
+        .snapshotIntervalMs(60 * 60_000)
+        .snapshotMinLogBytes(Long.MAX_VALUE)
+        .maxStoreSizeBytes(Long.MAX_VALUE);
+  }
+
+  /** stops without the final snapshot, the files on the disk stay as they are */
+  static void stop(DataRepository repository) throws Exception {
+    repository.expiryEngine.close();
+    for (Shard shard : repository.shards) {
+      shard.snapshotter.close();
+      shard.writeAheadLog.close();
+    }
+    repository.storeLock.close();
+  }
+}
@@ -0,0 +1,84 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.service.DataService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Create and delete of the same few keys by many threads through {@link DataService}, every
+ * operation races the others for its key, so this measures the atomic create-if-absent and
+ * delete-if-valid paths of {@link DataRepository} under contention, with {@code shards} the keys
+ * are spread over the logs of that many shards
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class ContendedCreateBenchmark {
+
+  @Param({"HEAP", "OFF_HEAP"})
+  StorageMode mode;
+
+  @Param({"16"})
+  int keys;
+
+  @Param({"1", "8"})
+  int shards;
+
+  Path directory;
+
+  DataRepository dataRepository;
+
+  DataService dataService;
+
+  String[] keyNames;
+
+  Data value = new Data("{\"key\":\"value\"}", 0);
+
+  @Setup(Level.Trial)
+  public void open() throws Exception {
+    directory = Files.createTempDirectory("crd-bench");
+    dataRepository = BenchmarkStores.builder(directory)
+        .snapshotIntervalMs(60_000)
+        .snapshotMinLogBytes(64L * 1024 * 1024)
+        .storageMode(mode)
+        .offHeapCapacityBytes(256L * 1024 * 1024)
+        .shards(shards)
+        .open()
+        .repository();
+    dataService = new DataService(dataRepository);
+    keyNames = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      keyNames[i] = "key-" + i;
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws Exception {
+    dataRepository.writeDataToFile();
+  }
+
+  @Benchmark
+  public boolean createOrDelete() {
+    String key = keyNames[ThreadLocalRandom.current().nextInt(keys)];
+    try {
+      if (ThreadLocalRandom.current().nextBoolean()) {
+        dataService.addData(key, value);
+      } else {
+        dataService.deleteData(key);
+      }
+      return true;
+    } catch (CrdException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package com.nandakumar12.crd.app.repository;
+
+import ch.qos.logback.classic.Logger;
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.service.DataService;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of the writes against the number of keys already stored, {@code overwrite} replaces
+ * a random stored key and {@code createAndDelete} takes a free key through {@link DataService} and
+ * frees it again, so the size of the store stays the same during the run. The log level is INFO
+ * like the default configuration, the latency should be the same for every {@code storeSize}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+public class CreateLatencyBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  int storeSize;
+
+  Path directory;
+
+  DataRepository dataRepository;
+
+  DataService dataService;
+
+  String[] keyNames;
+
+  Data value = new Data("{\"key\":\"value\"}", 0);
+
+  /** the free key of a benchmark thread */
+  @State(Scope.Thread)
+  public static class FreeKey {
+    String key = "free-" + Thread.currentThread().getId();
+  }
+
+  @Setup(Level.Trial)
+  public void open() throws Exception {
+    // the Level of jmh is imported
+    ((Logger) LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME))
+        .setLevel(ch.qos.logback.classic.Level.INFO);
+    directory = Files.createTempDirectory("crd-bench");
+    dataRepository = BenchmarkStores.builder(directory)
+        .open()
+        .repository();
+    dataService = new DataService(dataRepository);
+    keyNames = new String[storeSize];
+    for (int i = 0; i < storeSize; i++) {
+      keyNames[i] = "key-" + i;
+      dataRepository.createData(keyNames[i], value);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws Exception {
+    dataRepository.writeDataToFile();
+  }
+
+  @Benchmark
+  public Data overwrite() throws CrdException {
+    return dataRepository.createData(keyNames[ThreadLocalRandom.current().nextInt(storeSize)], value);
+  }
+
+  @Benchmark
+  public Data createAndDelete(FreeKey freeKey) throws CrdException {
+    dataService.storeData(freeKey.key, value);
+    return dataService.deleteData(freeKey.key);
+  }
+}
@@ -0,0 +1,83 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.model.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The startup and the shutdown of a data store of {@code keys} entries: {@code initializeData}
+ * loads the snapshots written by the last shutdown, {@code writeDataToFile} writes them again.
+ * Unlike {@link RecoveryBenchmark} there is no log to replay, the times should grow linearly with
+ * the keys
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PersistenceBenchmark {
+
+  @Param({"10000", "1000000", "5000000"})
+  int keys;
+
+  @Param({"1"})
+  int shards;
+
+  Path directory;
+
+  DataRepository recovered;
+
+  /** a data store opened before the iteration, for the benchmarks which write it */
+  @State(Scope.Benchmark)
+  public static class Opened {
+
+    DataRepository dataRepository;
+
+    @Setup(Level.Iteration)
+    public void open(PersistenceBenchmark benchmark) throws Exception {
+      dataRepository = benchmark.open();
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void fill() throws Exception {
+    directory = Files.createTempDirectory("crd-bench");
+    DataRepository filled = open();
+    for (int i = 0; i < keys; i++) {
+      filled.createData("key-" + i, new Data("{\"key\":\"value-" + i + "\"}", 0));
+    }
+    filled.writeDataToFile();
+  }
+
+  DataRepository open() throws Exception {
+    return BenchmarkStores.builder(directory)
+        .shards(shards)
+        .open()
+        .repository();
+  }
+
+  /** stops without the final snapshot, the snapshots on the disk stay as they are */
+  @TearDown(Level.Iteration)
+  public void close() throws Exception {
+    if (recovered == null) {
+      return;
+    }
+    BenchmarkStores.stop(recovered);
+    recovered = null;
+  }
+
+  @Benchmark
+  public DataRepository initializeData() throws Exception {
+    recovered = open();
+    return recovered;
+  }
+
+  @Benchmark
+  public void writeDataToFile(Opened opened) throws Exception {
+    opened.dataRepository.writeDataToFile();
+  }
+}
@@ -0,0 +1,97 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.DataResponse;
+import com.nandakumar12.crd.app.model.RawData;
+import com.nandakumar12.crd.app.service.DataService;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The body of a GET of a large value: {@code jacksonResponse} reads the value as a string and
+ * writes it as the escaped string field of a {@link DataResponse} like the default GET,
+ * {@code rawResponse} reads the stored bytes and writes them with their ETag like the
+ * {@code raw=true} GET. Run with {@code -prof gc} for the allocations per response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(4)
+public class RawReadBenchmark {
+
+  @Param({"HEAP", "OFF_HEAP"})
+  StorageMode mode;
+
+  @Param({"16000"})
+  int valueSize;
+
+  @Param({"1000"})
+  int keys;
+
+  Path directory;
+
+  DataRepository dataRepository;
+
+  DataService dataService;
+
+  String[] keyNames;
+
+  // the response stream stays open like with the spring message converter
+  ObjectMapper objectMapper = new ObjectMapper().configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+  OutputStream sink = OutputStream.nullOutputStream();
+
+  @Setup(Level.Trial)
+  public void open() throws Exception {
+    directory = Files.createTempDirectory("crd-bench");
+    dataRepository = BenchmarkStores.builder(directory)
+        .snapshotIntervalMs(60_000)
+        .storageMode(mode)
+        .offHeapCapacityBytes(256L * 1024 * 1024)
+        .open()
+        .repository();
+    dataService = new DataService(dataRepository);
+    // every quote has to be escaped when the value is a string field of the json response
+    StringBuilder json = new StringBuilder("{\"items\":[");
+    for (int i = 0; json.length() < valueSize - 40; i++) {
+      json.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\"},");
+    }
+    String value = json.append("{\"id\":-1}]}").toString();
+    keyNames = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      keyNames[i] = "key-" + i;
+      dataRepository.createData(keyNames[i], new Data(value, 0));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws Exception {
+    dataRepository.writeDataToFile();
+  }
+
+  @Benchmark
+  public Data jacksonResponse() throws CrdException, IOException {
+    Data data = dataService.readData(keyNames[ThreadLocalRandom.current().nextInt(keys)]);
+    objectMapper.writeValue(sink, DataResponse.from(data));
+    return data;
+  }
+
+  @Benchmark
+  public String rawResponse() throws CrdException, IOException {
+    RawData data = dataService.readRawData(keyNames[ThreadLocalRandom.current().nextInt(keys)]);
+    sink.write(data.getValue());
+    return data.etag();
+  }
+}
@@ -0,0 +1,85 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.model.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The startup of a data store of {@code keys} entries split into {@code shards}, the snapshots
+ * hold every key and the write ahead logs hold an overwrite of every fifth key, like a restart
+ * after a crash. Compare {@code recoveryThreads} on a machine with at least that many cores, the
+ * recovery time should fall with the threads until they reach the shards or the cores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class RecoveryBenchmark {
+
+  @Param({"1", "16"})
+  int shards;
+
+  @Param({"1", "2", "4", "8"})
+  int recoveryThreads;
+
+  @Param({"HEAP"})
+  StorageMode mode;
+
+  @Param({"1000000"})
+  int keys;
+
+  @Param({"256"})
+  int valueSize;
+
+  Path directory;
+
+  DataRepository dataRepository;
+
+  @Setup(Level.Trial)
+  public void fill() throws Exception {
+    directory = Files.createTempDirectory("crd-bench");
+    StringBuilder json = new StringBuilder("{\"key\":\"");
+    while (json.length() < valueSize - 2) {
+      json.append('x');
+    }
+    Data value = new Data(json.append("\"}").toString(), 0);
+    DataRepository filled = open();
+    for (int i = 0; i < keys; i++) {
+      filled.createData("key-" + i, value);
+    }
+    filled.writeDataToFile();
+    filled = open();
+    for (int i = 0; i < keys; i += 5) {
+      filled.createData("key-" + i, value);
+    }
+    BenchmarkStores.stop(filled);
+  }
+
+  private DataRepository open() throws Exception {
+    return BenchmarkStores.builder(directory)
+        .storageMode(mode)
+        .offHeapCapacityBytes(4L * 1024 * 1024 * 1024)
+        .shards(shards)
+        .recoveryThreads(recoveryThreads)
+        .open()
+        .repository();
+  }
+
+  /** stops without the final snapshot, so every iteration replays the same logs */
+  @TearDown(Level.Iteration)
+  public void close() throws Exception {
+    BenchmarkStores.stop(dataRepository);
+    dataRepository = null;
+  }
+
+  @Benchmark
+  public DataRepository recover() throws Exception {
+    dataRepository = open();
+    return dataRepository;
+  }
+}
@@ -0,0 +1,143 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The operations of {@link DataRepository} on a store of {@code keys} entries, the keys are drawn
+ * uniformly or from a Zipfian distribution where a few hot keys take most of the operations, like
+ * a cache in front of a popular dataset. {@code deleteAndCreate} deletes a key and puts it back so
+ * the size of the store stays the same. The nested classes run the same operations with 1, 4 and
+ * 16 threads, compare them on a machine with at least that many cores
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public abstract class RepositoryOpsBenchmark {
+
+  public enum Distribution {
+    UNIFORM,
+    ZIPFIAN
+  }
+
+  /** the size of the precomputed sequence of keys, a power of two */
+  private static final int SEQUENCE = 1 << 20;
+
+  @Param({"UNIFORM", "ZIPFIAN"})
+  Distribution distribution;
+
+  @Param({"1000000"})
+  int keys;
+
+  @Param({"16"})
+  int shards;
+
+  Path directory;
+
+  DataRepository dataRepository;
+
+  String[] sequence;
+
+  Data value = new Data("{\"key\":\"value\"}", 0);
+
+  /** the position of a benchmark thread in the sequence of keys */
+  @State(Scope.Thread)
+  public static class Cursor {
+    int next = ThreadLocalRandom.current().nextInt(SEQUENCE);
+  }
+
+  @Threads(1)
+  public static class OneThread extends RepositoryOpsBenchmark {}
+
+  @Threads(4)
+  public static class FourThreads extends RepositoryOpsBenchmark {}
+
+  @Threads(16)
+  public static class SixteenThreads extends RepositoryOpsBenchmark {}
+
+  @Setup(Level.Trial)
+  public void open() throws Exception {
+    directory = Files.createTempDirectory("crd-bench");
+    dataRepository = BenchmarkStores.builder(directory)
+        .shards(shards)
+        .open()
+        .repository();
+    String[] keyNames = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      keyNames[i] = "key-" + i;
+      dataRepository.createData(keyNames[i], value);
+    }
+    sequence = sequence(keyNames);
+  }
+
+  /**
+   * draws the keys of the benchmark up front, so the operations do not pay for the draw. A
+   * Zipfian rank is the index of the key, the names are hashed to the shards so the hot keys are
+   * spread over them
+   */
+  private String[] sequence(String[] keyNames) {
+    SplittableRandom random = new SplittableRandom(42);
+    String[] drawn = new String[SEQUENCE];
+    if (distribution == Distribution.UNIFORM) {
+      for (int i = 0; i < SEQUENCE; i++) {
+        drawn[i] = keyNames[random.nextInt(keys)];
+      }
+      return drawn;
+    }
+    // the cumulative probability of the ranks with an exponent of 0.99, like YCSB
+    double[] cumulative = new double[keys];
+    double sum = 0;
+    for (int i = 0; i < keys; i++) {
+      sum += 1 / Math.pow(i + 1, 0.99);
+      cumulative[i] = sum;
+    }
+    for (int i = 0; i < SEQUENCE; i++) {
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      drawn[i] = keyNames[Math.min(rank < 0 ? -rank - 1 : rank, keys - 1)];
+    }
+    return drawn;
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws Exception {
+    dataRepository.writeDataToFile();
+  }
+
+  private String next(Cursor cursor) {
+    return sequence[cursor.next++ & (SEQUENCE - 1)];
+  }
+
+  @Benchmark
+  public Optional<Data> findByKey(Cursor cursor) {
+    return dataRepository.findByKey(next(cursor));
+  }
+
+  @Benchmark
+  public Data createData(Cursor cursor) throws DataStoreSizeExceeded {
+    return dataRepository.createData(next(cursor), value);
+  }
+
+  @Benchmark
+  public Data deleteAndCreate(Cursor cursor) throws DataStoreSizeExceeded {
+    String key = next(cursor);
+    try {
+      dataRepository.deleteByKey(key);
+    } catch (DataNotFoundException e) {
+      // deleted by another thread in between, a hot key of the Zipfian distribution
+    }
+    return dataRepository.createData(key, value);
+  }
+}
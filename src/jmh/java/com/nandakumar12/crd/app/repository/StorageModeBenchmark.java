@@ -0,0 +1,83 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.model.Data;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap map against {@link OffHeapDataMap} holding the same keys, with a read mostly mix of reads
+ * and overwrites. The retained heap after a full collection and the collection time of the trial
+ * are printed at the end of each fork, run with {@code -prof gc} for the allocation rate
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+@Threads(4)
+public class StorageModeBenchmark {
+
+  @Param({"HEAP", "OFF_HEAP"})
+  StorageMode mode;
+
+  @Param({"1000000"})
+  int keys;
+
+  @Param({"256"})
+  int valueSize;
+
+  Map<String, Data> data;
+
+  String[] keyNames;
+
+  Data value;
+
+  @Setup(Level.Trial)
+  public void fill() {
+    data =
+        mode == StorageMode.OFF_HEAP ? new OffHeapDataMap(4L * 1024 * 1024 * 1024) : new ConcurrentHashMap<>();
+    keyNames = new String[keys];
+    StringBuilder json = new StringBuilder("{\"key\":\"");
+    while (json.length() < valueSize - 2) {
+      json.append('x');
+    }
+    value = new Data(json.append("\"}").toString(), 0);
+    for (int i = 0; i < keys; i++) {
+      keyNames[i] = "key-" + i;
+      // a distinct copy per key, the heap map must not share one backing array for every value
+      data.put(keyNames[i], new Data(new String(value.getValue().toCharArray()), 0));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void report() {
+    System.gc();
+    Runtime runtime = Runtime.getRuntime();
+    long gcMillis = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      gcMillis += gc.getCollectionTime();
+    }
+    System.out.printf(
+        "%n%s: retained heap %d MB, total gc time %d ms%n",
+        mode, (runtime.totalMemory() - runtime.freeMemory()) >> 20, gcMillis);
+  }
+
+  @Benchmark
+  public void readMostly(Blackhole blackhole) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String key = keyNames[random.nextInt(keys)];
+    if (random.nextInt(10) == 0) {
+      blackhole.consume(data.put(key, value));
+    } else {
+      blackhole.consume(data.get(key));
+    }
+  }
+}
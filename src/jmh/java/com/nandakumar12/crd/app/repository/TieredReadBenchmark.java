@@ -0,0 +1,91 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.eviction.MemoryBudget;
+import com.nandakumar12.crd.app.model.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads of a data store of {@code keys} entries where the working set is the first tenth of the
+ * keys, {@code hotPercent} of the reads go to the working set and the rest to any key. HEAP keeps
+ * every entry in memory, TIERED keeps a memory budget of the size of the working set and spills
+ * the rest to the segment files, so the difference is the cost of the cold reads and of the
+ * evictions they cause. Run with {@code -prof gc} and compare the heap after the setup
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Threads(4)
+public class TieredReadBenchmark {
+
+  @Param({"HEAP", "TIERED"})
+  StorageMode mode;
+
+  @Param({"LRU", "TINY_LFU"})
+  EvictionMode evictionMode;
+
+  @Param({"1000000"})
+  int keys;
+
+  @Param({"1024"})
+  int valueSize;
+
+  @Param({"100", "90"})
+  int hotPercent;
+
+  Path directory;
+
+  DataRepository dataRepository;
+
+  String[] keyNames;
+
+  @Setup(Level.Trial)
+  public void open() throws Exception {
+    directory = Files.createTempDirectory("crd-bench");
+    StringBuilder json = new StringBuilder("{\"key\":\"");
+    while (json.length() < valueSize - 2) {
+      json.append('x');
+    }
+    Data value = new Data(json.append("\"}").toString(), 0);
+    keyNames = new String[keys];
+    for (int i = 0; i < keys; i++) {
+      keyNames[i] = String.format("key-%08d", i);
+    }
+    boolean tiered = mode == StorageMode.TIERED;
+    dataRepository = BenchmarkStores.builder(directory)
+        .storageMode(mode)
+        // the budget holds the working set
+        .memoryBudgetBytes(tiered ? keys / 10 * MemoryBudget.weigh(keyNames[0], value) : 0)
+        .evictionPolicy(tiered ? evictionMode : EvictionMode.REJECT)
+        .open()
+        .repository();
+    for (int i = 0; i < keys; i++) {
+      dataRepository.createData(keyNames[i], value);
+    }
+    // the working set is read in once, the first reads of a trial are not the cold ones
+    for (int i = 0; i < keys / 10; i++) {
+      dataRepository.findByKey(keyNames[i]);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void close() throws Exception {
+    dataRepository.writeDataToFile();
+  }
+
+  @Benchmark
+  public Optional<Data> read() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int bound = random.nextInt(100) < hotPercent ? keys / 10 : keys;
+    return dataRepository.findByKey(keyNames[random.nextInt(bound)]);
+  }
+}
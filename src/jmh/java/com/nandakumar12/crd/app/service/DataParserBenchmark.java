@@ -0,0 +1,59 @@
+package com.nandakumar12.crd.app.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.model.Data;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The create path parsing of a body with a timeToLive: {@code gsonRoundTrip} is the parse as it
+ * was (encode for the size check, parse into a tree, remove the member, serialize with a new
+ * Gson), {@code streamingExtract} is {@link DataParser#parse}. The sizes go up to the 16 KB
+ * limit of a value, run with {@code -prof gc} for the allocations per operation
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DataParserBenchmark {
+
+  @Param({"256", "1024", "4096", "16384"})
+  int size;
+
+  String body;
+
+  DataParser dataParser = new DataParser();
+
+  @Setup
+  public void setup() {
+    StringBuilder json = new StringBuilder("{\"timeToLive\":\"3600\",\"items\":[");
+    for (int i = 0; json.length() < size - 40; i++) {
+      json.append("{\"id\":").append(i).append(",\"name\":\"item ").append(i).append("\"},");
+    }
+    body = json.append("{\"id\":-1}],\"enabled\":true}").toString();
+  }
+
+  @Benchmark
+  public Data gsonRoundTrip() throws InvalidDataException {
+    if (body.getBytes(StandardCharsets.UTF_8).length / 1024 > 16) {
+      throw new InvalidDataException("Data size exceeded 16Kb");
+    }
+    Gson gson = new Gson();
+    JsonObject jsonObject = JsonParser.parseString(body).getAsJsonObject();
+    long ttl = Long.parseLong(jsonObject.get(DataParser.TIME_TO_LIVE).getAsString());
+    jsonObject.remove(DataParser.TIME_TO_LIVE);
+    return new Data(gson.toJson(jsonObject), DataParser.expiryOf(ttl));
+  }
+
+  @Benchmark
+  public Data streamingExtract() throws InvalidDataException {
+    return dataParser.parse(body);
+  }
+}
@@ -0,0 +1,53 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.ValueExpiredException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The expiry check done by every read and delete: {@code legacyStringExpiry} is the check as it
+ * was when the expiry was stored as a decimal string, {@code primitiveExpiry} is
+ * {@link DataService#isValid} on the primitive expiry, for a value without a timeToLive and for
+ * a value which expires in an hour
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpiryCheckBenchmark {
+
+  DataService dataService = new DataService(new DataRepository());
+
+  @Param({"0", "3600"})
+  long timeToLive;
+
+  String legacyTimeToLive;
+
+  Data data;
+
+  @Setup
+  public void setup() {
+    long expiresAt =
+        timeToLive == 0 ? 0 : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeToLive);
+    legacyTimeToLive = Long.toString(expiresAt);
+    data = new Data("{\"key1\":\"value\"}", expiresAt);
+  }
+
+  @Benchmark
+  public boolean legacyStringExpiry() {
+    long currentTimeStamp = System.currentTimeMillis();
+    long expireTime = Long.parseLong(legacyTimeToLive);
+    return expireTime == 0 || expireTime >= currentTimeStamp;
+  }
+
+  @Benchmark
+  public boolean primitiveExpiry() throws ValueExpiredException, DataNotFoundException {
+    return dataService.isValid(data, "key");
+  }
+}
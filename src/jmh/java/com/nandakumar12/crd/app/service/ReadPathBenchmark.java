@@ -0,0 +1,75 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.ValueExpiredException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Optional;
+import java.util.concurrent.*;
+
+/**
+ * A read as the request thread saw it before and after the {@code @Async} hop was removed:
+ * {@code asyncHop} submits {@link DataService#readData} to a pool of 5 to 25 threads like the
+ * former {@code asyncExecutor} and blocks on the future like the controller did, {@code direct}
+ * calls it on the request thread. Sampled with 32 request threads, the result has the p99 of both; the
+ * rejections of the 100 task queue are counted as failed operations
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(32)
+public class ReadPathBenchmark {
+
+  DataService dataService;
+
+  Executor asyncExecutor;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Optional<Data> data = Optional.of(new Data("{\"key1\":\"value\"}", 0));
+    dataService =
+        new DataService(
+            new DataRepository() {
+              @Override
+              public Optional<Data> findByKey(String key) {
+                return data;
+              }
+            });
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(5);
+    executor.setMaxPoolSize(25);
+    executor.setQueueCapacity(100);
+    executor.initialize();
+    asyncExecutor = executor;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    ((ThreadPoolTaskExecutor) asyncExecutor).shutdown();
+  }
+
+  @Benchmark
+  public Data direct() throws ValueExpiredException, DataNotFoundException {
+    return dataService.readData("key");
+  }
+
+  @Benchmark
+  public Data asyncHop() throws InterruptedException, ExecutionException {
+    CompletableFuture<Data> future = new CompletableFuture<>();
+    asyncExecutor.execute(
+        () -> {
+          try {
+            future.complete(dataService.readData("key"));
+          } catch (Exception e) {
+            future.completeExceptionally(e);
+          }
+        });
+    return future.get();
+  }
+}
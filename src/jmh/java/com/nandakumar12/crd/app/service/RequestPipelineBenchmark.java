@@ -0,0 +1,156 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.config.AppConfig;
+import com.nandakumar12.crd.app.config.ExecutorMode;
+import com.nandakumar12.crd.app.metrics.CrdMetrics;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.Durability;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.*;
+
+/**
+ * A burst of creates served by a small servlet pool, the future of every create is completed
+ * {@code fsyncMicros} later like a write with fsync policy ALWAYS. {@code blocking} parks the
+ * servlet thread on the future as the controller used to, {@code asyncHop} returns the future but
+ * parks a thread of a pool of 5 to 25 threads on it like the former {@code @Async} proxy of
+ * {@link DataService#addData}, {@code nonBlocking} returns the future of the commit and no thread
+ * waits for it. {@code mode} is the {@code application.executor.mode} the creates run in, add
+ * {@code -p mode=VIRTUAL} on JDK 21 or newer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class RequestPipelineBenchmark {
+
+  @Param({"16"})
+  int servletThreads;
+
+  @Param({"100"})
+  int requests;
+
+  @Param({"500"})
+  long fsyncMicros;
+
+  @Param({"INLINE", "PLATFORM"})
+  ExecutorMode mode;
+
+  ExecutorService servletPool;
+
+  /** completes the writes like the committer of the write ahead log */
+  ScheduledExecutorService committer;
+
+  ThreadPoolTaskExecutor asyncExecutor;
+
+  /** the executor of the creates in PLATFORM and VIRTUAL mode, not the one of the hop */
+  Executor createExecutor = DataService.CALLING_THREAD;
+
+  DataService dataService;
+
+  Data value = new Data("{\"key1\":\"value\"}", 0);
+
+  @Setup(Level.Trial)
+  public void setup() {
+    servletPool = Executors.newFixedThreadPool(servletThreads);
+    committer = Executors.newSingleThreadScheduledExecutor();
+    asyncExecutor = pool();
+    if (mode == ExecutorMode.PLATFORM) {
+      createExecutor = pool();
+    } else if (mode == ExecutorMode.VIRTUAL) {
+      createExecutor = AppConfig.virtualThreadPerTaskExecutor();
+    }
+    dataService =
+        new DataService(
+            new DataRepository() {
+              @Override
+              public CompletableFuture<Data> createIfAbsentOrExpired(
+                  String key, Data value, Durability durability) {
+                CompletableFuture<Data> committed = new CompletableFuture<>();
+                committer.schedule(
+                    () -> committed.complete(value), fsyncMicros, TimeUnit.MICROSECONDS);
+                return committed;
+              }
+            },
+            CrdMetrics.NONE,
+            createExecutor);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    servletPool.shutdownNow();
+    committer.shutdownNow();
+    asyncExecutor.shutdown();
+    if (createExecutor instanceof ThreadPoolTaskExecutor) {
+      ((ThreadPoolTaskExecutor) createExecutor).shutdown();
+    } else if (createExecutor instanceof ExecutorService) {
+      ((ExecutorService) createExecutor).shutdown();
+    }
+  }
+
+  /** a pool like the PLATFORM mode of {@link AppConfig} */
+  private static ThreadPoolTaskExecutor pool() {
+    ThreadPoolTaskExecutor pool = new ThreadPoolTaskExecutor();
+    pool.setCorePoolSize(5);
+    pool.setMaxPoolSize(25);
+    pool.setQueueCapacity(100);
+    pool.initialize();
+    return pool;
+  }
+
+  private CompletableFuture<Data> addData(String key) {
+    try {
+      return dataService.addData(key, value);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /** the hop the {@code @Async} proxy added in front of {@link DataService#addData} */
+  private CompletableFuture<Data> addDataAsync(String key) {
+    return CompletableFuture.supplyAsync(() -> addData(key).join(), asyncExecutor);
+  }
+
+  @Benchmark
+  public void blocking() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(requests);
+    for (int i = 0; i < requests; i++) {
+      String key = Integer.toString(i);
+      servletPool.execute(
+          () -> {
+            try {
+              addData(key).get();
+            } catch (InterruptedException | ExecutionException e) {
+              // still counted, the benchmark measures how long the burst takes
+            } finally {
+              done.countDown();
+            }
+          });
+    }
+    done.await();
+  }
+
+  @Benchmark
+  public void asyncHop() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(requests);
+    for (int i = 0; i < requests; i++) {
+      String key = Integer.toString(i);
+      servletPool.execute(() -> addDataAsync(key).whenComplete((data, e) -> done.countDown()));
+    }
+    done.await();
+  }
+
+  @Benchmark
+  public void nonBlocking() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(requests);
+    for (int i = 0; i < requests; i++) {
+      String key = Integer.toString(i);
+      servletPool.execute(() -> addData(key).whenComplete((data, e) -> done.countDown()));
+    }
+    done.await();
+  }
+}
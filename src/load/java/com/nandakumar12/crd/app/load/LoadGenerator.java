@@ -0,0 +1,77 @@
+package com.nandakumar12.crd.app.load;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Load generator of the data endpoint, it runs the same workload against every configuration of
+ * the application and reports their latencies side by side. Run with the {@code loadtest}
+ * profile:
+ *
+ * <pre>
+ * ./mvnw -P loadtest test-compile exec:exec -Dload.args="--mode open --rate 5000
+ *     --config always:application.wal.fsync-policy=ALWAYS
+ *     --config group:application.wal.fsync-policy=GROUP_COMMIT"
+ * </pre>
+ *
+ * everything runs on the local machine, the started applications write their output next to
+ * the report
+ */
+public class LoadGenerator {
+
+  public static void main(String[] args) throws Exception {
+    LoadOptions options;
+    Workload workload;
+    try {
+      options = LoadOptions.parse(args);
+      workload = Workload.of(options);
+    } catch (IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      System.err.println(LoadOptions.USAGE);
+      System.exit(2);
+      return;
+    }
+    HttpClient client =
+        HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    LoadReport report = new LoadReport(options);
+    Files.createDirectories(options.output);
+    for (LoadOptions.Configuration configuration : options.configurations) {
+      System.out.printf("Running %s%n", configuration.label);
+      if (options.target != null) {
+        report.add(run(options, client, options.target, configuration, workload));
+        continue;
+      }
+      try (ServerProcess server =
+          ServerProcess.start(
+              configuration,
+              options.serverJvmArgs,
+              options.output.resolve(configuration.fileName() + ".log"))) {
+        report.add(run(options, client, server.target, configuration, workload));
+      }
+    }
+    System.out.println(report.write());
+    System.out.printf(
+        Locale.ROOT, "The report and the histograms are in %s%n", options.output.toAbsolutePath());
+    System.exit(0);
+  }
+
+  private static LoadRun.Result run(
+      LoadOptions options,
+      HttpClient client,
+      String target,
+      LoadOptions.Configuration configuration,
+      Workload workload)
+      throws IOException, InterruptedException {
+    LoadRun run = new LoadRun(options, client);
+    if (options.preload && workload instanceof Workload.Synthetic) {
+      run.preload(target, (Workload.Synthetic) workload);
+    }
+    return run.run(configuration, target, workload);
+  }
+}
@@ -0,0 +1,239 @@
+package com.nandakumar12.crd.app.load;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The options of a load run, given on the command line as {@code --name value}. Every
+ * {@code --config} starts its own application with the given properties, without any the
+ * application is started once with its defaults, or {@code --target} is used as it is
+ */
+class LoadOptions {
+
+  static final String USAGE =
+      String.join(
+          System.lineSeparator(),
+          "Options:",
+          "  --target <url>            an application already running, instead of starting one",
+          "  --config <label>:<name>=<value>,...",
+          "                            an application started with these properties, repeatable",
+          "  --server-jvm-args <args>  jvm arguments of the started applications, space separated",
+          "  --mode <open|closed>      open: --rate requests per second whatever the latency,",
+          "                            closed: every connection waits for its last response",
+          "  --rate <n>                requests per second of the open mode (1000)",
+          "  --connections <n>         the concurrent requests, the limit in the open mode (16)",
+          "  --warmup <s>              seconds run before the measurement (10)",
+          "  --duration <s>            seconds measured (30)",
+          "  --trace <file>            json lines replayed in a loop, one request per line:",
+          "                            {\"op\":\"create\",\"key\":\"k\",\"value\":{},\"timeToLive\":60}",
+          "  --keys <n>                key space of the synthetic requests (100000)",
+          "  --mix <r>:<c>:<d>         read:create:delete percentages (80:15:5)",
+          "  --distribution <uniform|zipfian>  the keys of the synthetic requests (uniform)",
+          "  --value-size <bytes>      size of the created values (256)",
+          "  --ttl-percent <n>         percentage of the created values with a timeToLive (0)",
+          "  --ttl-seconds <n>         their timeToLive (60)",
+          "  --durability <none|buffered|fsync>",
+          "                            durability of the measured creates (the application default)",
+          "  --preload <true|false>    creates every synthetic key before the warmup (true)",
+          "  --output <dir>            the directory of the report and the histograms (target/load)");
+
+  enum Mode {
+    OPEN,
+    CLOSED
+  }
+
+  enum Distribution {
+    UNIFORM,
+    ZIPFIAN
+  }
+
+  /** a set of application properties compared in the report under its label */
+  static class Configuration {
+
+    final String label;
+
+    final Map<String, String> properties;
+
+    Configuration(String label, Map<String, String> properties) {
+      this.label = label;
+      this.properties = properties;
+    }
+
+    static Configuration parse(String text) {
+      int colon = text.indexOf(':');
+      if (colon <= 0) {
+        throw new IllegalArgumentException("A configuration needs a label: " + text);
+      }
+      Map<String, String> properties = new LinkedHashMap<>();
+      for (String property : text.substring(colon + 1).split(",")) {
+        if (property.isEmpty()) {
+          continue;
+        }
+        int equals = property.indexOf('=');
+        if (equals <= 0) {
+          throw new IllegalArgumentException("A property needs a value: " + property);
+        }
+        properties.put(property.substring(0, equals), property.substring(equals + 1));
+      }
+      return new Configuration(text.substring(0, colon), properties);
+    }
+
+    /** the label as a part of a file name */
+    String fileName() {
+      return label.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+  }
+
+  String target;
+
+  List<Configuration> configurations = new ArrayList<>();
+
+  List<String> serverJvmArgs = Collections.emptyList();
+
+  Mode mode = Mode.CLOSED;
+
+  int rate = 1000;
+
+  int connections = 16;
+
+  int warmupSeconds = 10;
+
+  int durationSeconds = 30;
+
+  Path trace;
+
+  int keys = 100_000;
+
+  int readPercent = 80;
+
+  int createPercent = 15;
+
+  int deletePercent = 5;
+
+  Distribution distribution = Distribution.UNIFORM;
+
+  int valueSize = 256;
+
+  int ttlPercent;
+
+  int ttlSeconds = 60;
+
+  /** the durability parameter of the measured creates, null for the default of the application */
+  String durability;
+
+  boolean preload = true;
+
+  Path output = Paths.get("target", "load");
+
+  /**
+   * This method will parse the command line arguments
+   *
+   * @param args these are the arguments as {@code --name value} pairs
+   * @return LoadOptions this is the options of the run
+   * @throws IllegalArgumentException if an argument is unknown or invalid
+   */
+  static LoadOptions parse(String[] args) {
+    LoadOptions options = new LoadOptions();
+    for (int i = 0; i < args.length; i += 2) {
+      if (i + 1 == args.length) {
+        throw new IllegalArgumentException("Missing the value of " + args[i]);
+      }
+      String value = args[i + 1];
+      switch (args[i]) {
+        case "--target":
+          options.target = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+          break;
+        case "--config":
+          options.configurations.add(Configuration.parse(value));
+          break;
+        case "--server-jvm-args":
+          options.serverJvmArgs = Arrays.asList(value.trim().split("\\s+"));
+          break;
+        case "--mode":
+          options.mode = Mode.valueOf(value.toUpperCase(Locale.ROOT));
+          break;
+        case "--rate":
+          options.rate = positive(args[i], value);
+          break;
+        case "--connections":
+          options.connections = positive(args[i], value);
+          break;
+        case "--warmup":
+          options.warmupSeconds = Integer.parseInt(value);
+          break;
+        case "--duration":
+          options.durationSeconds = positive(args[i], value);
+          break;
+        case "--trace":
+          options.trace = Paths.get(value);
+          break;
+        case "--keys":
+          options.keys = positive(args[i], value);
+          break;
+        case "--mix":
+          String[] mix = value.split(":");
+          if (mix.length != 3) {
+            throw new IllegalArgumentException("The mix is read:create:delete, got " + value);
+          }
+          options.readPercent = Integer.parseInt(mix[0]);
+          options.createPercent = Integer.parseInt(mix[1]);
+          options.deletePercent = Integer.parseInt(mix[2]);
+          if (options.readPercent + options.createPercent + options.deletePercent != 100) {
+            throw new IllegalArgumentException("The mix must add up to 100, got " + value);
+          }
+          break;
+        case "--distribution":
+          options.distribution = Distribution.valueOf(value.toUpperCase(Locale.ROOT));
+          break;
+        case "--value-size":
+          options.valueSize = positive(args[i], value);
+          break;
+        case "--ttl-percent":
+          options.ttlPercent = Integer.parseInt(value);
+          break;
+        case "--ttl-seconds":
+          options.ttlSeconds = positive(args[i], value);
+          break;
+        case "--durability":
+          if (!value.matches("(?i)none|buffered|fsync")) {
+            throw new IllegalArgumentException("--durability should be none, buffered or fsync");
+          }
+          options.durability = value;
+          break;
+        case "--preload":
+          options.preload = Boolean.parseBoolean(value);
+          break;
+        case "--output":
+          options.output = Paths.get(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i]);
+      }
+    }
+    if (options.target != null && !options.configurations.isEmpty()) {
+      throw new IllegalArgumentException(
+          "--config starts an application, it can't be used with --target");
+    }
+    if (options.configurations.isEmpty()) {
+      options.configurations.add(
+          new Configuration(
+              options.target == null ? "default" : options.target, Collections.emptyMap()));
+    }
+    return options;
+  }
+
+  private static int positive(String name, String value) {
+    int number = Integer.parseInt(value);
+    if (number <= 0) {
+      throw new IllegalArgumentException(name + " must be positive, got " + value);
+    }
+    return number;
+  }
+}
@@ -0,0 +1,127 @@
+package com.nandakumar12.crd.app.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares the runs of the configurations: a markdown table with the throughput and the corrected
+ * percentiles of every request type in milliseconds, and the full percentile distribution of
+ * every histogram as an {@code .hgrm} file which the HdrHistogram plotter reads
+ */
+class LoadReport {
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+  private final LoadOptions options;
+
+  private final List<LoadRun.Result> results = new ArrayList<>();
+
+  LoadReport(LoadOptions options) {
+    this.options = options;
+  }
+
+  void add(LoadRun.Result result) throws IOException {
+    results.add(result);
+    Files.createDirectories(options.output);
+    for (Operation.Type type : Operation.Type.values()) {
+      write(result.corrected.get(type), histogramFile(result, type, ""));
+      write(result.uncorrected.get(type), histogramFile(result, type, ".uncorrected"));
+    }
+  }
+
+  private Path histogramFile(LoadRun.Result result, Operation.Type type, String suffix) {
+    return options.output.resolve(
+        result.configuration.fileName()
+            + "."
+            + type.name().toLowerCase(Locale.ROOT)
+            + suffix
+            + ".hgrm");
+  }
+
+  private static void write(Histogram histogram, Path file) throws IOException {
+    try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+      // recorded in microseconds, written in milliseconds
+      histogram.outputPercentileDistribution(out, 1000.0);
+    }
+  }
+
+  /**
+   * This method will write the comparison of the runs to {@code report.md} in the output
+   * directory and return it
+   *
+   * @return String this is the markdown of the report
+   * @throws IOException if the report can't be written
+   */
+  String write() throws IOException {
+    StringBuilder report = new StringBuilder();
+    report.append("# Load report\n\n");
+    report.append(
+        String.format(
+            Locale.ROOT,
+            "%s loop, %s, %d connections, %ds measured after %ds of warmup%n%n",
+            options.mode == LoadOptions.Mode.OPEN ? "Open" : "Closed",
+            options.mode == LoadOptions.Mode.OPEN ? options.rate + " requests/s" : "unthrottled",
+            options.connections,
+            options.durationSeconds,
+            options.warmupSeconds));
+    report.append(
+        options.trace != null
+            ? "Replay of " + options.trace + "\n\n"
+            : String.format(
+                Locale.ROOT,
+                "%d %s keys, read:create:delete %d:%d:%d, %d byte values, %d%% with a"
+                    + " timeToLive%n%n",
+                options.keys,
+                options.distribution.name().toLowerCase(Locale.ROOT),
+                options.readPercent,
+                options.createPercent,
+                options.deletePercent,
+                options.valueSize,
+                options.ttlPercent));
+    report.append(
+        "| configuration | request | requests/s | errors | p50 ms | p90 ms | p99 ms | p99.9 ms"
+            + " | max ms | p99 uncorrected ms |\n");
+    report.append("|---|---|---:|---:|---:|---:|---:|---:|---:|---:|\n");
+    for (LoadRun.Result result : results) {
+      for (Map.Entry<Operation.Type, Histogram> type : result.corrected.entrySet()) {
+        Histogram histogram = type.getValue();
+        if (histogram.getTotalCount() == 0) {
+          continue;
+        }
+        report.append(
+            String.format(
+                Locale.ROOT,
+                "| %s | %s | %.0f | %d |",
+                result.configuration.label,
+                type.getKey().name().toLowerCase(Locale.ROOT),
+                result.uncorrected.get(type.getKey()).getTotalCount() / result.seconds,
+                result.errors.get(type.getKey())));
+        for (double percentile : PERCENTILES) {
+          report.append(millis(histogram.getValueAtPercentile(percentile))).append(" |");
+        }
+        report
+            .append(millis(histogram.getMaxValue()))
+            .append(" |")
+            .append(millis(result.uncorrected.get(type.getKey()).getValueAtPercentile(99)))
+            .append(" |\n");
+      }
+    }
+    String markdown = report.toString();
+    Files.createDirectories(options.output);
+    Files.write(options.output.resolve("report.md"), markdown.getBytes(StandardCharsets.UTF_8));
+    return markdown;
+  }
+
+  private static String millis(long micros) {
+    return String.format(Locale.ROOT, " %.3f", micros / 1000.0);
+  }
+}
@@ -0,0 +1,251 @@
+package com.nandakumar12.crd.app.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the requests of a workload to one application and records their latency in microseconds
+ *
+ * <p>a closed loop keeps {@code connections} requests outstanding, a stall of the application
+ * also stalls the requests and would be hidden by their latency alone (the coordinated omission).
+ * Its corrected histogram assumes a connection should have sent a request every mean latency and
+ * adds the requests a stall held back. An open loop sends at a fixed rate from a schedule, the
+ * latency of a request is measured from the time it should have been sent, so it is corrected as
+ * it is measured, the uncorrected histogram measures from the time it was sent
+ */
+class LoadRun {
+
+  /** the latencies recorded, a longer one is recorded as this */
+  private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+  /** the latencies of the requests of one type */
+  static class Latencies {
+
+    final Recorder corrected = new Recorder(HIGHEST_MICROS, 3);
+
+    final Recorder uncorrected = new Recorder(HIGHEST_MICROS, 3);
+
+    /** the responses with a status other than 2xx and the requests which failed */
+    final LongAdder errors = new LongAdder();
+
+    void record(long intendedNanos, long sentNanos, long completedNanos) {
+      corrected.recordValue(micros(completedNanos - intendedNanos));
+      uncorrected.recordValue(micros(completedNanos - sentNanos));
+    }
+
+    private static long micros(long nanos) {
+      return Math.min(Math.max(1, TimeUnit.NANOSECONDS.toMicros(nanos)), HIGHEST_MICROS);
+    }
+  }
+
+  /** the measured histograms of a run */
+  static class Result {
+
+    final LoadOptions.Configuration configuration;
+
+    final double seconds;
+
+    final Map<Operation.Type, Histogram> corrected = new EnumMap<>(Operation.Type.class);
+
+    final Map<Operation.Type, Histogram> uncorrected = new EnumMap<>(Operation.Type.class);
+
+    final Map<Operation.Type, Long> errors = new EnumMap<>(Operation.Type.class);
+
+    Result(LoadOptions.Configuration configuration, double seconds) {
+      this.configuration = configuration;
+      this.seconds = seconds;
+    }
+  }
+
+  private final LoadOptions options;
+
+  private final HttpClient client;
+
+  private final Map<Operation.Type, Latencies> latencies = new EnumMap<>(Operation.Type.class);
+
+  private volatile boolean stopped;
+
+  LoadRun(LoadOptions options, HttpClient client) {
+    this.options = options;
+    this.client = client;
+    for (Operation.Type type : Operation.Type.values()) {
+      latencies.put(type, new Latencies());
+    }
+  }
+
+  /**
+   * This method will create every synthetic key before the run, the requests are not measured
+   *
+   * @param target this is the base url of the application
+   * @param workload this is the synthetic workload
+   * @throws IOException if a request fails
+   * @throws InterruptedException if interrupted while waiting for the requests
+   */
+  void preload(String target, Workload.Synthetic workload)
+      throws IOException, InterruptedException {
+    AtomicReference<IOException> failure = new AtomicReference<>();
+    ExecutorService pool = Executors.newFixedThreadPool(options.connections);
+    for (int connection = 0; connection < options.connections; connection++) {
+      int first = connection;
+      pool.execute(
+          () -> {
+            for (int key = first;
+                key < options.keys && failure.get() == null;
+                key += options.connections) {
+              try {
+                client.send(
+                    workload.create(key).request(target), HttpResponse.BodyHandlers.discarding());
+              } catch (IOException e) {
+                failure.compareAndSet(null, e);
+              } catch (InterruptedException e) {
+                return;
+              }
+            }
+          });
+    }
+    pool.shutdown();
+    pool.awaitTermination(1, TimeUnit.HOURS);
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  /**
+   * This method will send the requests of the workload for the warmup and then for the measured
+   * duration
+   *
+   * @param configuration this is the configuration of the application
+   * @param target this is the base url of the application
+   * @param workload this is the workload of the requests
+   * @return Result this is the latencies measured after the warmup
+   * @throws InterruptedException if interrupted while sending
+   */
+  Result run(LoadOptions.Configuration configuration, String target, Workload workload)
+      throws InterruptedException {
+    Thread sender =
+        new Thread(
+            () -> {
+              try {
+                if (options.mode == LoadOptions.Mode.OPEN) {
+                  openLoop(target, workload);
+                } else {
+                  closedLoop(target, workload);
+                }
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            },
+            "load-sender");
+    sender.start();
+    Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds));
+    for (Latencies type : latencies.values()) {
+      type.corrected.reset();
+      type.uncorrected.reset();
+      type.errors.reset();
+    }
+    long start = System.nanoTime();
+    Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds));
+    Result result = new Result(configuration, (System.nanoTime() - start) / 1e9);
+    for (Map.Entry<Operation.Type, Latencies> type : latencies.entrySet()) {
+      result.corrected.put(type.getKey(), type.getValue().corrected.getIntervalHistogram());
+      result.uncorrected.put(type.getKey(), type.getValue().uncorrected.getIntervalHistogram());
+      result.errors.put(type.getKey(), type.getValue().errors.sum());
+    }
+    stopped = true;
+    sender.join();
+    if (options.mode == LoadOptions.Mode.CLOSED) {
+      for (Operation.Type type : Operation.Type.values()) {
+        Histogram histogram = result.uncorrected.get(type);
+        result.corrected.put(
+            type,
+            histogram.getTotalCount() == 0
+                ? histogram
+                : histogram.copyCorrectedForCoordinatedOmission((long) histogram.getMean()));
+      }
+    }
+    return result;
+  }
+
+  private void closedLoop(String target, Workload workload) throws InterruptedException {
+    List<Thread> connections = new ArrayList<>();
+    for (int i = 0; i < options.connections; i++) {
+      Thread connection =
+          new Thread(
+              () -> {
+                while (!stopped) {
+                  Operation operation = workload.next();
+                  Latencies type = latencies.get(operation.type);
+                  long sent = System.nanoTime();
+                  try {
+                    HttpResponse<Void> response =
+                        client.send(
+                            operation.request(target, options.durability),
+                            HttpResponse.BodyHandlers.discarding());
+                    long completed = System.nanoTime();
+                    // corrected after the run, from the mean latency
+                    type.uncorrected.recordValue(Latencies.micros(completed - sent));
+                    if (response.statusCode() / 100 != 2) {
+                      type.errors.increment();
+                    }
+                  } catch (IOException e) {
+                    type.errors.increment();
+                  } catch (InterruptedException e) {
+                    return;
+                  }
+                }
+              },
+              "load-connection-" + i);
+      connection.start();
+      connections.add(connection);
+    }
+    for (Thread connection : connections) {
+      connection.join();
+    }
+  }
+
+  private void openLoop(String target, Workload workload) throws InterruptedException {
+    Semaphore inFlight = new Semaphore(options.connections);
+    long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate;
+    long start = System.nanoTime();
+    for (long i = 0; !stopped; i++) {
+      long intended = start + i * intervalNanos;
+      long wait;
+      while ((wait = intended - System.nanoTime()) > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      // a request held back by the limit is late, its latency counts from the schedule anyway
+      inFlight.acquire();
+      Operation operation = workload.next();
+      Latencies type = latencies.get(operation.type);
+      long sent = System.nanoTime();
+      client
+          .sendAsync(
+              operation.request(target, options.durability),
+              HttpResponse.BodyHandlers.discarding())
+          .whenComplete(
+              (response, failure) -> {
+                type.record(intended, sent, System.nanoTime());
+                if (failure != null || response.statusCode() / 100 != 2) {
+                  type.errors.increment();
+                }
+                inFlight.release();
+              });
+    }
+    inFlight.acquire(options.connections);
+  }
+}
@@ -0,0 +1,62 @@
+package com.nandakumar12.crd.app.load;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/** a single request of a workload against the data endpoint */
+class Operation {
+
+  enum Type {
+    READ,
+    CREATE,
+    DELETE
+  }
+
+  private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+  final Type type;
+
+  final String key;
+
+  /** the json body of a create, with its timeToLive */
+  final String body;
+
+  Operation(Type type, String key, String body) {
+    this.type = type;
+    this.key = key;
+    this.body = body;
+  }
+
+  HttpRequest request(String target) {
+    return request(target, null);
+  }
+
+  /**
+   * This method will build the http request of the operation
+   *
+   * @param target this is the base url of the application, without the trailing slash
+   * @param durability this is the durability of a create, null for the default of the application
+   * @return HttpRequest this is the request to be sent
+   */
+  HttpRequest request(String target, String durability) {
+    String url = target + "/api/crd/data?key=" + URLEncoder.encode(key, StandardCharsets.UTF_8);
+    if (type == Type.CREATE && durability != null) {
+      url += "&durability=" + durability;
+    }
+    HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(TIMEOUT);
+    switch (type) {
+      case CREATE:
+        return builder
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+      case DELETE:
+        return builder.DELETE().build();
+      default:
+        return builder.GET().build();
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package com.nandakumar12.crd.app.load;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The application started in its own jvm with the classpath of the load generator, on a free port
+ * and with an empty data store, so the client and the server don't share a heap or a collector.
+ * Closing it stops the application gracefully, like a shutdown of the service
+ */
+class ServerProcess implements AutoCloseable {
+
+  private static final long STARTUP_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+
+  private final Process process;
+
+  private final Path dataDirectory;
+
+  final String target;
+
+  private ServerProcess(Process process, Path dataDirectory, String target) {
+    this.process = process;
+    this.dataDirectory = dataDirectory;
+    this.target = target;
+  }
+
+  /**
+   * This method will start the application and wait until its health endpoint answers
+   *
+   * @param configuration this is the label and the properties of the application
+   * @param jvmArgs these are the jvm arguments of the application
+   * @param log this is the file the output of the application is written to
+   * @return ServerProcess this is the started application
+   * @throws IOException if the application can't be started or doesn't become healthy
+   * @throws InterruptedException if interrupted while waiting for the startup
+   */
+  static ServerProcess start(
+      LoadOptions.Configuration configuration, List<String> jvmArgs, Path log)
+      throws IOException, InterruptedException {
+    int port;
+    try (ServerSocket socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    Path dataDirectory = Files.createTempDirectory("crd-load");
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+    command.addAll(jvmArgs);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add("com.nandakumar12.crd.app.CrdApplication");
+    command.add("--server.port=" + port);
+    command.add("--application.file-path=" + dataDirectory);
+    for (Map.Entry<String, String> property : configuration.properties.entrySet()) {
+      command.add("--" + property.getKey() + "=" + property.getValue());
+    }
+    Process process =
+        new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(log.toFile())
+            .start();
+    ServerProcess server = new ServerProcess(process, dataDirectory, "http://localhost:" + port);
+    try {
+      server.awaitHealthy(log);
+    } catch (IOException | InterruptedException | RuntimeException e) {
+      server.close();
+      throw e;
+    }
+    return server;
+  }
+
+  private void awaitHealthy(Path log) throws IOException, InterruptedException {
+    HttpClient client = HttpClient.newHttpClient();
+    HttpRequest health = HttpRequest.newBuilder(URI.create(target + "/actuator/health")).build();
+    long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MS;
+    while (System.currentTimeMillis() < deadline) {
+      if (!process.isAlive()) {
+        throw new IOException("The application exited on startup, see " + log);
+      }
+      try {
+        if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+          return;
+        }
+      } catch (IOException e) {
+        // not listening yet
+      }
+      Thread.sleep(200);
+    }
+    throw new IOException("The application did not start within 2 minutes, see " + log);
+  }
+
+  @Override
+  public void close() throws IOException, InterruptedException {
+    process.destroy();
+    if (!process.waitFor(1, TimeUnit.MINUTES)) {
+      process.destroyForcibly().waitFor();
+    }
+    try (Stream<Path> paths = Files.walk(dataDirectory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.nandakumar12.crd.app.load;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** the requests of a load run, {@link #next} is called by many threads at once */
+interface Workload {
+
+  Operation next();
+
+  /**
+   * This method will create the workload of the options, the trace when one is given or else the
+   * synthetic mix
+   *
+   * @param options these are the options of the run
+   * @return Workload this is the workload
+   * @throws IOException if the trace can't be read
+   */
+  static Workload of(LoadOptions options) throws IOException {
+    return options.trace == null ? new Synthetic(options) : Replay.read(options.trace);
+  }
+
+  /** the lines of a trace in order, started over at the end */
+  class Replay implements Workload {
+
+    private final List<Operation> operations;
+
+    private final AtomicLong next = new AtomicLong();
+
+    Replay(List<Operation> operations) {
+      if (operations.isEmpty()) {
+        throw new IllegalArgumentException("The trace has no requests");
+      }
+      this.operations = operations;
+    }
+
+    static Replay read(Path trace) throws IOException {
+      List<Operation> operations = new ArrayList<>();
+      int number = 0;
+      for (String line : Files.readAllLines(trace, StandardCharsets.UTF_8)) {
+        number++;
+        if (line.isBlank()) {
+          continue;
+        }
+        try {
+          operations.add(parse(JsonParser.parseString(line).getAsJsonObject()));
+        } catch (RuntimeException e) {
+          throw new IllegalArgumentException(
+              "Invalid request on line " + number + " of " + trace + ": " + e.getMessage(), e);
+        }
+      }
+      return new Replay(operations);
+    }
+
+    private static Operation parse(JsonObject line) {
+      Operation.Type type =
+          Operation.Type.valueOf(line.get("op").getAsString().toUpperCase(Locale.ROOT));
+      String key = line.get("key").getAsString();
+      if (type != Operation.Type.CREATE) {
+        return new Operation(type, key, null);
+      }
+      JsonElement value = line.get("value");
+      JsonObject body = value == null ? new JsonObject() : value.getAsJsonObject().deepCopy();
+      if (line.has("timeToLive")) {
+        body.addProperty("timeToLive", line.get("timeToLive").getAsString());
+      }
+      return new Operation(type, key, body.toString());
+    }
+
+    @Override
+    public Operation next() {
+      return operations.get((int) (next.getAndIncrement() % operations.size()));
+    }
+  }
+
+  /**
+   * read, create and delete requests mixed by percentage over a fixed key space, the keys are
+   * drawn uniformly or from a Zipfian distribution (exponent 0.99) where a few hot keys take most
+   * of the requests
+   */
+  class Synthetic implements Workload {
+
+    private final LoadOptions options;
+
+    private final String value;
+
+    private final String valueWithTtl;
+
+    /** the cumulative probability of the key ranks, only for the Zipfian distribution */
+    private final double[] cumulative;
+
+    Synthetic(LoadOptions options) {
+      this.options = options;
+      StringBuilder json = new StringBuilder("{\"value\":\"");
+      while (json.length() < options.valueSize - 2) {
+        json.append('x');
+      }
+      value = json.append("\"}").toString();
+      valueWithTtl =
+          value.substring(0, value.length() - 1)
+              + ",\"timeToLive\":\""
+              + options.ttlSeconds
+              + "\"}";
+      if (options.distribution == LoadOptions.Distribution.ZIPFIAN) {
+        cumulative = new double[options.keys];
+        double sum = 0;
+        for (int i = 0; i < options.keys; i++) {
+          sum += 1 / Math.pow(i + 1, 0.99);
+          cumulative[i] = sum;
+        }
+      } else {
+        cumulative = null;
+      }
+    }
+
+    /** the create of a key without a timeToLive, for the preload */
+    Operation create(int key) {
+      return new Operation(Operation.Type.CREATE, key(key), value);
+    }
+
+    static String key(int key) {
+      return "key-" + key;
+    }
+
+    @Override
+    public Operation next() {
+      ThreadLocalRandom random = ThreadLocalRandom.current();
+      String key = key(draw(random));
+      int percent = random.nextInt(100);
+      if (percent < options.readPercent) {
+        return new Operation(Operation.Type.READ, key, null);
+      }
+      if (percent < options.readPercent + options.createPercent) {
+        return new Operation(
+            Operation.Type.CREATE,
+            key,
+            random.nextInt(100) < options.ttlPercent ? valueWithTtl : value);
+      }
+      return new Operation(Operation.Type.DELETE, key, null);
+    }
+
+    private int draw(ThreadLocalRandom random) {
+      if (cumulative == null) {
+        return random.nextInt(options.keys);
+      }
+      int rank =
+          Arrays.binarySearch(cumulative, random.nextDouble() * cumulative[cumulative.length - 1]);
+      return Math.min(rank < 0 ? -rank - 1 : rank, options.keys - 1);
+    }
+  }
+}
@@ -1,10 +1,20 @@
 package com.nandakumar12.crd.app.config;
 
+import com.nandakumar12.crd.app.service.DataService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This is the configuration class for the current application
@@ -15,22 +25,96 @@ import java.util.concurrent.Executor;
  */
 @Configuration
 public class AppConfig {
-  /**
-   * This is an method for multi-thread configuration
 
-   * @return Executor This method returns a executor which then can be used along
-   *                  with @Async to provide the thread configuration for the
-   *                  annotated method
+  @Value("${application.executor.mode:INLINE}")
+  ExecutorMode executorMode = ExecutorMode.INLINE;
+
+  // initialized as well for an AppConfig created without spring
+  @Value("${application.executor.core-pool-size:5}")
+  int corePoolSize = 5;
+
+  @Value("${application.executor.max-pool-size:25}")
+  int maxPoolSize = 25;
+
+  @Value("${application.executor.queue-capacity:100}")
+  int queueCapacity = 100;
+
+  /** the creates refused because the pool and the queue of the executor were full */
+  final LongAdder rejectedTasks = new LongAdder();
+
+  /**
+   * This is an method for multi-thread configuration, the kind of threads running the creates of
+   * {@link DataService#addData} is selected by {@code application.executor.mode}
+   *
+   * @return Executor This method returns the executor of the creates,
+   *                  {@link DataService#CALLING_THREAD} in INLINE mode
    *
    */
-  @Bean(name = "asyncExecutor")
-  public Executor asyncExecutor() {
+  @Bean(name = "createExecutor")
+  public Executor createExecutor() {
+    if (executorMode == ExecutorMode.INLINE) {
+      return DataService.CALLING_THREAD;
+    }
+    if (executorMode == ExecutorMode.VIRTUAL) {
+      return virtualThreadPerTaskExecutor();
+    }
     ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
-    executor.setCorePoolSize(5);
-    executor.setMaxPoolSize(25);
-    executor.setQueueCapacity(100);
+    executor.setCorePoolSize(corePoolSize);
+    executor.setMaxPoolSize(maxPoolSize);
+    executor.setQueueCapacity(queueCapacity);
     executor.setThreadNamePrefix("crd-thread-");
+    ThreadPoolExecutor.AbortPolicy abortPolicy = new ThreadPoolExecutor.AbortPolicy();
+    executor.setRejectedExecutionHandler(
+        (task, pool) -> {
+          rejectedTasks.increment();
+          abortPolicy.rejectedExecution(task, pool);
+        });
     executor.initialize();
     return executor;
   }
+
+  /**
+   * This method will publish the queue depth, the busy threads and the rejected tasks of the
+   * {@code createExecutor} as metrics, the virtual thread executor has no queue and never rejects
+   * and the INLINE mode has no executor
+   *
+   * @param createExecutor this is the executor of the creates
+   * @return MeterBinder This binds the metrics of the executor to the registry
+   */
+  @Bean
+  public MeterBinder createExecutorMetrics(@Qualifier("createExecutor") Executor createExecutor) {
+    return registry -> {
+      if (createExecutor == DataService.CALLING_THREAD) {
+        return;
+      }
+      if (createExecutor instanceof ThreadPoolTaskExecutor) {
+        ThreadPoolExecutor pool = ((ThreadPoolTaskExecutor) createExecutor).getThreadPoolExecutor();
+        Gauge.builder("crd.executor.queued", pool, executor -> executor.getQueue().size())
+            .description("The creates waiting for a thread of the executor")
+            .register(registry);
+        Gauge.builder("crd.executor.active", pool, ThreadPoolExecutor::getActiveCount)
+            .description("The threads of the executor running a create")
+            .register(registry);
+      }
+      FunctionCounter.builder("crd.executor.rejected", rejectedTasks, LongAdder::sum)
+          .description("The creates refused because the executor was full")
+          .register(registry);
+    };
+  }
+
+  /**
+   * This method will create an executor starting a virtual thread for every task, it is looked up
+   * reflectively so the application still builds and runs on the older JDKs in PLATFORM mode
+   *
+   * @return ExecutorService This is the virtual thread per task executor
+   * @throws IllegalStateException if the running JDK has no virtual threads
+   */
+  public static ExecutorService virtualThreadPerTaskExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(
+          "executor mode VIRTUAL needs JDK 21 or newer, running on " + Runtime.version(), e);
+    }
+  }
 }
@@ -0,0 +1,17 @@
+package com.nandakumar12.crd.app.config;
+
+/**
+ * This is the kind of threads running the creates of the rest api
+ *
+ * <p>INLINE runs a create on the request thread, PLATFORM hands it to a bounded pool of platform
+ * threads and VIRTUAL starts a new virtual thread for every create, which needs JDK 21 or newer at
+ * runtime. In every mode the thread only runs the create in memory, the wait for the disk is the
+ * future of the commit and holds no thread
+ *
+ * @author  Nandakumar12
+ */
+public enum ExecutorMode {
+  INLINE,
+  PLATFORM,
+  VIRTUAL
+}
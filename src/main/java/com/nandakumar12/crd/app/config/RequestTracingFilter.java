@@ -0,0 +1,91 @@
+package com.nandakumar12.crd.app.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This filter will trace a sample of the requests, a sampled request gets a trace id in the
+ * {@link MDC} so every line logged while it is handled can be told apart, and a single structured
+ * line with its method, path, status and duration is logged when it completes
+ *
+ * <p>a request which is not sampled costs a random number, nothing is logged for it. The keys are
+ * logged but never the values, which may be large and belong to the clients
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+@Component
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+  static final String TRACE_ID = "traceId";
+
+  @Value("${application.logging.trace-sample-rate:0.01}")
+  double sampleRate;
+
+  @Override
+  protected void doFilterInternal(
+      HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    if (sampleRate <= 0
+        || ThreadLocalRandom.current().nextDouble() >= sampleRate
+        || !log.isInfoEnabled()) {
+      filterChain.doFilter(request, response);
+      return;
+    }
+    String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    long start = System.nanoTime();
+    MDC.put(TRACE_ID, traceId);
+    try {
+      filterChain.doFilter(request, response);
+    } finally {
+      MDC.remove(TRACE_ID);
+    }
+    if (request.isAsyncStarted()) {
+      // the response of a create or a stream is completed on another thread
+      request
+          .getAsyncContext()
+          .addListener(
+              new AsyncListener() {
+                @Override
+                public void onComplete(AsyncEvent event) {
+                  trace(traceId, request, response, start);
+                }
+
+                @Override
+                public void onTimeout(AsyncEvent event) {}
+
+                @Override
+                public void onError(AsyncEvent event) {}
+
+                @Override
+                public void onStartAsync(AsyncEvent event) {}
+              });
+    } else {
+      trace(traceId, request, response, start);
+    }
+  }
+
+  private static void trace(
+      String traceId, HttpServletRequest request, HttpServletResponse response, long start) {
+    log.info(
+        "traceId={} method={} path={} key={} status={} micros={}",
+        traceId,
+        request.getMethod(),
+        request.getRequestURI(),
+        request.getParameter("key"),
+        response.getStatus(),
+        (System.nanoTime() - start) / 1000);
+  }
+}
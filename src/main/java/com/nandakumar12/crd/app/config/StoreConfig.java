@@ -0,0 +1,111 @@
+package com.nandakumar12.crd.app.config;
+
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import com.nandakumar12.crd.app.repository.CrdStore;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import com.nandakumar12.crd.app.repository.StorageMode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * This is the configuration of the data store of the web application, the {@link CrdStore} is
+ * opened from the {@code application.*} properties when the context starts and closed with it,
+ * the services use its {@link DataRepository}
+ *
+ * @author  Nandakumar12
+ */
+@Configuration
+public class StoreConfig {
+
+  @Value("${application.file-path:./}")
+  String filePath;
+
+  @Value("${application.wal.fsync-policy:GROUP_COMMIT}")
+  FsyncPolicy fsyncPolicy;
+
+  @Value("${application.wal.group-commit-interval-ms:50}")
+  long groupCommitIntervalMs;
+
+  @Value("${application.snapshot.interval-ms:60000}")
+  long snapshotIntervalMs;
+
+  @Value("${application.snapshot.min-log-bytes:1048576}")
+  long snapshotMinLogBytes;
+
+  @Value("${application.store.max-size-bytes:1073741824}")
+  long maxStoreSizeBytes;
+
+  @Value("${application.expiry.tick-ms:100}")
+  long expiryTickMs;
+
+  @Value("${application.expiry.budget-per-tick:10000}")
+  int expiryBudgetPerTick;
+
+  @Value("${application.store.mode:HEAP}")
+  StorageMode storageMode;
+
+  @Value("${application.store.off-heap-capacity-bytes:1073741824}")
+  long offHeapCapacityBytes;
+
+  @Value("${application.store.shards:1}")
+  int shardCount;
+
+  @Value("${application.store.recovery-threads:0}")
+  int recoveryThreads;
+
+  @Value("${application.store.memory-budget-bytes:0}")
+  long memoryBudgetBytes;
+
+  @Value("${application.store.eviction-policy:REJECT}")
+  EvictionMode evictionMode;
+
+  @Value("${application.store.cold-segment-bytes:67108864}")
+  int coldSegmentBytes;
+
+  @Value("${application.store.ordered-index:false}")
+  boolean orderedIndex;
+
+  /**
+   * This method will open the data store, spring closes it on shutdown which writes the final
+   * snapshots
+   *
+   * @return CrdStore this is the opened store
+   * @throws IOException if some error occurs during reading the data store files
+   * @throws DataStoreSizeExceeded if the size of the data store is greater than the quota
+   */
+  @Bean(destroyMethod = "close")
+  public CrdStore crdStore() throws IOException, DataStoreSizeExceeded {
+    return CrdStore.builder()
+        .filePath(filePath)
+        .fsyncPolicy(fsyncPolicy)
+        .groupCommitIntervalMs(groupCommitIntervalMs)
+        .snapshotIntervalMs(snapshotIntervalMs)
+        .snapshotMinLogBytes(snapshotMinLogBytes)
+        .maxStoreSizeBytes(maxStoreSizeBytes)
+        .expiryTickMs(expiryTickMs)
+        .expiryBudgetPerTick(expiryBudgetPerTick)
+        .storageMode(storageMode)
+        .offHeapCapacityBytes(offHeapCapacityBytes)
+        .shards(shardCount)
+        .recoveryThreads(recoveryThreads)
+        .memoryBudgetBytes(memoryBudgetBytes)
+        .evictionPolicy(evictionMode)
+        .coldSegmentBytes(coldSegmentBytes)
+        .orderedIndex(orderedIndex)
+        .open();
+  }
+
+  /**
+   * @param crdStore this is the opened data store
+   * @return DataRepository this is the repository of the store, closed with the store
+   */
+  @Bean(destroyMethod = "")
+  public DataRepository dataRepository(CrdStore crdStore) {
+    return crdStore.repository();
+  }
+}
@@ -2,55 +2,170 @@ package com.nandakumar12.crd.app.controller;
 
 import com.nandakumar12.crd.app.exception.*;
 import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.DataResponse;
+import com.nandakumar12.crd.app.model.RawData;
 import com.nandakumar12.crd.app.model.ResponseMessage;
+import com.nandakumar12.crd.app.model.StoreStats;
+import com.nandakumar12.crd.app.persistence.Durability;
 import com.nandakumar12.crd.app.repository.DataRepository;
+import com.nandakumar12.crd.app.service.BatchService;
 import com.nandakumar12.crd.app.service.DataParser;
 import com.nandakumar12.crd.app.service.DataService;
-import lombok.extern.slf4j.Slf4j;
+import com.nandakumar12.crd.app.service.ImportExportService;
+import com.nandakumar12.crd.app.service.ScanService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.concurrent.ExecutionException;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-@Slf4j
 @RestController
 @RequestMapping(value = "/api/crd")
 public class CrdController {
 
+  static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
   @Autowired DataService dataService;
 
   @Autowired
   DataParser dataParser;
 
+  @Autowired BatchService batchService;
+
+  @Autowired ImportExportService importExportService;
+
+  @Autowired ScanService scanService;
+
   @GetMapping(value = "/data")
   public ResponseEntity<Object> getData(@RequestParam("key") String key)
-      throws ValueExpiredException, DataNotFoundException, ExecutionException, InterruptedException{
-    Data data = dataService.readData(key).get();
-    return ResponseEntity.ok().body(data);
+      throws ValueExpiredException, DataNotFoundException {
+    Data data = dataService.readData(key);
+    return ResponseEntity.ok().body(DataResponse.from(data));
+  }
+
+  /**
+   * With {@code raw=true} the stored json value is the body itself instead of a string field of a
+   * {@link DataResponse}, the bytes are written as they are stored without going through Jackson.
+   * The ETag lets a client revalidate with If-None-Match, spring answers 304 when it matches
+   */
+  @GetMapping(value = "/data", params = "raw=true")
+  public ResponseEntity<byte[]> getRawData(@RequestParam("key") String key)
+      throws ValueExpiredException, DataNotFoundException {
+    RawData data = dataService.readRawData(key);
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .contentLength(data.getValue().length)
+        .eTag(data.etag())
+        .body(data.getValue());
   }
 
+  /**
+   * The data is stored in memory on the request thread and the future of its commit is returned
+   * to spring, so no thread waits while the write waits for the disk. The optional durability
+   * (none, buffered or fsync) decides when the response is sent, by default it follows
+   * {@code application.wal.fsync-policy}
+   */
   @PostMapping(value = "/data")
-  public ResponseEntity<Object> createData(
-      @RequestParam("key") String key, @RequestBody(required = false) String bodyData)
-          throws DuplicateKeyException, ExecutionException, InterruptedException, InvalidDataException, InvalidKeyException {
-    if (key.length() > 32) {
-      throw new InvalidKeyException("key size exceeds 32 chars");
-    }
-    log.info("The body data is "+bodyData);
+  public CompletableFuture<ResponseEntity<Object>> createData(
+      @RequestParam("key") String key,
+      @RequestParam(value = "durability", required = false) String durability,
+      @RequestBody(required = false) String bodyData)
+          throws DuplicateKeyException, InvalidDataException, InvalidKeyException,
+              DataStoreSizeExceeded {
+    dataParser.checkKey(key);
+    Durability parsedDurability = dataParser.parseDurability(durability);
     if (bodyData == null) {
-      return ResponseEntity.badRequest()
-          .body(new ResponseMessage("Required Data in body is missing"));
+      return CompletableFuture.completedFuture(
+          ResponseEntity.badRequest().body(new ResponseMessage("Required Data in body is missing")));
     } else {
-      return ResponseEntity.status(201).body(dataParser.parse(key, bodyData));
+      return dataService
+          .addData(key, dataParser.parse(bodyData), parsedDurability)
+          .thenApply(data -> ResponseEntity.status(201).body(DataResponse.from(data)));
     }
   }
 
   @DeleteMapping(value = "/data")
   public ResponseEntity<Object> deleteData(@RequestParam("key") String key)
-          throws DataNotFoundException, ValueExpiredException, ExecutionException, InterruptedException {
-    log.info("Exec controller");
-    return ResponseEntity.ok().body(dataService.deleteData(key).get());
+          throws DataNotFoundException, ValueExpiredException {
+    return ResponseEntity.ok().body(DataResponse.from(dataService.deleteData(key)));
+  }
+
+  /**
+   * The batch endpoints take many keys in one request, the body is read and the results are
+   * written as a stream by {@link BatchService}, one result per key
+   */
+  @PostMapping(value = "/data/batch")
+  public ResponseEntity<StreamingResponseBody> createBatch(HttpServletRequest request)
+      throws IOException {
+    InputStream body = request.getInputStream();
+    return streamed(out -> batchService.createAll(body, out));
+  }
+
+  @GetMapping(value = "/data/batch")
+  public ResponseEntity<StreamingResponseBody> getBatch(@RequestParam("keys") List<String> keys) {
+    return streamed(out -> batchService.readAll(keys, out));
   }
 
+  @DeleteMapping(value = "/data/batch")
+  public ResponseEntity<StreamingResponseBody> deleteBatch(HttpServletRequest request)
+      throws IOException {
+    InputStream body = request.getInputStream();
+    return streamed(out -> batchService.deleteAll(body, out));
+  }
+
+  /**
+   * A page of the entries whose key starts with the prefix in the order of the keys, the next key
+   * of the response is the start of the following page. The scan never blocks the writers, see
+   * {@link ScanService}
+   */
+  @GetMapping(value = "/data/scan")
+  public ResponseEntity<StreamingResponseBody> scanData(
+      @RequestParam(value = "prefix", defaultValue = "") String prefix,
+      @RequestParam(value = "start", required = false) String start,
+      @RequestParam(value = "limit", defaultValue = "100") int limit)
+      throws InvalidDataException {
+    scanService.checkScan(limit);
+    return streamed(out -> scanService.scan(prefix, start, limit, out));
+  }
+
+  /**
+   * The import reads the NDJSON body on the request thread, one line at a time
+   */
+  @PostMapping(value = "/import")
+  public ResponseEntity<Object> importData(HttpServletRequest request) throws IOException {
+    return ResponseEntity.ok().body(importExportService.importData(request.getInputStream()));
+  }
+
+  @GetMapping(value = "/export")
+  public ResponseEntity<StreamingResponseBody> exportData() {
+    return ResponseEntity.ok()
+        .contentType(NDJSON)
+        .body(
+            out -> {
+              try {
+                importExportService.exportData(out);
+              } catch (DataStoreSizeExceeded e) {
+                throw new IOException(e.getMessage(), e);
+              }
+            });
+  }
+
+  /**
+   * The memory used by the data store against its budget, the hit rate of the reads and the
+   * number of evicted keys and refused writes since the startup
+   */
+  @GetMapping(value = "/stats")
+  public ResponseEntity<StoreStats> getStats() {
+    return ResponseEntity.ok().body(dataService.readStats());
+  }
+
+  private static ResponseEntity<StreamingResponseBody> streamed(StreamingResponseBody body) {
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
 }
@@ -4,10 +4,13 @@ import com.nandakumar12.crd.app.exception.CrdException;
 import com.nandakumar12.crd.app.exception.InvalidDataException;
 import com.nandakumar12.crd.app.model.ResponseMessage;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.io.UncheckedIOException;
+
 
 /**
  * This class contains the logic for handling exceptions that arises
@@ -33,7 +36,7 @@ public class CustomExceptionHandler {
    */
   @ExceptionHandler(InvalidDataException.class)
   public ResponseEntity<Object> handleInvalidDataException(InvalidDataException exception) {
-    log.error(exception.getMessage());
+    log.debug("Invalid request: {}", exception.getMessage());
     return ResponseEntity.badRequest().body(new ResponseMessage(getCause(exception).getMessage()));
   }
 
@@ -49,10 +52,27 @@ public class CustomExceptionHandler {
    */
   @ExceptionHandler(CrdException.class)
   public ResponseEntity<Object> handleException(Exception exception) {
-    log.error(exception.getMessage());
+    log.debug("Request failed: {}", exception.getMessage());
     return ResponseEntity.ok().body(new ResponseMessage(getCause(exception).getMessage()));
   }
 
+  /**
+   * This method will take care of an {@link UncheckedIOException} that is thrown when the data
+   * can't be written to the disk, like a write whose commit in the write ahead log failed, such a
+   * write is not durable so the user gets an internal server error instead of the created data
+   *
+   * @param exception This is instance of the UncheckedIOException which will be automatically injected by spring
+   *
+   * @return ResponseEntity<Object> This is the responseEntity with an status code of 500 and appropriate error message
+   *
+   */
+  @ExceptionHandler(UncheckedIOException.class)
+  public ResponseEntity<Object> handleStorageException(UncheckedIOException exception) {
+    log.error("Unable to store the data", exception);
+    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+        .body(new ResponseMessage("Unable to store the data: " + exception.getMessage()));
+  }
+
   Throwable getCause(Throwable e){
     Throwable cause = null;
     Throwable res = e;
@@ -0,0 +1,120 @@
+package com.nandakumar12.crd.app.eviction;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This is a deque of keys from the least to the most recently used with their weights, a key can
+ * be found, moved to the most recent end and removed in O(1)
+ *
+ * @author  Nandakumar12
+ */
+final class AccessOrderDeque {
+
+  private final Map<String, Node> nodes = new HashMap<>();
+  private Node first;
+  private Node last;
+  private long weight;
+
+  private static final class Node {
+    final String key;
+    long weight;
+    Node previous;
+    Node next;
+
+    Node(String key, long weight) {
+      this.key = key;
+      this.weight = weight;
+    }
+  }
+
+  boolean contains(String key) {
+    return nodes.containsKey(key);
+  }
+
+  boolean isEmpty() {
+    return first == null;
+  }
+
+  /** @return long this is the total weight of the keys */
+  long weight() {
+    return weight;
+  }
+
+  /** @return String this is the least recently used key, null if empty */
+  String first() {
+    return first == null ? null : first.key;
+  }
+
+  /** @return String this is the most recently used key, null if empty */
+  String last() {
+    return last == null ? null : last.key;
+  }
+
+  /** @return long this is the weight of the key, 0 if it is not present */
+  long weightOf(String key) {
+    Node node = nodes.get(key);
+    return node == null ? 0 : node.weight;
+  }
+
+  /** adds the key or updates its weight, the key becomes the most recently used */
+  void add(String key, long keyWeight) {
+    Node node = nodes.get(key);
+    if (node == null) {
+      node = new Node(key, keyWeight);
+      nodes.put(key, node);
+    } else {
+      weight -= node.weight;
+      node.weight = keyWeight;
+      unlink(node);
+    }
+    weight += keyWeight;
+    link(node);
+  }
+
+  /** @return boolean true if the key is present and became the most recently used */
+  boolean touch(String key) {
+    Node node = nodes.get(key);
+    if (node == null) {
+      return false;
+    }
+    unlink(node);
+    link(node);
+    return true;
+  }
+
+  /** @return long this is the weight of the removed key, -1 if it was not present */
+  long remove(String key) {
+    Node node = nodes.remove(key);
+    if (node == null) {
+      return -1;
+    }
+    unlink(node);
+    weight -= node.weight;
+    return node.weight;
+  }
+
+  private void link(Node node) {
+    node.previous = last;
+    node.next = null;
+    if (last == null) {
+      first = node;
+    } else {
+      last.next = node;
+    }
+    last = node;
+  }
+
+  private void unlink(Node node) {
+    if (node.previous == null) {
+      first = node.next;
+    } else {
+      node.previous.next = node.next;
+    }
+    if (node.next == null) {
+      last = node.previous;
+    } else {
+      node.next.previous = node.previous;
+    }
+  }
+}
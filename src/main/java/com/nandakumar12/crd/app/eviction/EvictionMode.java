@@ -0,0 +1,20 @@
+package com.nandakumar12.crd.app.eviction;
+
+/**
+ * This enum decides what a shard does with a write that doesn't fit its {@link MemoryBudget}
+ *
+ * @author  Nandakumar12
+ */
+public enum EvictionMode {
+  /** the write is refused, the stored data is never removed to make room */
+  REJECT,
+  /** the least recently used keys are removed */
+  LRU,
+  /** the least frequently used keys are removed */
+  LFU,
+  /**
+   * a small LRU window takes the new keys, a key leaving the window is kept only if it is used
+   * more often than the key it would replace, so a scan of keys read once can't flush the hot keys
+   */
+  TINY_LFU
+}
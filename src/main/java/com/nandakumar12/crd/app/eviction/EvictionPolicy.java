@@ -0,0 +1,27 @@
+package com.nandakumar12.crd.app.eviction;
+
+/**
+ * This is the order in which the keys of a shard are evicted, it is told about every write, read
+ * and removal of a key and picks the next key to be evicted
+ *
+ * <p>the implementations are not thread safe, they are guarded by the lock of {@link MemoryBudget}
+ *
+ * @author  Nandakumar12
+ */
+interface EvictionPolicy {
+
+  /**
+   * @param key this is the key that was stored or overwritten
+   * @param weight this is the approximate size of the entry in bytes
+   */
+  void onWrite(String key, long weight);
+
+  /** @param key this is the key that was read */
+  void onRead(String key);
+
+  /** @param key this is the key that was removed, it may not be known to the policy */
+  void onRemove(String key);
+
+  /** @return String this is the key to be evicted next, null if the policy holds no key */
+  String victim();
+}
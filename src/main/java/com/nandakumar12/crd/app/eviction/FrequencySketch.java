@@ -0,0 +1,74 @@
+package com.nandakumar12.crd.app.eviction;
+
+/**
+ * This is a count-min sketch of how often the keys were used, it holds 4 saturating 4 bit
+ * counters per key in a fixed table instead of a counter per key, so it also remembers the keys
+ * which are not stored any more. All the counters are halved once the table has seen 10 times
+ * its width of increments, so the old popularity fades away
+ *
+ * @author  Nandakumar12
+ */
+final class FrequencySketch {
+
+  private static final int DEPTH = 4;
+  private static final int MAX_COUNT = 15;
+  private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+  private final byte[][] table = new byte[DEPTH][];
+  private final int shift;
+  private final long sampleSize;
+  private long additions;
+
+  /**
+   * @param expectedKeys this is about the number of keys the sketch has to tell apart
+   */
+  FrequencySketch(long expectedKeys) {
+    int width = Integer.highestOneBit((int) Math.max(64, Math.min(1 << 20, expectedKeys)) * 2 - 1);
+    for (int i = 0; i < DEPTH; i++) {
+      table[i] = new byte[width];
+    }
+    shift = 32 - Integer.numberOfTrailingZeros(width);
+    sampleSize = 10L * width;
+  }
+
+  /** @param key this is the key that was used */
+  void increment(String key) {
+    int hash = spread(key.hashCode());
+    boolean added = false;
+    for (int i = 0; i < DEPTH; i++) {
+      int index = (hash * SEEDS[i]) >>> shift;
+      if (table[i][index] < MAX_COUNT) {
+        table[i][index]++;
+        added = true;
+      }
+    }
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  /** @return int this is the estimated number of uses of the key, at most 15 */
+  int frequency(String key) {
+    int hash = spread(key.hashCode());
+    int frequency = MAX_COUNT;
+    for (int i = 0; i < DEPTH; i++) {
+      frequency = Math.min(frequency, table[i][(hash * SEEDS[i]) >>> shift]);
+    }
+    return frequency;
+  }
+
+  private void reset() {
+    for (byte[] row : table) {
+      for (int i = 0; i < row.length; i++) {
+        row[i] >>= 1;
+      }
+    }
+    additions /= 2;
+  }
+
+  private static int spread(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x45D9F3B;
+    return hash ^ (hash >>> 16);
+  }
+}
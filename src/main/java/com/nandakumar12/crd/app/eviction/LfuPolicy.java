@@ -0,0 +1,79 @@
+package com.nandakumar12.crd.app.eviction;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+/**
+ * This policy evicts the key with the fewest writes and reads, the keys of the same count are
+ * evicted from the least recently used. The keys are kept in one bucket per count so every
+ * operation is O(1)
+ *
+ * @author  Nandakumar12
+ */
+final class LfuPolicy implements EvictionPolicy {
+
+  private final Map<String, Integer> counts = new HashMap<>();
+  private final Map<Integer, LinkedHashSet<String>> buckets = new HashMap<>();
+  private int minCount;
+
+  @Override
+  public void onWrite(String key, long weight) {
+    increment(key, true);
+  }
+
+  @Override
+  public void onRead(String key) {
+    increment(key, false);
+  }
+
+  private void increment(String key, boolean add) {
+    Integer count = counts.get(key);
+    if (count == null) {
+      if (add) {
+        counts.put(key, 1);
+        buckets.computeIfAbsent(1, c -> new LinkedHashSet<>()).add(key);
+        minCount = 1;
+      }
+      return;
+    }
+    if (count == Integer.MAX_VALUE) {
+      return;
+    }
+    leave(key, count);
+    counts.put(key, count + 1);
+    buckets.computeIfAbsent(count + 1, c -> new LinkedHashSet<>()).add(key);
+  }
+
+  @Override
+  public void onRemove(String key) {
+    Integer count = counts.remove(key);
+    if (count != null) {
+      leave(key, count);
+    }
+  }
+
+  private void leave(String key, int count) {
+    LinkedHashSet<String> bucket = buckets.get(count);
+    bucket.remove(key);
+    if (bucket.isEmpty()) {
+      buckets.remove(count);
+      if (count == minCount) {
+        minCount = buckets.isEmpty() ? 0 : count + 1;
+      }
+    }
+  }
+
+  @Override
+  public String victim() {
+    if (counts.isEmpty()) {
+      return null;
+    }
+    if (!buckets.containsKey(minCount)) {
+      // a removal emptied the smallest bucket, the next count is not always the smallest one
+      minCount = Collections.min(buckets.keySet());
+    }
+    return buckets.get(minCount).iterator().next();
+  }
+}
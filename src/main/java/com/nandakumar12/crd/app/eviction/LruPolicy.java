@@ -0,0 +1,31 @@
+package com.nandakumar12.crd.app.eviction;
+
+/**
+ * This policy evicts the least recently written or read key
+ *
+ * @author  Nandakumar12
+ */
+final class LruPolicy implements EvictionPolicy {
+
+  private final AccessOrderDeque keys = new AccessOrderDeque();
+
+  @Override
+  public void onWrite(String key, long weight) {
+    keys.add(key, weight);
+  }
+
+  @Override
+  public void onRead(String key) {
+    keys.touch(key);
+  }
+
+  @Override
+  public void onRemove(String key) {
+    keys.remove(key);
+  }
+
+  @Override
+  public String victim() {
+    return keys.first();
+  }
+}
@@ -0,0 +1,225 @@
+package com.nandakumar12.crd.app.eviction;
+
+import com.nandakumar12.crd.app.model.Data;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This is the memory budget of one shard, it tracks the approximate bytes held by the entries of
+ * the shard and the order in which they are evicted, and counts the hits, misses, evictions and
+ * rejected writes
+ *
+ * <p>the repository calls {@link #written} and {@link #removed} inside the map's compute of the
+ * key, so the bytes of a key are accounted in the same order as its changes. The policy is guarded
+ * by its own lock and the locks are always taken in the order key of the map, then policy lock:
+ * {@link #written} and {@link #removed} take the policy lock while the key is locked, and
+ * {@link #victim} is called with no key locked and releases the policy lock before the victim is
+ * locked to be evicted, so the two never wait for each other in a cycle. A read records its access
+ * only when the policy lock is free so the reads never wait for each other
+ *
+ * @author  Nandakumar12
+ */
+public final class MemoryBudget {
+
+  /** the approximate bytes of an entry besides its key and value, the map node and the objects */
+  static final long ENTRY_OVERHEAD = 128;
+
+  private final long limitBytes;
+  private final EvictionMode mode;
+  private final EvictionPolicy policy;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final AtomicLong usedBytes = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private final LongAdder rejections = new LongAdder();
+  private final LongAdder coldReads = new LongAdder();
+
+  /**
+   * @param limitBytes this is the maximum approximate bytes of the entries, 0 for no limit
+   * @param mode this decides what happens to a write that doesn't fit
+   */
+  public MemoryBudget(long limitBytes, EvictionMode mode) {
+    this.limitBytes = limitBytes;
+    this.mode = mode;
+    this.policy = limitBytes > 0 ? policyOf(mode, limitBytes) : null;
+  }
+
+  private static EvictionPolicy policyOf(EvictionMode mode, long limitBytes) {
+    switch (mode) {
+      case LRU:
+        return new LruPolicy();
+      case LFU:
+        return new LfuPolicy();
+      case TINY_LFU:
+        // sized for the most entries the budget can hold, the sketch caps its own width
+        return new TinyLfuPolicy(limitBytes, limitBytes / ENTRY_OVERHEAD);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * This method will return the approximate bytes held by an entry, the chars of the strings are
+   * counted as bytes like the compact strings of the JVM and the UTF-8 values of {@code OFF_HEAP}
+   *
+   * @param key this is the key of the entry
+   * @param value this is the data of the entry
+   * @return long this is the weight of the entry
+   */
+  public static long weigh(String key, Data value) {
+    return ENTRY_OVERHEAD + key.length() + value.getValue().length();
+  }
+
+  /** @return boolean true if the writes that don't fit make room by evicting other keys */
+  public boolean isEvicting() {
+    return policy != null;
+  }
+
+  /**
+   * @param bytes this is the number of bytes a write adds
+   * @return boolean true if the bytes fit the budget
+   */
+  public boolean fits(long bytes) {
+    return limitBytes <= 0 || usedBytes.get() + bytes <= limitBytes;
+  }
+
+  /**
+   * This method will account a stored key, it is called while the key is locked
+   *
+   * @param key this is the key that was stored
+   * @param previous this is the data the key held before, null if it was free
+   * @param value this is the data stored
+   */
+  public void written(String key, Data previous, Data value) {
+    long weight = weigh(key, value);
+    usedBytes.addAndGet(previous == null ? weight : weight - weigh(key, previous));
+    if (policy != null) {
+      lock.lock();
+      try {
+        policy.onWrite(key, weight);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * This method will account a removed key, it is called while the key is locked
+   *
+   * @param key this is the key that was removed
+   * @param previous this is the data the key held
+   */
+  public void removed(String key, Data previous) {
+    usedBytes.addAndGet(-weigh(key, previous));
+    forget(key);
+  }
+
+  /**
+   * This method will drop a key from the eviction order without changing the used bytes, for a
+   * victim that was removed by someone else before it could be evicted
+   *
+   * @param key this is the key that is no longer stored
+   */
+  public void forget(String key) {
+    if (policy != null) {
+      lock.lock();
+      try {
+        policy.onRemove(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * This method will count a read and record the access of a found key, the access is skipped
+   * while another thread holds the policy, which only makes the eviction order less exact
+   *
+   * @param key this is the key that was read
+   * @param hit true if the key was found
+   */
+  public void read(String key, boolean hit) {
+    if (!hit) {
+      misses.increment();
+      return;
+    }
+    hits.increment();
+    if (policy != null && lock.tryLock()) {
+      try {
+        policy.onRead(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * @return String this is the key to be evicted next, null if there is none, it must be called
+   *     with no key of the map locked
+   */
+  public String victim() {
+    if (policy == null) {
+      return null;
+    }
+    lock.lock();
+    try {
+      return policy.victim();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * counts a read of a key that was found on the disk instead of the memory, it counts as a miss
+   * of the memory
+   */
+  public void faulted() {
+    misses.increment();
+    coldReads.increment();
+  }
+
+  /** counts an evicted key */
+  public void evicted() {
+    evictions.increment();
+  }
+
+  /** counts a write that was refused because it didn't fit */
+  public void rejected() {
+    rejections.increment();
+  }
+
+  public long getLimitBytes() {
+    return limitBytes;
+  }
+
+  public EvictionMode getMode() {
+    return mode;
+  }
+
+  public long getUsedBytes() {
+    return usedBytes.get();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public long getRejections() {
+    return rejections.sum();
+  }
+
+  public long getColdReads() {
+    return coldReads.sum();
+  }
+}
@@ -0,0 +1,103 @@
+package com.nandakumar12.crd.app.eviction;
+
+/**
+ * This is a W-TinyLFU policy, the new keys enter a small LRU window and a key leaving the window
+ * joins the probation segment of the main area. When a key has to be evicted, the least recently
+ * used key of the window is compared with the least recently used key of probation by the {@link
+ * FrequencySketch} and the less popular one is evicted. A key read while on probation is
+ * promoted to the protected segment, the least recently used protected keys are demoted back
+ * to probation
+ *
+ * <p>the segments are sized by the weight of their keys, the window holds about 1% and the
+ * protected segment at most 80% of the budget
+ *
+ * @author  Nandakumar12
+ */
+final class TinyLfuPolicy implements EvictionPolicy {
+
+  private final AccessOrderDeque window = new AccessOrderDeque();
+  private final AccessOrderDeque probation = new AccessOrderDeque();
+  private final AccessOrderDeque protectedKeys = new AccessOrderDeque();
+  private final FrequencySketch sketch;
+  private final long maxWindow;
+  private final long maxMain;
+  private final long maxProtected;
+
+  /**
+   * @param limitBytes this is the memory budget of the shard
+   * @param expectedKeys this is about the number of keys that fit the budget
+   */
+  TinyLfuPolicy(long limitBytes, long expectedKeys) {
+    sketch = new FrequencySketch(expectedKeys);
+    maxWindow = Math.max(1, limitBytes / 100);
+    maxMain = limitBytes - maxWindow;
+    maxProtected = maxMain * 8 / 10;
+  }
+
+  @Override
+  public void onWrite(String key, long weight) {
+    sketch.increment(key);
+    if (window.contains(key)) {
+      window.add(key, weight);
+    } else if (probation.contains(key)) {
+      probation.remove(key);
+      promote(key, weight);
+    } else if (protectedKeys.contains(key)) {
+      protectedKeys.add(key, weight);
+      demoteProtected();
+    } else {
+      window.add(key, weight);
+    }
+    // the keys leaving the window join probation, the main area is trimmed by the evictions
+    while (window.weight() > maxWindow && !key.equals(window.first())) {
+      String first = window.first();
+      probation.add(first, window.remove(first));
+    }
+  }
+
+  @Override
+  public void onRead(String key) {
+    sketch.increment(key);
+    if (window.touch(key) || protectedKeys.touch(key)) {
+      return;
+    }
+    long weight = probation.remove(key);
+    if (weight >= 0) {
+      promote(key, weight);
+    }
+  }
+
+  private void promote(String key, long weight) {
+    protectedKeys.add(key, weight);
+    demoteProtected();
+  }
+
+  private void demoteProtected() {
+    while (protectedKeys.weight() > maxProtected && protectedKeys.first() != null) {
+      String first = protectedKeys.first();
+      probation.add(first, protectedKeys.remove(first));
+    }
+  }
+
+  @Override
+  public void onRemove(String key) {
+    if (window.remove(key) < 0 && probation.remove(key) < 0) {
+      protectedKeys.remove(key);
+    }
+  }
+
+  @Override
+  public String victim() {
+    // the next write pushes the least recently used key of the window into the main area, so it
+    // has to earn its place against the least recently used key of probation
+    String candidate = window.first();
+    String victim = probation.isEmpty() ? protectedKeys.first() : probation.first();
+    if (victim == null) {
+      return candidate;
+    }
+    if (candidate == null || probation.weight() + protectedKeys.weight() > maxMain) {
+      return victim;
+    }
+    return sketch.frequency(candidate) > sketch.frequency(victim) ? victim : candidate;
+  }
+}
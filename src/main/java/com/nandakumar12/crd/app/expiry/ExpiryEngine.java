@@ -0,0 +1,139 @@
+package com.nandakumar12.crd.app.expiry;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class will remove the expired data in the background instead of waiting for a client to
+ * read it, the keys are ordered by their expiry in a {@link HierarchicalTimingWheel}
+ *
+ * <p>the request threads only push the key into a lock free queue, a single background thread
+ * moves the queued keys into the wheel, advances it every tick and expires at most the configured
+ * budget of keys per tick, the keys over the budget wait in a backlog for the next tick
+ *
+ * <p>an overwritten or deleted key is not removed from the wheel, when it becomes due the
+ * {@link Expirer} checks the expiry against the current value and ignores it
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+public class ExpiryEngine implements Closeable {
+
+  private final Expirer expirer;
+  private final int budgetPerTick;
+  private final HierarchicalTimingWheel wheel;
+  private final Queue<HierarchicalTimingWheel.Timer> pending = new ConcurrentLinkedQueue<>();
+  private final ArrayDeque<HierarchicalTimingWheel.Timer> backlog = new ArrayDeque<>();
+  private final ScheduledExecutorService scheduler;
+
+  private final AtomicLong expiredCount = new AtomicLong();
+  private volatile long backlogSize;
+  private volatile long scheduledSize;
+  private volatile long lagMillis;
+
+  /**
+   * This callback will remove a key if it is still stored with the given expiry
+   *
+   * @author  Nandakumar12
+   */
+  @FunctionalInterface
+  public interface Expirer {
+    boolean expire(String key, long expiresAt);
+  }
+
+  /**
+   * @param tickMs this is the resolution of the expiry in millis
+   * @param budgetPerTick this is the maximum number of keys expired in one tick
+   * @param expirer this removes a due key from the data store
+   */
+  public ExpiryEngine(long tickMs, int budgetPerTick, Expirer expirer) {
+    this.expirer = expirer;
+    this.budgetPerTick = budgetPerTick;
+    this.wheel = new HierarchicalTimingWheel(tickMs, System.currentTimeMillis());
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "crd-expiry");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleWithFixedDelay(this::safeTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method will schedule the removal of the key at its expiry, it is safe to call from any
+   * thread and never blocks
+   *
+   * @param key this is the key of the data
+   * @param expiresAt this is the expiry timestamp in millis, 0 if the data never expires
+   */
+  public void schedule(String key, long expiresAt) {
+    if (expiresAt != 0) {
+      pending.add(new HierarchicalTimingWheel.Timer(key, expiresAt));
+    }
+  }
+
+  private void safeTick() {
+    try {
+      tick(System.currentTimeMillis());
+    } catch (Exception e) {
+      log.error("Expiry tick failed", e);
+    }
+  }
+
+  void tick(long currentTimeMillis) {
+    HierarchicalTimingWheel.Timer timer;
+    while ((timer = pending.poll()) != null) {
+      wheel.add(timer);
+    }
+    wheel.advance(currentTimeMillis, backlog::add);
+    int budget = budgetPerTick;
+    while (budget-- > 0 && (timer = backlog.poll()) != null) {
+      if (expirer.expire(timer.key, timer.expiresAt)) {
+        expiredCount.incrementAndGet();
+      }
+    }
+    HierarchicalTimingWheel.Timer oldest = backlog.peek();
+    lagMillis = oldest == null ? 0 : currentTimeMillis - oldest.expiresAt;
+    backlogSize = backlog.size();
+    scheduledSize = wheel.size();
+  }
+
+  /** @return long this is the number of keys removed by the engine */
+  public long getExpiredCount() {
+    return expiredCount.get();
+  }
+
+  /** @return long this is the number of due keys waiting for the budget of a next tick */
+  public long getBacklogSize() {
+    return backlogSize;
+  }
+
+  /** @return long this is the number of keys waiting in the wheel */
+  public long getScheduledSize() {
+    return scheduledSize;
+  }
+
+  /** @return long this is how long the oldest due key in the backlog is past its expiry */
+  public long getLagMillis() {
+    return lagMillis;
+  }
+
+  @Override
+  public void close() {
+    scheduler.shutdown();
+    try {
+      scheduler.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.nandakumar12.crd.app.expiry;
+
+import java.util.function.Consumer;
+
+/**
+ * This is a hierarchical timing wheel which holds the keys by their expiry timestamp, adding a key
+ * and handing it out when it is due cost O(1) amortized per key whatever the number of keys is
+ *
+ * <p>the wheel has {@value #LEVELS} levels of {@value #SLOTS} slots, a slot of level 0 spans one
+ * tick and a slot of level n spans 64^n ticks. A key is placed on the lowest level whose span
+ * still separates its tick from the current one, and it is moved down a level each time the wheel
+ * reaches its slot, so every key is touched at most once per level. The keys too far in the future
+ * for the top level wait in an overflow list which is redistributed once per top level round
+ *
+ * <p>a timer is placed on the first tick after its expiry, not on the tick its expiry falls in, so
+ * it is handed out only once the data is strictly past its expiry and never a tick too early
+ *
+ * <p>this class is not thread safe, it is driven by the single thread of {@link ExpiryEngine}
+ *
+ * @author  Nandakumar12
+ */
+class HierarchicalTimingWheel {
+
+  static final int LEVELS = 4;
+  static final int BITS = 6;
+  static final int SLOTS = 1 << BITS;
+  private static final int MASK = SLOTS - 1;
+
+  private final long tickMs;
+  private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+  private Timer overflow;
+  private Timer due;
+  private long currentTick;
+  private long size;
+
+  /**
+   * This is an entry of the wheel, the entries of a slot are chained through {@link Timer#next}
+   *
+   * @author  Nandakumar12
+   */
+  static final class Timer {
+    final String key;
+    final long expiresAt;
+    Timer next;
+
+    Timer(String key, long expiresAt) {
+      this.key = key;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * @param tickMs this is the resolution of the wheel in millis
+   * @param currentTimeMillis this is the time the wheel starts at
+   */
+  HierarchicalTimingWheel(long tickMs, long currentTimeMillis) {
+    this.tickMs = tickMs;
+    this.currentTick = currentTimeMillis / tickMs;
+  }
+
+  /**
+   * This method will add a timer, a timer that is already due is handed out on the next advance
+   *
+   * @param timer this is the key and its expiry timestamp
+   */
+  void add(Timer timer) {
+    size++;
+    place(timer);
+  }
+
+  private void place(Timer timer) {
+    long tick = timer.expiresAt / tickMs + 1;
+    if (tick <= currentTick) {
+      timer.next = due;
+      due = timer;
+      return;
+    }
+    for (int level = 0; level < LEVELS; level++) {
+      if (((tick ^ currentTick) >>> (BITS * (level + 1))) == 0) {
+        int slot = (int) (tick >>> (BITS * level)) & MASK;
+        timer.next = slots[level][slot];
+        slots[level][slot] = timer;
+        return;
+      }
+    }
+    timer.next = overflow;
+    overflow = timer;
+  }
+
+  /**
+   * This method will move the wheel up to the given time and hand out every timer that became due
+   *
+   * @param currentTimeMillis this is the time to move the wheel to
+   * @param expired this receives the timers that are due
+   */
+  void advance(long currentTimeMillis, Consumer<Timer> expired) {
+    long targetTick = currentTimeMillis / tickMs;
+    drainDue(expired);
+    while (currentTick < targetTick) {
+      currentTick++;
+      if ((currentTick & ((1L << (BITS * LEVELS)) - 1)) == 0) {
+        Timer timers = overflow;
+        overflow = null;
+        replace(timers);
+      }
+      for (int level = LEVELS - 1; level > 0; level--) {
+        if ((currentTick & ((1L << (BITS * level)) - 1)) == 0) {
+          int slot = (int) (currentTick >>> (BITS * level)) & MASK;
+          Timer timers = slots[level][slot];
+          slots[level][slot] = null;
+          replace(timers);
+        }
+      }
+      int slot = (int) currentTick & MASK;
+      Timer timers = slots[0][slot];
+      slots[0][slot] = null;
+      while (timers != null) {
+        Timer next = timers.next;
+        timers.next = null;
+        size--;
+        expired.accept(timers);
+        timers = next;
+      }
+      drainDue(expired);
+    }
+  }
+
+  private void replace(Timer timers) {
+    while (timers != null) {
+      Timer next = timers.next;
+      place(timers);
+      timers = next;
+    }
+  }
+
+  private void drainDue(Consumer<Timer> expired) {
+    while (due != null) {
+      Timer timer = due;
+      due = timer.next;
+      timer.next = null;
+      size--;
+      expired.accept(timer);
+    }
+  }
+
+  /** @return long this is the number of timers in the wheel */
+  long size() {
+    return size;
+  }
+}
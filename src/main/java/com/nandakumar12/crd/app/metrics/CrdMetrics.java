@@ -0,0 +1,84 @@
+package com.nandakumar12.crd.app.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class holds the latency timers of the request path, every timer is registered once so a
+ * request reads the clock twice and records into its timer without looking it up by its name
+ * and tags
+ *
+ * <p>the percentiles are computed from an HdrHistogram by the registry, they are configured by
+ * {@code management.metrics.distribution.percentiles.crd} like any other spring boot timer
+ *
+ * @author  Nandakumar12
+ */
+@Component
+public class CrdMetrics {
+
+  /** the timers of the services created without spring, they record into no registry */
+  public static final CrdMetrics NONE = new CrdMetrics(new CompositeMeterRegistry());
+
+  private final Timer read;
+  private final Timer rawRead;
+  private final Timer create;
+  private final Timer delete;
+  private final Timer importLine;
+  private final Timer parse;
+
+  /**
+   * @param registry this is the registry the timers are registered in
+   */
+  public CrdMetrics(MeterRegistry registry) {
+    read = request(registry, "read");
+    rawRead = request(registry, "raw_read");
+    create = request(registry, "create");
+    delete = request(registry, "delete");
+    importLine = request(registry, "import");
+    parse =
+        Timer.builder("crd.parse")
+            .description("The time taken to validate a json value and extract its timeToLive")
+            .register(registry);
+  }
+
+  private static Timer request(MeterRegistry registry, String operation) {
+    return Timer.builder("crd.requests")
+        .description("The time taken by the operations of the data service")
+        .tag("operation", operation)
+        .register(registry);
+  }
+
+  /** @param startNanos this is the {@link System#nanoTime()} the read started at */
+  public void recordRead(long startNanos) {
+    read.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** @param startNanos this is the {@link System#nanoTime()} the raw read started at */
+  public void recordRawRead(long startNanos) {
+    rawRead.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** @param startNanos this is the {@link System#nanoTime()} the create started at */
+  public void recordCreate(long startNanos) {
+    create.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** @param startNanos this is the {@link System#nanoTime()} the delete started at */
+  public void recordDelete(long startNanos) {
+    delete.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** @param startNanos this is the {@link System#nanoTime()} the import of a line started at */
+  public void recordImport(long startNanos) {
+    importLine.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** @param startNanos this is the {@link System#nanoTime()} the parse started at */
+  public void recordParse(long startNanos) {
+    parse.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+}
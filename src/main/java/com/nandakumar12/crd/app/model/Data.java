@@ -1,7 +1,5 @@
 package com.nandakumar12.crd.app.model;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -10,7 +8,9 @@ import lombok.Setter;
 /**
  * This is the model of data that is to be persisted in the data store
  * {@link Data#value} will hold the json value
- * {@link Data#timeToLive} will hold the expiry timestamp of the data
+ * {@link Data#expiresAt} will hold the expiry timestamp of the data in millis, 0 if it never expires
+ *
+ * <p>this model is not exposed to the clients, the responses are built with {@link DataResponse}
  *
  * @author  Nandakumar12
  */
@@ -19,10 +19,8 @@ import lombok.Setter;
 @AllArgsConstructor
 @NoArgsConstructor
 @lombok.Data
-@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Data {
   String value;
 
-  @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
-  String timeToLive;
+  long expiresAt;
 }
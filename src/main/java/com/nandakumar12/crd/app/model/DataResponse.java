@@ -0,0 +1,26 @@
+package com.nandakumar12.crd.app.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * This is the model of data that is sent to the clients, only the json value is exposed and the
+ * expiry of the stored {@link Data} is kept internal
+ *
+ * @author  Nandakumar12
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DataResponse {
+  String value;
+
+  public static DataResponse from(Data data) {
+    return new DataResponse(data.getValue());
+  }
+}
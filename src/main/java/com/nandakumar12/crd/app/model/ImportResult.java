@@ -0,0 +1,22 @@
+package com.nandakumar12.crd.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * This is the model of the response of a bulk import, the errors hold the line number and the
+ * message of the first lines which could not be imported
+ *
+ * @author  Nandakumar12
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class ImportResult {
+  long imported;
+  long failed;
+  List<String> errors;
+}
@@ -0,0 +1,39 @@
+package com.nandakumar12.crd.app.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32C;
+
+/**
+ * This is the stored json value of a {@link Data} as UTF-8 bytes, it is written to the clients
+ * as it is instead of being wrapped in a {@link DataResponse}
+ * {@link RawData#value} will hold the UTF-8 bytes of the json value
+ * {@link RawData#expiresAt} will hold the expiry timestamp of the data in millis, 0 if it never expires
+ *
+ * @author  Nandakumar12
+ */
+@Getter
+@AllArgsConstructor
+public class RawData {
+  byte[] value;
+
+  long expiresAt;
+
+  public static RawData from(Data data) {
+    return new RawData(data.getValue().getBytes(StandardCharsets.UTF_8), data.getExpiresAt());
+  }
+
+  /**
+   * This method will derive a strong entity tag from the length and the CRC32C of the value, so
+   * equal values have the same tag whichever key or node they are read from
+   *
+   * @return String this is the quoted entity tag
+   */
+  public String etag() {
+    CRC32C crc = new CRC32C();
+    crc.update(value, 0, value.length);
+    return "\"" + Integer.toHexString(value.length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+  }
+}
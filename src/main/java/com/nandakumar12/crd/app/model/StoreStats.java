@@ -0,0 +1,61 @@
+package com.nandakumar12.crd.app.model;
+
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.eviction.MemoryBudget;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * This is the model of the memory statistics of the data store summed over the shards, the hit
+ * rate is the share of the reads that found their key in memory since the startup, the cold reads
+ * are the misses that were read from the disk in the {@code TIERED} mode
+ *
+ * @author  Nandakumar12
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+public class StoreStats {
+  EvictionMode evictionPolicy;
+  long memoryBudgetBytes;
+  long usedBytes;
+  long hits;
+  long misses;
+  double hitRate;
+  long evictions;
+  long rejections;
+  long coldReads;
+
+  public static StoreStats from(List<MemoryBudget> budgets) {
+    long limit = 0;
+    long used = 0;
+    long hits = 0;
+    long misses = 0;
+    long evictions = 0;
+    long rejections = 0;
+    long coldReads = 0;
+    for (MemoryBudget budget : budgets) {
+      limit += budget.getLimitBytes();
+      used += budget.getUsedBytes();
+      hits += budget.getHits();
+      misses += budget.getMisses();
+      evictions += budget.getEvictions();
+      rejections += budget.getRejections();
+      coldReads += budget.getColdReads();
+    }
+    double hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    return new StoreStats(
+        budgets.get(0).getMode(),
+        limit,
+        used,
+        hits,
+        misses,
+        hitRate,
+        evictions,
+        rejections,
+        coldReads);
+  }
+}
@@ -0,0 +1,22 @@
+package com.nandakumar12.crd.app.persistence;
+
+/**
+ * This enum decides when a write is acknowledged, from the fastest to the safest, a client picks
+ * it per write and the writes which don't pick one get {@link FsyncPolicy#durability()}
+ *
+ * @author  Nandakumar12
+ */
+public enum Durability {
+  /**
+   * acknowledged at once, the record is written by the committer of the log within the group
+   * commit interval (a second when it is 0), lost if the process crashes before
+   */
+  NONE,
+  /**
+   * acknowledged once the record is written to the log file, survives a process crash but not a
+   * power loss
+   */
+  BUFFERED,
+  /** acknowledged once the record is forced to the disk, concurrent writes share a single force */
+  FSYNC
+}
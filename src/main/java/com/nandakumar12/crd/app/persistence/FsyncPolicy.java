@@ -0,0 +1,24 @@
+package com.nandakumar12.crd.app.persistence;
+
+/**
+ * This enum decides when the records appended to the {@link WriteAheadLog} are forced
+ * from the OS page cache to the disk
+ *
+ * @author  Nandakumar12
+ */
+public enum FsyncPolicy {
+  /** every write waits until its record is forced to the disk, the forces are shared by the concurrent writes */
+  ALWAYS,
+  /** appends are forced together by the committer of the log every few milliseconds */
+  GROUP_COMMIT,
+  /** the OS decides when the page cache is written back, survives a process crash but not a power loss */
+  OS;
+
+  /**
+   * @return Durability this is the durability of the writes which don't pick one, {@link
+   *     Durability#FSYNC} for {@link #ALWAYS} and {@link Durability#BUFFERED} otherwise
+   */
+  public Durability durability() {
+    return this == ALWAYS ? Durability.FSYNC : Durability.BUFFERED;
+  }
+}
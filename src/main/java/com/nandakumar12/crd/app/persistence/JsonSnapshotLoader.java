@@ -0,0 +1,142 @@
+package com.nandakumar12.crd.app.persistence;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.nandakumar12.crd.app.model.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * This class will read the legacy json data store file ({@code data.json}) and put the entries into
+ * the map one at a time while the file is streamed, so no object tree of the whole file is built.
+ * It is used only to migrate an old data store into the binary format read by {@link SnapshotReader}
+ *
+ * <p>the entries which have already expired are skipped while loading, so the memory needed grows
+ * with the live data and not with the size of the file
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+public class JsonSnapshotLoader {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final long PROGRESS_INTERVAL = 100_000;
+
+  private long loaded;
+  private long expired;
+
+  /**
+   * This method will load the live entries present in the data store file into the given map
+   *
+   * @param file this is the data store file
+   * @param data this is the map to be filled
+   * @param currentTimeMillis the entries expiring before this timestamp are skipped
+   * @return long this is the number of entries loaded
+   * @throws IOException if some error occurs during reading the file
+   */
+  public long load(Path file, Map<String, Data> data, long currentTimeMillis) throws IOException {
+    return read(file, data::put, currentTimeMillis);
+  }
+
+  /**
+   * This method will hand over the live entries present in the data store file one by one
+   *
+   * @param file this is the data store file
+   * @param consumer this receives every live entry in the order of the file
+   * @param currentTimeMillis the entries expiring before this timestamp are skipped
+   * @return long this is the number of entries read
+   * @throws IOException if some error occurs during reading the file
+   */
+  public long read(Path file, SnapshotReader.EntryConsumer consumer, long currentTimeMillis)
+      throws IOException {
+    long fileSize = Files.size(file);
+    if (fileSize == 0) {
+      return 0;
+    }
+    try (CountingInputStream counter =
+            new CountingInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+        JsonReader reader = new JsonReader(new InputStreamReader(counter, StandardCharsets.UTF_8))) {
+      if (reader.peek() == JsonToken.NULL) {
+        return 0;
+      }
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String key = reader.nextName();
+        Data value = readData(reader);
+        if (isExpired(value, currentTimeMillis)) {
+          expired++;
+        } else {
+          consumer.accept(key, value);
+          loaded++;
+        }
+        if ((loaded + expired) % PROGRESS_INTERVAL == 0) {
+          log.info(
+              "Loading data store: {}% read, {} entries loaded, {} expired entries skipped",
+              counter.count * 100 / fileSize,
+              loaded,
+              expired);
+        }
+      }
+      reader.endObject();
+    }
+    log.info("Loaded {} entries from the data store, skipped {} expired entries", loaded, expired);
+    return loaded;
+  }
+
+  private Data readData(JsonReader reader) throws IOException {
+    Data value = new Data();
+    reader.beginObject();
+    while (reader.hasNext()) {
+      String name = reader.nextName();
+      if ("value".equals(name)) {
+        value.setValue(reader.nextString());
+      } else if ("timeToLive".equals(name)) {
+        // the legacy store kept the expiry timestamp as a decimal string
+        value.setExpiresAt(Long.parseLong(reader.nextString()));
+      } else {
+        reader.skipValue();
+      }
+    }
+    reader.endObject();
+    return value;
+  }
+
+  private boolean isExpired(Data value, long currentTimeMillis) {
+    return value.getExpiresAt() != 0 && value.getExpiresAt() < currentTimeMillis;
+  }
+
+  public long getExpired() {
+    return expired;
+  }
+
+  private static class CountingInputStream extends FilterInputStream {
+    long count;
+
+    CountingInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = in.read();
+      if (b >= 0) {
+        count++;
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = in.read(b, off, len);
+      if (read > 0) {
+        count += read;
+      }
+      return read;
+    }
+  }
+}
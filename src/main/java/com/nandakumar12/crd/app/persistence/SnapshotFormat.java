@@ -0,0 +1,27 @@
+package com.nandakumar12.crd.app.persistence;
+
+/**
+ * This class holds the layout of the binary data store file written by {@link Snapshotter} and
+ * read by {@link SnapshotReader}, the read only views of other processes map it directly
+ *
+ * <pre>
+ * [int magic][int version]
+ * [int keyLength][key][int valueLength][value][long expiry]   (repeated for every entry)
+ * [int -1]                                                     (end of records)
+ * </pre>
+ *
+ * the strings are UTF-8 encoded and the expiry is the absolute timestamp in millis, 0 if the entry
+ * never expires
+ *
+ * @author  Nandakumar12
+ */
+public final class SnapshotFormat {
+
+  /** "CRDS" */
+  public static final int MAGIC = 0x43524453;
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 8;
+  public static final int END_OF_RECORDS = -1;
+
+  private SnapshotFormat() {}
+}
@@ -0,0 +1,147 @@
+package com.nandakumar12.crd.app.persistence;
+
+import com.nandakumar12.crd.app.model.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+/**
+ * This class will read the binary data store file described in {@link SnapshotFormat} through a
+ * memory mapped window that slides over the file, so the file is read without copying it into the
+ * heap and files larger than a single mapping are supported
+ *
+ * <p>the entries which have already expired are skipped while loading
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+public class SnapshotReader {
+
+  private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+  private static final long PROGRESS_INTERVAL = 100_000;
+
+  private FileChannel channel;
+  private long size;
+  private long windowStart;
+  private MappedByteBuffer window;
+  private byte[] scratch = new byte[1024];
+
+  private long loaded;
+  private long expired;
+
+  /**
+   * This callback will receive the live entries of the data store file while it is read
+   *
+   * @author  Nandakumar12
+   */
+  @FunctionalInterface
+  public interface EntryConsumer {
+    void accept(String key, Data data) throws IOException;
+  }
+
+  /**
+   * This method will load the live entries present in the data store file into the given map
+   *
+   * @param file this is the data store file
+   * @param data this is the map to be filled
+   * @param currentTimeMillis the entries expiring before this timestamp are skipped
+   * @return long this is the number of entries loaded
+   * @throws IOException if some error occurs during reading the file or the file is corrupted
+   */
+  public long load(Path file, Map<String, Data> data, long currentTimeMillis) throws IOException {
+    return read(file, data::put, currentTimeMillis);
+  }
+
+  /**
+   * This method will hand over the live entries present in the data store file one by one
+   *
+   * @param file this is the data store file
+   * @param consumer this receives every live entry in the order of the file
+   * @param currentTimeMillis the entries expiring before this timestamp are skipped
+   * @return long this is the number of entries read
+   * @throws IOException if some error occurs during reading the file or the file is corrupted
+   */
+  public long read(Path file, EntryConsumer consumer, long currentTimeMillis) throws IOException {
+    try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+      channel = fileChannel;
+      size = fileChannel.size();
+      windowStart = 0;
+      window = null;
+      ensure(SnapshotFormat.HEADER_SIZE);
+      if (window.getInt() != SnapshotFormat.MAGIC) {
+        throw new IOException("Not a data store file: " + file);
+      }
+      int version = window.getInt();
+      if (version != SnapshotFormat.VERSION) {
+        throw new IOException("Unsupported data store version " + version + ": " + file);
+      }
+      while (true) {
+        ensure(4);
+        int keyLength = window.getInt();
+        if (keyLength == SnapshotFormat.END_OF_RECORDS) {
+          break;
+        }
+        String key = readString(keyLength);
+        ensure(4);
+        String value = readString(window.getInt());
+        ensure(8);
+        long expiresAt = window.getLong();
+        if (expiresAt != 0 && expiresAt < currentTimeMillis) {
+          expired++;
+        } else {
+          consumer.accept(key, new Data(value, expiresAt));
+          loaded++;
+        }
+        if ((loaded + expired) % PROGRESS_INTERVAL == 0) {
+          log.info(
+              "Loading data store: {}% read, {} entries loaded, {} expired entries skipped",
+              (windowStart + window.position()) * 100 / size,
+              loaded,
+              expired);
+        }
+      }
+    } finally {
+      channel = null;
+      window = null;
+    }
+    log.info("Loaded {} entries from the data store, skipped {} expired entries", loaded, expired);
+    return loaded;
+  }
+
+  private String readString(int length) throws IOException {
+    if (length < 0) {
+      throw new IOException("Corrupted data store, negative length " + length);
+    }
+    ensure(length);
+    if (scratch.length < length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    window.get(scratch, 0, length);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  /** remaps the window at the current position when it holds less than the bytes needed */
+  private void ensure(int bytes) throws IOException {
+    if (window != null && window.remaining() >= bytes) {
+      return;
+    }
+    long position = window == null ? 0 : windowStart + window.position();
+    long length = Math.min(size - position, Math.max(WINDOW_SIZE, bytes));
+    if (length < bytes) {
+      throw new EOFException("Data store file is truncated at " + position);
+    }
+    windowStart = position;
+    window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+  }
+
+  public long getExpired() {
+    return expired;
+  }
+}
@@ -0,0 +1,352 @@
+package com.nandakumar12.crd.app.persistence;
+
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This class will take a snapshot of the live data into the data store file in the background and
+ * compact the {@link WriteAheadLog} covered by it
+ *
+ * <p>the active log is rolled under the given lock, which waits only for the writes that are in
+ * the middle of an append, then the map is streamed entry by entry in the binary
+ * {@link SnapshotFormat} into a temp file which is
+ * forced to the disk and atomically renamed over the old snapshot. The request threads keep
+ * writing into the fresh log while the snapshot is written
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+public class Snapshotter implements Closeable {
+
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  private final Path snapshotFile;
+  private final Map<String, Data> data;
+  private final WriteAheadLog writeAheadLog;
+  private final Lock rollLock;
+  private final long maxSizeBytes;
+  private ScheduledExecutorService scheduler;
+
+  /** held while a snapshot or an export uses the data store file and the rolled segments */
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final AtomicLong snapshotCount = new AtomicLong();
+  private final AtomicLong lastDurationMillis = new AtomicLong();
+  private final AtomicLong totalDurationMillis = new AtomicLong();
+  private final AtomicLong lastBytesWritten = new AtomicLong();
+  private final AtomicLong totalBytesWritten = new AtomicLong();
+
+  /**
+   * @param snapshotFile this is the data store file that will be replaced by every snapshot
+   * @param data this is the live data which is to be stored
+   * @param writeAheadLog this is the log whose records are covered by the snapshot
+   * @param rollLock this lock is held by the writers while they update the map and the log
+   * @param maxSizeBytes this is the quota of the data store file in bytes
+   */
+  public Snapshotter(
+      Path snapshotFile,
+      Map<String, Data> data,
+      WriteAheadLog writeAheadLog,
+      Lock rollLock,
+      long maxSizeBytes) {
+    this.snapshotFile = snapshotFile;
+    this.data = data;
+    this.writeAheadLog = writeAheadLog;
+    this.rollLock = rollLock;
+    this.maxSizeBytes = maxSizeBytes;
+  }
+
+  /**
+   * This method will start taking snapshots periodically in a background thread
+   *
+   * @param intervalMs this is the delay between two snapshots
+   * @param minLogBytes a snapshot is skipped when the active log is smaller than this
+   */
+  public void schedule(long intervalMs, long minLogBytes) {
+    schedule(intervalMs, intervalMs, minLogBytes);
+  }
+
+  /**
+   * This method will start taking snapshots periodically in a background thread, the shards of a
+   * data store are scheduled with different initial delays so their snapshots don't hit the disk
+   * at the same time
+   *
+   * @param initialDelayMs this is the delay before the first snapshot
+   * @param intervalMs this is the delay between two snapshots
+   * @param minLogBytes a snapshot is skipped when the active log is smaller than this
+   */
+  public void schedule(long initialDelayMs, long intervalMs, long minLogBytes) {
+    scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "crd-snapshotter");
+              thread.setDaemon(true);
+              return thread;
+            });
+    scheduler.scheduleWithFixedDelay(
+        () -> {
+          try {
+            if (writeAheadLog.size() >= minLogBytes) {
+              snapshot();
+            }
+          } catch (Exception e) {
+            log.error("Background snapshot failed", e);
+          }
+        },
+        initialDelayMs,
+        intervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * This method will store the live data into the data store file and drop the log segments
+   * covered by it
+   *
+   * @return long this is the number of bytes written
+   * @throws IOException if some error occurs during writing the snapshot
+   * @throws DataStoreSizeExceeded if the size of the data to be written exceeds the quota
+   */
+  public long snapshot() throws IOException, DataStoreSizeExceeded {
+    lock.lock();
+    try {
+      return snapshotLocked();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long snapshotLocked() throws IOException, DataStoreSizeExceeded {
+    long start = System.nanoTime();
+    long sequence;
+    rollLock.lock();
+    try {
+      sequence = writeAheadLog.roll();
+    } finally {
+      rollLock.unlock();
+    }
+    Path tempFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    long bytesWritten;
+    try {
+      bytesWritten = writeTo(tempFile);
+      Files.move(
+          tempFile, snapshotFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tempFile);
+    }
+    forceDirectory();
+    writeAheadLog.dropRolledSegments(sequence);
+
+    long durationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    snapshotCount.incrementAndGet();
+    lastDurationMillis.set(durationMillis);
+    totalDurationMillis.addAndGet(durationMillis);
+    lastBytesWritten.set(bytesWritten);
+    totalBytesWritten.addAndGet(bytesWritten);
+    log.info("Snapshot of {} bytes written in {} ms", bytesWritten, durationMillis);
+    return bytesWritten;
+  }
+
+  /**
+   * This method will hand over a point in time view of the live data without stopping the
+   * writers: a snapshot is taken, the log is rolled again and the records written while the
+   * snapshot was streamed are laid over the entries read back from the data store file
+   *
+   * <p>only the changes made during the snapshot are held in memory, the background snapshots
+   * wait until the export is done
+   *
+   * @param consumer this receives every live entry exactly once
+   * @return long this is the number of entries exported
+   * @throws IOException if some error occurs during writing the snapshot or reading it back
+   * @throws DataStoreSizeExceeded if the size of the data to be written exceeds the quota
+   */
+  public long export(SnapshotReader.EntryConsumer consumer)
+      throws IOException, DataStoreSizeExceeded {
+    return export(Collections.singletonList(this), consumer);
+  }
+
+  /**
+   * This method will export the shards of a data store like {@link #export(SnapshotReader.EntryConsumer)}
+   * as a single point in time view, the logs of all the shards are rolled together while every
+   * shard holds off its writers, so no write is seen in one shard while an earlier write of
+   * another shard is missed
+   *
+   * @param snapshotters these are the snapshotters of the shards
+   * @param consumer this receives every live entry exactly once
+   * @return long this is the number of entries exported
+   * @throws IOException if some error occurs during writing the snapshots or reading them back
+   * @throws DataStoreSizeExceeded if the size of the data to be written exceeds the quota
+   */
+  public static long export(List<Snapshotter> snapshotters, SnapshotReader.EntryConsumer consumer)
+      throws IOException, DataStoreSizeExceeded {
+    int locked = 0;
+    try {
+      for (Snapshotter snapshotter : snapshotters) {
+        snapshotter.lock.lock();
+        locked++;
+      }
+      for (Snapshotter snapshotter : snapshotters) {
+        snapshotter.snapshotLocked();
+      }
+      long[] sequences = rollTogether(snapshotters);
+      long currentTimeMillis = System.currentTimeMillis();
+      long exported = 0;
+      for (int i = 0; i < snapshotters.size(); i++) {
+        exported += snapshotters.get(i).exportSegment(sequences[i], consumer, currentTimeMillis);
+      }
+      return exported;
+    } finally {
+      for (int i = 0; i < locked; i++) {
+        snapshotters.get(i).lock.unlock();
+      }
+    }
+  }
+
+  private static long[] rollTogether(List<Snapshotter> snapshotters) throws IOException {
+    long[] sequences = new long[snapshotters.size()];
+    int locked = 0;
+    try {
+      for (Snapshotter snapshotter : snapshotters) {
+        snapshotter.rollLock.lock();
+        locked++;
+      }
+      for (int i = 0; i < sequences.length; i++) {
+        sequences[i] = snapshotters.get(i).writeAheadLog.roll();
+      }
+    } finally {
+      for (int i = 0; i < locked; i++) {
+        snapshotters.get(i).rollLock.unlock();
+      }
+    }
+    return sequences;
+  }
+
+  /** lays the records of the rolled segment over the entries of the data store file */
+  private long exportSegment(
+      long sequence, SnapshotReader.EntryConsumer consumer, long currentTimeMillis)
+      throws IOException {
+    Map<String, Data> changes = new LinkedHashMap<>();
+    writeAheadLog.replaySegment(
+        sequence,
+        new WriteAheadLog.Replayer() {
+          @Override
+          public void put(String key, String value, long expiresAt) {
+            changes.put(key, new Data(value, expiresAt));
+          }
+
+          @Override
+          public void delete(String key) {
+            changes.put(key, null);
+          }
+        });
+    long[] exported = new long[1];
+    new SnapshotReader()
+        .read(
+            snapshotFile,
+            (key, value) -> {
+              if (!changes.containsKey(key)) {
+                consumer.accept(key, value);
+                exported[0]++;
+              }
+            },
+            currentTimeMillis);
+    for (Map.Entry<String, Data> change : changes.entrySet()) {
+      Data value = change.getValue();
+      if (value != null && (value.getExpiresAt() == 0 || value.getExpiresAt() >= currentTimeMillis)) {
+        consumer.accept(change.getKey(), value);
+        exported[0]++;
+      }
+    }
+    return exported[0];
+  }
+
+  private long writeTo(Path tempFile) throws IOException, DataStoreSizeExceeded {
+    try (FileOutputStream fileOutputStream = new FileOutputStream(tempFile.toFile())) {
+      DataOutputStream out =
+          new DataOutputStream(new BufferedOutputStream(fileOutputStream, CHUNK_SIZE));
+      out.writeInt(SnapshotFormat.MAGIC);
+      out.writeInt(SnapshotFormat.VERSION);
+      long written = SnapshotFormat.HEADER_SIZE;
+      for (Map.Entry<String, Data> entry : data.entrySet()) {
+        written += writeBytes(out, entry.getKey().getBytes(StandardCharsets.UTF_8));
+        written += writeBytes(out, entry.getValue().getValue().getBytes(StandardCharsets.UTF_8));
+        out.writeLong(entry.getValue().getExpiresAt());
+        written += 8;
+        if (written > maxSizeBytes) {
+          throw new DataStoreSizeExceeded(
+              "The data store size is greater than the quota of " + maxSizeBytes + " bytes");
+        }
+      }
+      out.writeInt(SnapshotFormat.END_OF_RECORDS);
+      out.flush();
+      fileOutputStream.getChannel().force(true);
+      return written + 4;
+    }
+  }
+
+  private static int writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+    return 4 + bytes.length;
+  }
+
+  private void forceDirectory() {
+    try (FileChannel directory =
+        FileChannel.open(snapshotFile.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+      directory.force(true);
+    } catch (IOException e) {
+      // not every platform allows to open a directory, the rename is still atomic there
+      log.debug("Unable to force the data store directory", e);
+    }
+  }
+
+  public long getSnapshotCount() {
+    return snapshotCount.get();
+  }
+
+  public long getLastDurationMillis() {
+    return lastDurationMillis.get();
+  }
+
+  public long getTotalDurationMillis() {
+    return totalDurationMillis.get();
+  }
+
+  public long getLastBytesWritten() {
+    return lastBytesWritten.get();
+  }
+
+  public long getTotalBytesWritten() {
+    return totalBytesWritten.get();
+  }
+
+  @Override
+  public void close() {
+    if (scheduler != null) {
+      scheduler.shutdown();
+      try {
+        scheduler.awaitTermination(1, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package com.nandakumar12.crd.app.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class will hold the exclusive lock of a data store directory, the process which opens the
+ * data store for writing takes it on startup and keeps it until the data store is closed, so two
+ * processes never write the same files. The lock is taken on the {@code crd.lock} file with
+ * {@link FileChannel#tryLock}, the operating system releases it when the process dies, the file
+ * itself is left in place and holds the pid of the last owner
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+public final class StoreLock implements AutoCloseable {
+
+  public static final String LOCK_FILE = "crd.lock";
+
+  private final Path file;
+
+  private final FileChannel channel;
+
+  private final FileLock lock;
+
+  private StoreLock(Path file, FileChannel channel, FileLock lock) {
+    this.file = file;
+    this.channel = channel;
+    this.lock = lock;
+  }
+
+  /**
+   * This method will take the lock of the data store directory without waiting for it
+   *
+   * @param directory this is the data store directory, created when it doesn't exist
+   * @return StoreLock this is the lock held until it is closed
+   * @throws IOException if some error occurs during opening the lock file
+   * @throws IllegalStateException if another process, or another store of this process, holds the
+   *     lock
+   */
+  public static StoreLock acquire(Path directory) throws IOException {
+    Files.createDirectories(directory);
+    Path file = directory.resolve(LOCK_FILE);
+    FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    FileLock lock;
+    try {
+      lock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      lock = null;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+    if (lock == null) {
+      String owner = owner(channel);
+      channel.close();
+      throw new IllegalStateException(
+          "The data store in "
+              + directory
+              + " is already opened for writing by "
+              + owner
+              + ", only one process can write it, other processes can read its snapshots");
+    }
+    try {
+      channel.truncate(0);
+      channel.write(
+          ByteBuffer.wrap(
+              Long.toString(ProcessHandle.current().pid()).getBytes(StandardCharsets.US_ASCII)),
+          0);
+    } catch (IOException e) {
+      lock.release();
+      channel.close();
+      throw e;
+    }
+    log.info("Acquired the lock of the data store {}", directory);
+    return new StoreLock(file, channel, lock);
+  }
+
+  /** the pid written by the owner, the lock file can't be read on every platform while locked */
+  private static String owner(FileChannel channel) {
+    try {
+      ByteBuffer buffer = ByteBuffer.allocate(20);
+      channel.read(buffer, 0);
+      String pid = new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+      if (pid.matches("[0-9]+")) {
+        return Long.parseLong(pid) == ProcessHandle.current().pid()
+            ? "this process"
+            : "the process " + pid;
+      }
+    } catch (IOException e) {
+      log.debug("Can't read the owner of the lock", e);
+    }
+    return "another process";
+  }
+
+  /**
+   * This method will release the lock, closing it again has no effect
+   *
+   * @throws IOException if some error occurs during closing the lock file
+   */
+  @Override
+  public void close() throws IOException {
+    if (!channel.isOpen()) {
+      return;
+    }
+    try {
+      lock.release();
+    } finally {
+      channel.close();
+    }
+    log.info("Released the lock of the data store {}", file.getParent());
+  }
+}
@@ -0,0 +1,582 @@
+package com.nandakumar12.crd.app.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * This is an append-only binary log of every change made to the datastore, so the changes made
+ * since the last snapshot can be recovered after a crash
+ *
+ * <p>every record is laid out as {@code [int length][int crc32][payload]} where the payload is
+ * {@code [byte op][int keyLength][key]} followed by {@code [int valueLength][value][long expiry]}
+ * for a put. A torn record at the tail of the file (crash in the middle of an append) fails the
+ * length or checksum check and is cut off during {@link WriteAheadLog#replay(Replayer)}
+ *
+ * <p>the active log is {@code data.wal}, when a snapshot starts it is sealed as
+ * {@code data.wal.<sequence>} and a fresh active log is opened, the sealed segments are deleted
+ * once the snapshot covering them is stored
+ *
+ * <p>the records are appended to a buffer in memory and written to the file in batches, when they
+ * are {@link #commit committed} with a {@link Durability}: {@link Durability#BUFFERED} writes the
+ * pending batch on the calling thread, {@link Durability#FSYNC} waits on the future of the next
+ * force of the committer thread. All the forces requested while a force is running are served by
+ * the following one, so the number of forces doesn't grow with the number of writers. The
+ * committer also writes the {@link Durability#NONE} records, and forces the log with
+ * {@link FsyncPolicy#GROUP_COMMIT}, every group commit interval
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+  static final byte OP_PUT = 1;
+  static final byte OP_DELETE = 2;
+  static final int HEADER_SIZE = 8;
+  static final int MAX_RECORD_SIZE = 16 * 1024 * 1024;
+  /** the pending records of the writes without durability are written once they exceed this */
+  static final int MAX_PENDING_BYTES = 1024 * 1024;
+  /** the interval of the committer when the group commit interval is 0 */
+  static final long MAX_PENDING_MS = 1000;
+
+  private static final CompletableFuture<Void> COMMITTED = CompletableFuture.completedFuture(null);
+
+  private final Path file;
+  private final FsyncPolicy fsyncPolicy;
+  private final long groupCommitIntervalMs;
+  private final CRC32 crc = new CRC32();
+  private long nextSequence;
+  private final AtomicLong syncCount = new AtomicLong();
+  private final AtomicLong syncNanos = new AtomicLong();
+
+  // guarded by this, the records appended since the last write and the position after them
+  private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+  private long appended;
+  private CompletableFuture<Void> nextForce = new CompletableFuture<>();
+  private boolean forceRequested;
+  private boolean closed;
+  private Thread committer;
+
+  // guarded by the write lock, which is never taken while holding this
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private FileChannel channel;
+  private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+
+  /** the position up to which the records are written to the file, and forced to the disk */
+  private volatile long written;
+  private volatile long forced;
+
+  /**
+   * This callback will receive the records present in the log while it is replayed
+   *
+   * @author  Nandakumar12
+   */
+  public interface Replayer {
+    void put(String key, String value, long expiresAt);
+
+    void delete(String key);
+  }
+
+  /**
+   * @param file this is the log file, it will be created if it is not present
+   * @param fsyncPolicy this decides when the appended records are forced to the disk
+   * @param groupCommitIntervalMs this is the interval of the committer, 0 forces the log only
+   *     when a write asks for it and writes the records without durability every
+   *     {@link #MAX_PENDING_MS}
+   */
+  public WriteAheadLog(Path file, FsyncPolicy fsyncPolicy, long groupCommitIntervalMs) {
+    this.file = file;
+    this.fsyncPolicy = fsyncPolicy;
+    this.groupCommitIntervalMs = groupCommitIntervalMs;
+    try {
+      List<Path> segments = rolledSegments();
+      nextSequence = segments.isEmpty() ? 1 : sequenceOf(segments.get(segments.size() - 1)) + 1;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to list the write ahead log segments", e);
+    }
+  }
+
+  /**
+   * This method will read every valid record in the rolled segments (oldest first) and then in the
+   * active log and hand it over to the replayer, a torn or corrupted tail of the active log is
+   * truncated so that new records are appended right after the last valid one
+   *
+   * @param replayer this receives every record in the order it was written
+   * @return long this is the number of records replayed
+   * @throws IOException if some error occurs during reading the log
+   */
+  public synchronized long replay(Replayer replayer) throws IOException {
+    long records = 0;
+    for (Path segment : rolledSegments()) {
+      records += replay(segment, replayer, false);
+    }
+    return records + replay(file, replayer, true);
+  }
+
+  /**
+   * This method will read every valid record of a single rolled segment
+   *
+   * @param sequence this is the sequence number returned by {@link WriteAheadLog#roll()}
+   * @param replayer this receives every record in the order it was written
+   * @return long this is the number of records replayed
+   * @throws IOException if some error occurs during reading the segment
+   */
+  public synchronized long replaySegment(long sequence, Replayer replayer) throws IOException {
+    return replay(segmentPath(sequence), replayer, false);
+  }
+
+  private long replay(Path segment, Replayer replayer, boolean truncateTornTail) throws IOException {
+    if (!Files.exists(segment)) {
+      return 0;
+    }
+    long records = 0;
+    long validLength = 0;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(segment), 64 * 1024))) {
+      byte[] payload = new byte[1024];
+      while (true) {
+        int length;
+        int checksum;
+        try {
+          length = in.readInt();
+          checksum = in.readInt();
+          if (length <= 0 || length > MAX_RECORD_SIZE) {
+            break;
+          }
+          if (payload.length < length) {
+            payload = new byte[length];
+          }
+          in.readFully(payload, 0, length);
+        } catch (EOFException e) {
+          break;
+        }
+        crc.reset();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != checksum) {
+          break;
+        }
+        apply(ByteBuffer.wrap(payload, 0, length), replayer);
+        validLength += HEADER_SIZE + length;
+        records++;
+      }
+    }
+    if (validLength < Files.size(segment)) {
+      log.warn("Torn tail in write ahead log {} at {} bytes", segment, validLength);
+      if (truncateTornTail) {
+        try (FileChannel fileChannel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+          fileChannel.truncate(validLength);
+        }
+      }
+    }
+    return records;
+  }
+
+  private void apply(ByteBuffer payload, Replayer replayer) {
+    byte op = payload.get();
+    String key = readString(payload);
+    if (op == OP_PUT) {
+      String value = readString(payload);
+      replayer.put(key, value, payload.getLong());
+    } else if (op == OP_DELETE) {
+      replayer.delete(key);
+    }
+  }
+
+  private static String readString(ByteBuffer payload) {
+    int length = payload.getInt();
+    String value =
+        new String(payload.array(), payload.arrayOffset() + payload.position(), length, StandardCharsets.UTF_8);
+    payload.position(payload.position() + length);
+    return value;
+  }
+
+  /**
+   * This method will append a put record to the log, it is written to the file once it is
+   * committed
+   *
+   * @param key this is the key of the stored value
+   * @param value this is the stored value
+   * @param expiresAt this is the absolute expiry timestamp in millis, 0 if it never expires
+   * @return long this is the position after the record, to be passed to {@link #commit}
+   */
+  public synchronized long appendPut(String key, String value, long expiresAt) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    byte[] valueBytes = value.getBytes(StandardCharsets.UTF_8);
+    int start = prepare(1 + 4 + keyBytes.length + 4 + valueBytes.length + 8);
+    pending.put(OP_PUT).putInt(keyBytes.length).put(keyBytes);
+    pending.putInt(valueBytes.length).put(valueBytes).putLong(expiresAt);
+    return append(start);
+  }
+
+  /**
+   * This method will append a delete record to the log, it is written to the file once it is
+   * committed
+   *
+   * @param key this is the key of the deleted value
+   * @return long this is the position after the record, to be passed to {@link #commit}
+   */
+  public synchronized long appendDelete(String key) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    int start = prepare(1 + 4 + keyBytes.length);
+    pending.put(OP_DELETE).putInt(keyBytes.length).put(keyBytes);
+    return append(start);
+  }
+
+  /**
+   * This method will return the position after the last appended record, committing it commits
+   * every record appended so far
+   *
+   * @return long this is the position after the last appended record
+   */
+  public synchronized long getAppended() {
+    return appended;
+  }
+
+  /** makes room for the record in the pending buffer, its payload starts after the header */
+  private int prepare(int payloadLength) {
+    if (pending.remaining() < HEADER_SIZE + payloadLength) {
+      ByteBuffer grown =
+          ByteBuffer.allocate(
+              Integer.highestOneBit(pending.position() + HEADER_SIZE + payloadLength) << 1);
+      pending.flip();
+      pending = grown.put(pending);
+    }
+    int start = pending.position();
+    pending.position(start + HEADER_SIZE);
+    return start;
+  }
+
+  private long append(int start) {
+    int payloadLength = pending.position() - start - HEADER_SIZE;
+    crc.reset();
+    crc.update(pending.array(), start + HEADER_SIZE, payloadLength);
+    pending.putInt(start, payloadLength).putInt(start + 4, (int) crc.getValue());
+    appended += HEADER_SIZE + payloadLength;
+    if (committer == null && !closed) {
+      committer = new Thread(this::commitLoop, "crd-wal-committer");
+      committer.setDaemon(true);
+      committer.start();
+    }
+    return appended;
+  }
+
+  /**
+   * This method will make the records appended up to the given position as durable as asked,
+   * {@link Durability#BUFFERED} is done when this returns, {@link Durability#FSYNC} when the
+   * returned future completes, on the committer thread
+   *
+   * @param position this is the position returned by the append
+   * @param durability this is the durability of the write
+   * @return CompletableFuture<Void> this completes once the records are durable, exceptionally if
+   *     they can't be forced
+   * @throws IOException if some error occurs during writing the log
+   * @throws ClosedChannelException if the records have to be written after the log is closed
+   */
+  public CompletableFuture<Void> commit(long position, Durability durability) throws IOException {
+    if (durability == Durability.FSYNC) {
+      if (forced >= position) {
+        return COMMITTED;
+      }
+      synchronized (this) {
+        if (closed) {
+          throw new ClosedChannelException();
+        }
+        forceRequested = true;
+        notifyAll();
+        return nextForce;
+      }
+    }
+    if (written >= position) {
+      return COMMITTED;
+    }
+    synchronized (this) {
+      // a record appended before the close is written by it, the channel isn't opened again
+      if (closed) {
+        throw new ClosedChannelException();
+      }
+    }
+    if (durability == Durability.BUFFERED || position - written > MAX_PENDING_BYTES) {
+      writeLock.lock();
+      try {
+        if (written < position) {
+          writePending();
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    }
+    return COMMITTED;
+  }
+
+  /**
+   * waits for the forces requested by the writers, or for the group commit interval (at most
+   * {@link #MAX_PENDING_MS}) and then
+   * writes the pending records and forces them when asked, the future of the requested force is
+   * replaced before the records are written, so the writers which come meanwhile wait for the next
+   * force
+   */
+  private void commitLoop() {
+    while (true) {
+      CompletableFuture<Void> requested = null;
+      synchronized (this) {
+        long interval = groupCommitIntervalMs > 0 ? groupCommitIntervalMs : MAX_PENDING_MS;
+        long deadline = System.currentTimeMillis() + interval;
+        try {
+          while (!forceRequested && !closed) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+              break;
+            }
+            wait(remaining);
+          }
+        } catch (InterruptedException e) {
+          return;
+        }
+        if (closed) {
+          return;
+        }
+        if (forceRequested) {
+          requested = nextForce;
+          nextForce = new CompletableFuture<>();
+          forceRequested = false;
+        }
+      }
+      writeLock.lock();
+      try {
+        writePending();
+        if (requested != null
+            || (fsyncPolicy == FsyncPolicy.GROUP_COMMIT && groupCommitIntervalMs > 0)) {
+          forceWritten();
+        }
+        if (requested != null) {
+          requested.complete(null);
+        }
+      } catch (IOException e) {
+        if (requested != null) {
+          requested.completeExceptionally(e);
+        }
+        if (!(e instanceof ClosedChannelException)) {
+          log.error("Unable to commit write ahead log {}", file, e);
+        }
+      } finally {
+        writeLock.unlock();
+      }
+    }
+  }
+
+  /** writes the pending records to the file, with the write lock held */
+  private void writePending() throws IOException {
+    ByteBuffer batch;
+    long position;
+    synchronized (this) {
+      if (pending.position() == 0) {
+        return;
+      }
+      batch = pending;
+      pending = spare;
+      spare = batch;
+      position = appended;
+    }
+    batch.flip();
+    try {
+      FileChannel fileChannel = channel();
+      while (batch.hasRemaining()) {
+        fileChannel.write(batch);
+      }
+    } finally {
+      batch.clear();
+    }
+    written = position;
+  }
+
+  /** forces the written records to the disk, with the write lock held */
+  private void forceWritten() throws IOException {
+    long position = written;
+    if (forced < position) {
+      force(channel());
+      forced = position;
+    }
+  }
+
+  /** forces the records of the channel to the disk, the time it takes is counted */
+  private void force(FileChannel fileChannel) throws IOException {
+    long start = System.nanoTime();
+    fileChannel.force(false);
+    syncNanos.addAndGet(System.nanoTime() - start);
+    syncCount.incrementAndGet();
+  }
+
+  /** @return long this is the number of the forces of the appended records to the disk */
+  public long getSyncCount() {
+    return syncCount.get();
+  }
+
+  /** @return long this is the total time spent forcing the appended records to the disk */
+  public long getSyncNanos() {
+    return syncNanos.get();
+  }
+
+  private FileChannel channel() throws IOException {
+    if (channel == null) {
+      channel =
+          FileChannel.open(
+              file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+    return channel;
+  }
+
+  /**
+   * This method will seal the active log as a rolled segment and start a new active log, the
+   * records appended before the roll can be dropped with {@link WriteAheadLog#dropRolledSegments(long)}
+   * once a snapshot taken after the roll is safely stored
+   *
+   * @return long this is the sequence number of the sealed segment
+   * @throws IOException if some error occurs during sealing the log
+   */
+  public long roll() throws IOException {
+    writeLock.lock();
+    try {
+      writePending();
+      if (channel != null) {
+        channel.force(false);
+        channel.close();
+        channel = null;
+      }
+      forced = written;
+      synchronized (this) {
+        long sequence = nextSequence++;
+        if (Files.exists(file)) {
+          Files.move(file, segmentPath(sequence), StandardCopyOption.ATOMIC_MOVE);
+        }
+        return sequence;
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  /**
+   * This method will delete the rolled segments up to and including the given sequence number
+   *
+   * @param sequence this is the sequence number returned by {@link WriteAheadLog#roll()}
+   * @throws IOException if some error occurs during deleting the segments
+   */
+  public synchronized void dropRolledSegments(long sequence) throws IOException {
+    for (Path segment : rolledSegments()) {
+      if (sequenceOf(segment) <= sequence) {
+        Files.delete(segment);
+      }
+    }
+  }
+
+  /**
+   * @return long this is the size of the active log in bytes, with the records not written yet
+   * @throws IOException if some error occurs during reading the size
+   */
+  public long size() throws IOException {
+    writeLock.lock();
+    try {
+      long size = channel != null ? channel.size() : Files.exists(file) ? Files.size(file) : 0;
+      synchronized (this) {
+        return size + pending.position();
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  private List<Path> rolledSegments() throws IOException {
+    List<Path> segments = new ArrayList<>();
+    Path directory = file.toAbsolutePath().getParent();
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(directory, file.getFileName() + ".*")) {
+      for (Path segment : stream) {
+        if (sequenceOf(segment) >= 0) {
+          segments.add(segment);
+        }
+      }
+    }
+    segments.sort(Comparator.comparingLong(this::sequenceOf));
+    return segments;
+  }
+
+  private long sequenceOf(Path segment) {
+    String suffix = segment.getFileName().toString().substring(file.getFileName().toString().length() + 1);
+    try {
+      return Long.parseLong(suffix);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private Path segmentPath(long sequence) {
+    return file.resolveSibling(file.getFileName() + "." + sequence);
+  }
+
+  /**
+   * This method will write the pending records and stop the committer, the records are forced
+   * unless the policy is {@link FsyncPolicy#OS} and no write waits for a force
+   *
+   * @throws IOException if some error occurs during writing the log
+   */
+  @Override
+  public void close() throws IOException {
+    Thread running;
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      notifyAll();
+      running = committer;
+    }
+    if (running != null) {
+      try {
+        // the round in progress is finished first
+        running.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while stopping the committer of " + file);
+      }
+    }
+    CompletableFuture<Void> requested;
+    boolean force;
+    synchronized (this) {
+      requested = nextForce;
+      force = forceRequested || fsyncPolicy != FsyncPolicy.OS;
+    }
+    writeLock.lock();
+    try {
+      writePending();
+      if (channel != null) {
+        if (force) {
+          forceWritten();
+        }
+        channel.close();
+        channel = null;
+      }
+      requested.complete(null);
+    } catch (IOException e) {
+      requested.completeExceptionally(e);
+      throw e;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+}
@@ -0,0 +1,255 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.persistence.SnapshotFormat;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * This is a read only view of the data store for the processes other than the one which writes it,
+ * it takes no lock so it never blocks the writer. The snapshot files of the shards are memory
+ * mapped and only the keys are indexed on the heap, the values are decoded from the mapping when
+ * they are read
+ *
+ * <pre>
+ * try (CrdSnapshot snapshot = CrdSnapshot.open("data")) {
+ *   Optional&lt;String&gt; value = snapshot.get("user-1");
+ * }
+ * </pre>
+ *
+ * <p>the view holds the data of the last snapshot written by the writer when it was opened, the
+ * changes which are only in the write ahead logs are not seen, open it again for a newer view. The
+ * writer replaces a snapshot with a rename, so the mapped file stays unchanged while it is read.
+ * Windows doesn't allow to replace a mapped file, there the view should be closed before the next
+ * background snapshot of the writer
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+public final class CrdSnapshot implements AutoCloseable {
+
+  private static final long REGION_SIZE = 1L << 30;
+
+  /** the region of the entry in the upper half, the offset of its value length in the lower */
+  private volatile Map<String, Long> index;
+
+  private volatile List<ByteBuffer> regions;
+
+  private CrdSnapshot(Map<String, Long> index, List<ByteBuffer> regions) {
+    this.index = index;
+    this.regions = regions;
+  }
+
+  /**
+   * This method will map the current snapshot files of the data store in the given file path,
+   * whether it is sharded or not
+   *
+   * @param filePath this is the file path of the data store
+   * @return CrdSnapshot this is the view of the last snapshot, empty if there is none yet
+   * @throws IOException if some error occurs during reading the files or a file is corrupted
+   * @throws IllegalStateException if the data store is being resharded
+   */
+  public static CrdSnapshot open(String filePath) throws IOException {
+    long start = System.nanoTime();
+    Map<String, Long> index = new HashMap<>();
+    List<ByteBuffer> regions = new ArrayList<>();
+    long now = System.currentTimeMillis();
+    List<Path> files = snapshotFiles(Paths.get(filePath));
+    for (Path file : files) {
+      map(file, index, regions, now);
+    }
+    log.info(
+        "Opened the snapshot of {} with {} entries from {} files in {} ms",
+        filePath,
+        index.size(),
+        files.size(),
+        (System.nanoTime() - start) / 1_000_000);
+    return new CrdSnapshot(index, regions);
+  }
+
+  /** the snapshot files of the single shard or of every shard of the only sharded layout */
+  private static List<Path> snapshotFiles(Path root) throws IOException {
+    List<Path> files = new ArrayList<>();
+    List<Path> layouts = new ArrayList<>();
+    if (Files.exists(root.resolve(Shard.DATA_FILE))) {
+      layouts.add(root);
+      files.add(root.resolve(Shard.DATA_FILE));
+    }
+    if (Files.isDirectory(root)) {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, "shards-*")) {
+        for (Path shards : stream) {
+          if (shards.getFileName().toString().matches("shards-[0-9]+")
+              && Files.isDirectory(shards)) {
+            layouts.add(shards);
+          }
+        }
+      }
+    }
+    if (layouts.size() > 1) {
+      throw new IllegalStateException(
+          "The data store in " + root + " is being resharded, open the snapshot again later");
+    }
+    if (!layouts.isEmpty() && files.isEmpty()) {
+      Path shards = layouts.get(0);
+      int count = Integer.parseInt(shards.getFileName().toString().substring("shards-".length()));
+      for (int i = 0; i < count; i++) {
+        Path file = shards.resolve(Integer.toString(i)).resolve(Shard.DATA_FILE);
+        if (Files.exists(file)) {
+          files.add(file);
+        }
+      }
+    }
+    return files;
+  }
+
+  /**
+   * indexes the live entries of a snapshot file, the file is mapped in regions of at most
+   * {@link #REGION_SIZE} which always start at an entry, so no entry is split between two regions
+   */
+  private static void map(Path file, Map<String, Long> index, List<ByteBuffer> regions, long now)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      Mapping mapping = new Mapping(channel, regions);
+      mapping.header(file);
+      while (true) {
+        int keyLength = mapping.region.getInt(mapping.ensure(4));
+        if (keyLength == SnapshotFormat.END_OF_RECORDS) {
+          return;
+        }
+        if (keyLength < 0) {
+          throw new IOException("Corrupted data store, negative length " + keyLength);
+        }
+        int valueLength =
+            mapping.region.getInt(mapping.ensure(8L + keyLength) + 4 + keyLength);
+        if (valueLength < 0) {
+          throw new IOException("Corrupted data store, negative length " + valueLength);
+        }
+        int offset = mapping.ensure(16L + keyLength + valueLength);
+        long expiresAt = mapping.region.getLong(offset + 8 + keyLength + valueLength);
+        if (expiresAt == 0 || expiresAt >= now) {
+          index.put(
+              decode(mapping.region, offset + 4, keyLength),
+              (long) (regions.size() - 1) << 32 | (offset + 4 + keyLength));
+        }
+        mapping.position += 16L + keyLength + valueLength;
+      }
+    }
+  }
+
+  /** the region of a snapshot file which is mapped while it is indexed */
+  private static final class Mapping {
+
+    private final FileChannel channel;
+
+    private final List<ByteBuffer> regions;
+
+    private final long size;
+
+    private ByteBuffer region;
+
+    private long regionStart;
+
+    /** the position of the next entry in the file */
+    private long position;
+
+    Mapping(FileChannel channel, List<ByteBuffer> regions) throws IOException {
+      this.channel = channel;
+      this.regions = regions;
+      this.size = channel.size();
+    }
+
+    void header(Path file) throws IOException {
+      int offset = ensure(SnapshotFormat.HEADER_SIZE);
+      if (region.getInt(offset) != SnapshotFormat.MAGIC) {
+        throw new IOException("Not a data store file: " + file);
+      }
+      int version = region.getInt(offset + 4);
+      if (version != SnapshotFormat.VERSION) {
+        throw new IOException("Unsupported data store version " + version + ": " + file);
+      }
+      position = SnapshotFormat.HEADER_SIZE;
+    }
+
+    /** the offset of the next entry in the region, mapped again there when it is too short */
+    int ensure(long bytes) throws IOException {
+      if (region != null && position + bytes <= regionStart + region.limit()) {
+        return (int) (position - regionStart);
+      }
+      if (position + bytes > size) {
+        throw new EOFException("Data store file is truncated at " + position);
+      }
+      regionStart = position;
+      region =
+          channel.map(
+              FileChannel.MapMode.READ_ONLY, position, Math.min(size - position, REGION_SIZE));
+      regions.add(region);
+      return 0;
+    }
+  }
+
+  private static String decode(ByteBuffer region, int offset, int length) {
+    ByteBuffer bytes = region.duplicate();
+    bytes.limit(offset + length).position(offset);
+    return StandardCharsets.UTF_8.decode(bytes).toString();
+  }
+
+  /**
+   * This method will read the value of a key from the mapped snapshot
+   *
+   * @param key this is the key of the value
+   * @return Optional<String> this is the value, empty if the key is absent or expired
+   */
+  public Optional<String> get(String key) {
+    Map<String, Long> index = this.index;
+    List<ByteBuffer> regions = this.regions;
+    if (index == null || regions == null) {
+      throw new IllegalStateException("The snapshot is closed");
+    }
+    Long location = index.get(key);
+    if (location == null) {
+      return Optional.empty();
+    }
+    ByteBuffer region = regions.get((int) (location >>> 32));
+    int offset = (int) location.longValue();
+    int valueLength = region.getInt(offset);
+    long expiresAt = region.getLong(offset + 4 + valueLength);
+    if (expiresAt != 0 && expiresAt < System.currentTimeMillis()) {
+      return Optional.empty();
+    }
+    return Optional.of(decode(region, offset + 4, valueLength));
+  }
+
+  /**
+   * @return int this is the number of entries which were live when the snapshot was opened
+   */
+  public int size() {
+    Map<String, Long> index = this.index;
+    if (index == null) {
+      throw new IllegalStateException("The snapshot is closed");
+    }
+    return index.size();
+  }
+
+  /**
+   * This method will drop the index, the mappings are unmapped once they are garbage collected
+   */
+  @Override
+  public void close() {
+    index = null;
+    regions = null;
+  }
+}
@@ -0,0 +1,383 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.exception.DuplicateKeyException;
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.exception.InvalidKeyException;
+import com.nandakumar12.crd.app.exception.ValueExpiredException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import com.nandakumar12.crd.app.service.JsonObjectScanner;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the data store as a plain java library, it is opened from a {@link Builder} and every
+ * call runs on the calling thread against the {@link DataRepository}, there is no spring context
+ * to start. The web application is built on the same store, see
+ * {@link com.nandakumar12.crd.app.config.StoreConfig}
+ *
+ * <pre>
+ * try (CrdStore store = CrdStore.builder().filePath("data").open()) {
+ *   store.create("user-1", "{\"name\":\"value\"}", 60);
+ *   Optional&lt;String&gt; value = store.get("user-1");
+ * }
+ * </pre>
+ *
+ * <p>a value is a json object of at most 16Kb and a key has at most 32 chars, like in the rest
+ * api. The time to live is given in seconds, 0 for a value which never expires
+ *
+ * <p>a file path is opened by a single store at once, other processes can read its snapshots with
+ * a {@link CrdSnapshot}
+ *
+ * @author Nandakumar12
+ */
+public final class CrdStore implements AutoCloseable {
+
+  /** the maximum number of chars of a key */
+  public static final int MAX_KEY_LENGTH = 32;
+
+  /** the maximum size of a value in Kb */
+  public static final int MAX_VALUE_KB = 16;
+
+  private final DataRepository repository;
+
+  private CrdStore(DataRepository repository) {
+    this.repository = repository;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * This is the configuration of a store, the defaults are the ones of the web application
+   * configuration {@code application.yml}
+   */
+  public static final class Builder {
+
+    private String filePath = "./";
+
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+
+    private long groupCommitIntervalMs = 50;
+
+    private long snapshotIntervalMs = 60_000;
+
+    private long snapshotMinLogBytes = 1024 * 1024;
+
+    private long maxStoreSizeBytes = 1024 * 1024 * 1024;
+
+    private long expiryTickMs = 100;
+
+    private int expiryBudgetPerTick = 10_000;
+
+    private StorageMode storageMode = StorageMode.HEAP;
+
+    private long offHeapCapacityBytes = 1024 * 1024 * 1024;
+
+    private int shards = 1;
+
+    private int recoveryThreads;
+
+    private long memoryBudgetBytes;
+
+    private EvictionMode evictionPolicy = EvictionMode.REJECT;
+
+    private int coldSegmentBytes = 64 * 1024 * 1024;
+
+    private boolean orderedIndex;
+
+    private Builder() {}
+
+    /** the directory of the data store files */
+    public Builder filePath(String filePath) {
+      this.filePath = filePath;
+      return this;
+    }
+
+    /** when the write ahead log is forced to the disk */
+    public Builder fsyncPolicy(FsyncPolicy fsyncPolicy) {
+      this.fsyncPolicy = fsyncPolicy;
+      return this;
+    }
+
+    /**
+     * the interval of the committer of the log, see
+     * {@link com.nandakumar12.crd.app.persistence.WriteAheadLog}
+     */
+    public Builder groupCommitIntervalMs(long groupCommitIntervalMs) {
+      this.groupCommitIntervalMs = groupCommitIntervalMs;
+      return this;
+    }
+
+    /** the delay between two background snapshots */
+    public Builder snapshotIntervalMs(long snapshotIntervalMs) {
+      this.snapshotIntervalMs = snapshotIntervalMs;
+      return this;
+    }
+
+    /** a background snapshot is skipped while the write ahead log is smaller than this */
+    public Builder snapshotMinLogBytes(long snapshotMinLogBytes) {
+      this.snapshotMinLogBytes = snapshotMinLogBytes;
+      return this;
+    }
+
+    /** the quota of the data store files */
+    public Builder maxStoreSizeBytes(long maxStoreSizeBytes) {
+      this.maxStoreSizeBytes = maxStoreSizeBytes;
+      return this;
+    }
+
+    /** the resolution of the background expiry */
+    public Builder expiryTickMs(long expiryTickMs) {
+      this.expiryTickMs = expiryTickMs;
+      return this;
+    }
+
+    /** the maximum number of keys removed by the background expiry in one tick */
+    public Builder expiryBudgetPerTick(int expiryBudgetPerTick) {
+      this.expiryBudgetPerTick = expiryBudgetPerTick;
+      return this;
+    }
+
+    /** where the values are kept */
+    public Builder storageMode(StorageMode storageMode) {
+      this.storageMode = storageMode;
+      return this;
+    }
+
+    /** the maximum direct memory of the values in {@link StorageMode#OFF_HEAP} */
+    public Builder offHeapCapacityBytes(long offHeapCapacityBytes) {
+      this.offHeapCapacityBytes = offHeapCapacityBytes;
+      return this;
+    }
+
+    /** the number of partitions of the keys */
+    public Builder shards(int shards) {
+      this.shards = shards;
+      return this;
+    }
+
+    /** the threads loading the shards on open, 0 uses every core */
+    public Builder recoveryThreads(int recoveryThreads) {
+      this.recoveryThreads = recoveryThreads;
+      return this;
+    }
+
+    /** the approximate bytes of the keys and values held in memory, 0 for no limit */
+    public Builder memoryBudgetBytes(long memoryBudgetBytes) {
+      this.memoryBudgetBytes = memoryBudgetBytes;
+      return this;
+    }
+
+    /** what a write which doesn't fit the memory budget does */
+    public Builder evictionPolicy(EvictionMode evictionPolicy) {
+      this.evictionPolicy = evictionPolicy;
+      return this;
+    }
+
+    /** the size of the segment files of {@link StorageMode#TIERED} */
+    public Builder coldSegmentBytes(int coldSegmentBytes) {
+      this.coldSegmentBytes = coldSegmentBytes;
+      return this;
+    }
+
+    /** keeps the keys sorted for {@link DataRepository#scan} */
+    public Builder orderedIndex(boolean orderedIndex) {
+      this.orderedIndex = orderedIndex;
+      return this;
+    }
+
+    /**
+     * This method will open the data store, its files are recovered before it returns
+     *
+     * @return CrdStore this is the opened store, it has to be closed
+     * @throws IOException if some error occurs during reading the files
+     * @throws DataStoreSizeExceeded if the size of the data store is greater than the quota
+     * @throws IllegalStateException if the file path is already opened by another store
+     */
+    public CrdStore open() throws IOException, DataStoreSizeExceeded {
+      DataRepository repository = new DataRepository();
+      repository.filePath = filePath;
+      repository.fsyncPolicy = fsyncPolicy;
+      repository.groupCommitIntervalMs = groupCommitIntervalMs;
+      repository.snapshotIntervalMs = snapshotIntervalMs;
+      repository.snapshotMinLogBytes = snapshotMinLogBytes;
+      repository.maxStoreSizeBytes = maxStoreSizeBytes;
+      repository.expiryTickMs = expiryTickMs;
+      repository.expiryBudgetPerTick = expiryBudgetPerTick;
+      repository.storageMode = storageMode;
+      repository.offHeapCapacityBytes = offHeapCapacityBytes;
+      repository.shardCount = shards;
+      repository.recoveryThreads = recoveryThreads;
+      repository.memoryBudgetBytes = memoryBudgetBytes;
+      repository.evictionMode = evictionPolicy;
+      repository.coldSegmentBytes = coldSegmentBytes;
+      repository.orderedIndex = orderedIndex;
+      repository.initializeData();
+      return new CrdStore(repository);
+    }
+  }
+
+  /**
+   * This method will read the value of the key
+   *
+   * @param key this is the key of the value
+   * @return Optional<String> this is the value, empty if the key is not found or has expired
+   */
+  public Optional<String> get(String key) {
+    Optional<Data> data = repository.findByKey(key);
+    if (data.isPresent() && isExpired(data.get())) {
+      repository.expireIfDue(key, data.get().getExpiresAt());
+      return Optional.empty();
+    }
+    return data.map(Data::getValue);
+  }
+
+  /**
+   * This method will store the value only if the key is free or its value has expired, like the
+   * create of the rest api
+   *
+   * @param key this is the key of the value
+   * @param value this is the json object to be stored
+   * @param timeToLiveSeconds this is the time to live of the value, 0 if it never expires
+   * @throws DuplicateKeyException if the key holds a value which hasn't expired
+   * @throws InvalidKeyException if the key is longer than the limit
+   * @throws InvalidDataException if the value is not a json object of at most 16Kb
+   * @throws DataStoreSizeExceeded if the value doesn't fit the memory budget
+   */
+  public void create(String key, String value, long timeToLiveSeconds)
+      throws DuplicateKeyException, InvalidKeyException, InvalidDataException,
+          DataStoreSizeExceeded {
+    repository.createIfAbsentOrExpired(key, data(key, value, timeToLiveSeconds));
+  }
+
+  /**
+   * This method will store the value whether the key is free or not, the value it held before is
+   * replaced
+   *
+   * @param key this is the key of the value
+   * @param value this is the json object to be stored
+   * @param timeToLiveSeconds this is the time to live of the value, 0 if it never expires
+   * @throws InvalidKeyException if the key is longer than the limit
+   * @throws InvalidDataException if the value is not a json object of at most 16Kb
+   * @throws DataStoreSizeExceeded if the value doesn't fit the memory budget
+   */
+  public void put(String key, String value, long timeToLiveSeconds)
+      throws InvalidKeyException, InvalidDataException, DataStoreSizeExceeded {
+    repository.createData(key, data(key, value, timeToLiveSeconds));
+  }
+
+  /**
+   * This method will delete the key
+   *
+   * @param key this is the key of the value
+   * @return Optional<String> this is the deleted value, empty if the key is not found or has
+   *     expired
+   */
+  public Optional<String> delete(String key) {
+    try {
+      return Optional.of(repository.deleteIfValid(key).getValue());
+    } catch (DataNotFoundException | ValueExpiredException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * This method will return the repository of the store, for the callers which need more than
+   * the operations of the store like the services of the web application
+   *
+   * @return DataRepository this is the repository of the store
+   */
+  public DataRepository repository() {
+    return repository;
+  }
+
+  /**
+   * This method will close the store, the background threads are stopped and a snapshot of every
+   * shard is written so the next open doesn't have to replay the logs
+   *
+   * @throws IOException if some error occurs during writing the snapshots
+   * @throws DataStoreSizeExceeded if the size of the data store exceeds the quota
+   */
+  @Override
+  public void close() throws IOException, DataStoreSizeExceeded {
+    repository.writeDataToFile();
+  }
+
+  private static Data data(String key, String value, long timeToLiveSeconds)
+      throws InvalidKeyException, InvalidDataException {
+    checkKey(key);
+    checkSize(value);
+    if (timeToLiveSeconds < 0) {
+      throw new InvalidDataException("The ttl is not an valid number");
+    }
+    // the value is written into the exports and the rest responses as it is, it must be json
+    JsonObjectScanner.validate(value);
+    return new Data(value, expiryOf(timeToLiveSeconds));
+  }
+
+  private static boolean isExpired(Data data) {
+    return data.getExpiresAt() != 0 && data.getExpiresAt() < System.currentTimeMillis();
+  }
+
+  /**
+   * This method will check the length of a key against the limit of 32 chars
+   *
+   * @param key this is the key of the data
+   * @throws InvalidKeyException if the key is missing or longer than the limit
+   */
+  public static void checkKey(String key) throws InvalidKeyException {
+    if (key == null) {
+      throw new InvalidKeyException("key can't be null");
+    }
+    if (key.length() > MAX_KEY_LENGTH) {
+      throw new InvalidKeyException("key size exceeds 32 chars");
+    }
+  }
+
+  /**
+   * This method will check the size of a value against the limit of 16Kb
+   *
+   * @param value this is the json value
+   * @throws InvalidDataException if the value is missing or larger than the limit
+   */
+  public static void checkSize(String value) throws InvalidDataException {
+    if (value == null) {
+      throw new InvalidDataException("Data can't be null");
+    }
+    if (utf8Length(value) / 1024 > MAX_VALUE_KB) {
+      throw new InvalidDataException("Data size exceeded 16Kb");
+    }
+  }
+
+  /** counts the UTF-8 bytes of the text without encoding it */
+  static int utf8Length(String text) {
+    int length = text.length();
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c >= 0x800) {
+        // a surrogate pair is 4 bytes for 2 chars, any other char is 3 bytes
+        length += Character.isSurrogate(c) ? 1 : 2;
+      } else if (c >= 0x80) {
+        length++;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * This method will convert the time to live in seconds into the absolute expiry timestamp
+   *
+   * @param ttl this is the time to live in seconds, 0 if the data never expires
+   * @return long This is the expiry timestamp in millis, 0 if the data never expires
+   */
+  public static long expiryOf(long ttl) {
+    return ttl == 0 ? 0 : System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(ttl);
+  }
+}
@@ -1,104 +1,486 @@
 package com.nandakumar12.crd.app.repository;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
 import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.DuplicateKeyException;
+import com.nandakumar12.crd.app.exception.ValueExpiredException;
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.eviction.MemoryBudget;
+import com.nandakumar12.crd.app.expiry.ExpiryEngine;
 import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.RawData;
+import com.nandakumar12.crd.app.persistence.Durability;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import com.nandakumar12.crd.app.persistence.JsonSnapshotLoader;
+import com.nandakumar12.crd.app.persistence.SnapshotReader;
+import com.nandakumar12.crd.app.persistence.Snapshotter;
+import com.nandakumar12.crd.app.persistence.StoreLock;
+import com.nandakumar12.crd.app.persistence.WriteAheadLog;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.ApplicationContext;
-import org.springframework.stereotype.Repository;
-import javax.annotation.PostConstruct;
-import javax.annotation.PreDestroy;
 import java.io.*;
-import java.lang.reflect.Type;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
-import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * This is the utility class which we will use to interact with our datastore (currently file)
  *
+ * <p>the keys are split by their hash into {@link Shard}s, each with its own map, write ahead log,
+ * snapshot file and background threads. A single shard keeps its files directly in the file path,
+ * the shards of a data store of N shards are kept in {@code shards-N/<index>/}
+ *
+ * <p>each shard has its part of the memory budget, a write that doesn't fit either evicts other
+ * keys in the order of the {@link EvictionMode} or is refused, see {@link MemoryBudget}. In
+ * {@link StorageMode#TIERED} the evicted keys are spilled to the disk instead of deleted
+ *
+ * <p>with the ordered index each shard also keeps its keys sorted, which serves the prefix and
+ * range scans, see {@link #scan}
+ *
+ * <p>the repository is configured, opened and closed by a {@link CrdStore}, it doesn't depend on
+ * spring, the web application gets it from the store built by
+ * {@link com.nandakumar12.crd.app.config.StoreConfig}
+ *
  * @author Nandakumar12
  */
-@Repository
 @Slf4j
 public class DataRepository {
 
-  @Autowired ApplicationContext applicationContext;
-
-  @Value("${application.file-path:./}")
   String filePath;
 
-  Map<String, Data> data = null;
+  FsyncPolicy fsyncPolicy;
+
+  long groupCommitIntervalMs;
+
+  long snapshotIntervalMs;
+
+  long snapshotMinLogBytes;
+
+  long maxStoreSizeBytes;
+
+  long expiryTickMs;
+
+  int expiryBudgetPerTick;
+
+  StorageMode storageMode;
+
+  long offHeapCapacityBytes;
+
+  int shardCount;
+
+  int recoveryThreads;
+
+  long memoryBudgetBytes;
+
+  EvictionMode evictionMode;
+
+  int coldSegmentBytes;
+
+  boolean orderedIndex;
+
+  Shard[] shards;
+
+  ExpiryEngine expiryEngine;
+
+  StoreLock storeLock;
 
   /**
-   * This method will be automatically invoked by spring after the bean creation this will read the
-   * data from datastore and initialize into in-memory variable {@link DataRepository#data} for
-   * faster access
+   * This method will be invoked by {@link CrdStore.Builder#open} once the repository is configured,
+   * this will read the data from datastore and initialize into in-memory variable {@link
+   * Shard#data} of every shard for faster access ({@link StorageMode#OFF_HEAP} keeps the values
+   * outside of the java heap), the shards are recovered in parallel: the snapshot file of a shard
+   * is read through a memory mapping and expired entries are skipped, then the changes recorded in
+   * the write ahead log of the shard after its last snapshot are replayed on top of it
+   *
+   * <p>a data store written with another number of shards is resharded once: its entries are
+   * routed into the new shards, whose snapshots are written next to it and moved in place with a
+   * single rename before the old files are deleted. A legacy {@code data.json} data store is
+   * migrated the same way and renamed to {@code data.json.migrated}
+   *
+   * <p>the entries recovered into {@link StorageMode#TIERED} shards are written to the segments,
+   * they are moved to memory when they are read
+   *
+   * <p>the {@link StoreLock} of the file path is taken before any file is read and held until
+   * {@link #writeDataToFile}, a data store opened by another process fails the startup, the other
+   * processes can read its snapshots with a {@link CrdSnapshot}
    *
    * @return nothing
    * @throws IOException if some error occurs during reading the file
-   * @throws DataStoreSizeExceeded if the size of the data is greater than 1GB
+   * @throws DataStoreSizeExceeded if the size of the data store is greater than the quota
+   * @throws IllegalStateException if the data store is opened by another process
    */
-  @PostConstruct
   void initializeData() throws IOException, DataStoreSizeExceeded {
-    File file = new File(filePath + "\\data.json");
-    if (file.createNewFile()) {
-      log.info("File is created!");
+    if (storageMode == StorageMode.TIERED
+        && (memoryBudgetBytes <= 0 || evictionMode == EvictionMode.REJECT)) {
+      throw new IllegalStateException(
+          "The TIERED mode needs a memory budget and an eviction policy other than REJECT");
+    }
+    storeLock = StoreLock.acquire(Paths.get(filePath));
+    try {
+      recover();
+    } catch (IOException | DataStoreSizeExceeded | RuntimeException e) {
+      storeLock.close();
+      throw e;
+    }
+  }
+
+  private void recover() throws IOException, DataStoreSizeExceeded {
+    shards = new Shard[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      shards[i] =
+          new Shard(
+              shardDirectory(shardCount, i),
+              newDataMap(i),
+              new MemoryBudget(memoryBudgetBytes / shardCount, evictionMode),
+              orderedIndex);
+    }
+    if (shardCount > 1) {
+      deleteRecursively(stagingDirectory());
+    }
+    List<Integer> storedCounts = storedShardCounts();
+    Path legacyFile = Paths.get(filePath, "data.json");
+    long start = System.nanoTime();
+    boolean migrate = true;
+    if (storedCounts.remove((Integer) shardCount)) {
+      checkQuota(shardCount);
+      forEachShard(shardCount, i -> load(shardDirectory(shardCount, i), key -> shards[i]));
+      for (int count : storedCounts) {
+        log.info("Deleting the data store of {} shards left over from a resharding", count);
+        deleteShards(count);
+      }
+      migrate = false;
+    } else if (storedCounts.size() > 1) {
+      throw new IllegalStateException(
+          "Found data stores of " + storedCounts + " shards in " + filePath + ", keep only one");
+    } else if (storedCounts.size() == 1) {
+      int storedCount = storedCounts.get(0);
+      checkQuota(storedCount);
+      log.info("Resharding the data store from {} to {} shards", storedCount, shardCount);
+      forEachShard(storedCount, i -> load(shardDirectory(storedCount, i), this::shard));
+    } else if (Files.exists(legacyFile)) {
+      checkQuota(Files.size(legacyFile));
+      log.info("Migrating {} to the binary data store", legacyFile);
+      new JsonSnapshotLoader()
+          .read(legacyFile, (key, value) -> shard(key).restore(key, value), System.currentTimeMillis());
     } else {
-      if ((double) file.length() / (1024 * 1024) > 1024) {
-        throw new DataStoreSizeExceeded("The data store size is greater than 1Gb");
+      log.info("No data store present, starting empty");
+      migrate = false;
+    }
+    log.info(
+        "Recovered {} shards in {} ms", shardCount, (System.nanoTime() - start) / 1_000_000);
+    if (migrate) {
+      writeMigratedShards();
+      if (storedCounts.isEmpty()) {
+        Files.move(legacyFile, legacyFile.resolveSibling("data.json.migrated"));
+      } else {
+        deleteShards(storedCounts.get(0));
+      }
+    }
+    for (int i = 0; i < shardCount; i++) {
+      shards[i].open(fsyncPolicy, groupCommitIntervalMs, maxStoreSizeBytes / shardCount);
+      // spread over the interval, so the shards don't write their snapshots at the same time
+      shards[i].snapshotter.schedule(
+          snapshotIntervalMs + snapshotIntervalMs * i / shardCount,
+          snapshotIntervalMs,
+          snapshotMinLogBytes);
+    }
+    for (Shard shard : shards) {
+      shard.indexKeys();
+    }
+    if (storageMode != StorageMode.TIERED) {
+      // the recovered entries of a tiered shard are all cold
+      for (Shard shard : shards) {
+        shard.data.forEach((key, value) -> shard.budget.written(key, null, value));
       }
-      Gson gson = new Gson();
-      log.info("File already exists.");
-      Type type = new TypeToken<ConcurrentHashMap<String, Data>>() {}.getType();
-      data = gson.fromJson(new FileReader(file), type);
+      fitRecoveredData();
     }
-    if (data == null) {
-      data = new ConcurrentHashMap<>();
+    expiryEngine = new ExpiryEngine(expiryTickMs, expiryBudgetPerTick, this::expireIfDue);
+    for (Shard shard : shards) {
+      shard.forEachExpiry(expiryEngine::schedule);
+    }
+  }
+
+  /**
+   * the map of a shard for the storage mode, the segments of the {@link StorageMode#TIERED} shards
+   * are kept in {@code cold/<index>/} of the file path and rebuilt on every startup
+   */
+  private Map<String, Data> newDataMap(int index) throws IOException {
+    switch (storageMode) {
+      case OFF_HEAP:
+        return new OffHeapDataMap(offHeapCapacityBytes / shardCount);
+      case TIERED:
+        return new TieredDataMap(
+            Paths.get(filePath, "cold", Integer.toString(index)), coldSegmentBytes);
+      default:
+        return new ConcurrentHashMap<>();
+    }
+  }
+
+  /**
+   * the recovered data may not fit a budget that was lowered since it was written, the evicting
+   * modes evict down to the budget, the reject mode keeps the data and refuses the writes until
+   * enough keys are deleted
+   */
+  private void fitRecoveredData() {
+    for (Shard shard : shards) {
+      if (shard.budget.fits(0)) {
+        continue;
+      }
+      if (!shard.budget.isEvicting()) {
+        log.warn(
+            "The recovered data of {} bytes exceeds the memory budget of {} bytes, the writes are refused",
+            shard.budget.getUsedBytes(),
+            shard.budget.getLimitBytes());
+        continue;
+      }
+      long evicted = shard.budget.getEvictions();
+      trim(shard);
+      log.info(
+          "Evicted {} recovered keys of {} to fit the memory budget",
+          shard.budget.getEvictions() - evicted,
+          shard.directory);
     }
   }
 
   /**
-   * This method will be automatically invoked during the destruction of bean spring will
-   * automatically inject an shutdown hook to jvm to invoke this method this will serialize the data
-   * present in {@link DataRepository#data} and store it in the data store
+   * This method will return the shard of the key, {@link String#hashCode()} is specified by the
+   * language so a key is mapped to the same shard on every run
+   *
+   * @param key this is the key of the data
+   * @return Shard this is the shard holding the key
+   */
+  Shard shard(String key) {
+    int hash = key.hashCode();
+    return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+  }
+
+  /** loads the snapshot and replays the log of a shard directory into the shards of the keys */
+  private static void load(Path directory, Function<String, Shard> shardOf)
+      throws IOException {
+    Path dataFile = directory.resolve(Shard.DATA_FILE);
+    if (Files.exists(dataFile)) {
+      new SnapshotReader()
+          .read(dataFile, (key, value) -> shardOf.apply(key).restore(key, value), System.currentTimeMillis());
+    }
+    try (WriteAheadLog writeAheadLog =
+        new WriteAheadLog(directory.resolve(Shard.LOG_FILE), FsyncPolicy.OS, 0)) {
+      long replayed =
+          writeAheadLog.replay(
+              new WriteAheadLog.Replayer() {
+                @Override
+                public void put(String key, String value, long expiresAt) {
+                  shardOf.apply(key).restore(key, new Data(value, expiresAt));
+                }
+
+                @Override
+                public void delete(String key) {
+                  shardOf.apply(key).data.remove(key);
+                }
+              });
+      log.info("Replayed {} records from the write ahead log of {}", replayed, directory);
+    }
+  }
+
+  /**
+   * writes the snapshots of the resharded or migrated data, a sharded data store is written into
+   * the staging directory which is then renamed in place, so a crash leaves either the old data
+   * store or the complete new one
+   */
+  private void writeMigratedShards() throws IOException, DataStoreSizeExceeded {
+    Path target = shardCount == 1 ? Paths.get(filePath) : stagingDirectory();
+    forEachShard(
+        shardCount,
+        i -> {
+          Path directory = shardCount == 1 ? target : target.resolve(Integer.toString(i));
+          Files.createDirectories(directory);
+          try (WriteAheadLog writeAheadLog =
+              new WriteAheadLog(directory.resolve(Shard.LOG_FILE), FsyncPolicy.OS, 0)) {
+            new Snapshotter(
+                    directory.resolve(Shard.DATA_FILE),
+                    shards[i].data,
+                    writeAheadLog,
+                    new ReentrantLock(),
+                    maxStoreSizeBytes / shardCount)
+                .snapshot();
+          }
+        });
+    if (shardCount > 1) {
+      Files.move(target, shardsDirectory(shardCount), StandardCopyOption.ATOMIC_MOVE);
+    }
+  }
+
+  /** the task run for every shard by {@link #forEachShard} */
+  @FunctionalInterface
+  private interface ShardTask {
+    void run(int index) throws IOException, DataStoreSizeExceeded;
+  }
+
+  /**
+   * runs the task for every shard on a pool of the configured recovery threads (all the cores by
+   * default) and waits for all of them before the first failure is thrown
+   */
+  private void forEachShard(int count, ShardTask task) throws IOException, DataStoreSizeExceeded {
+    int threads = recoveryThreads > 0 ? recoveryThreads : Runtime.getRuntime().availableProcessors();
+    ForkJoinPool pool = new ForkJoinPool(Math.min(threads, count));
+    try {
+      List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        int index = i;
+        tasks.add(
+            pool.submit(
+                () -> {
+                  task.run(index);
+                  return null;
+                }));
+      }
+      Throwable failure = null;
+      for (ForkJoinTask<Void> shardTask : tasks) {
+        try {
+          shardTask.get();
+        } catch (ExecutionException e) {
+          failure = failure == null ? e.getCause() : failure;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while waiting for the shards");
+        }
+      }
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      } else if (failure instanceof DataStoreSizeExceeded) {
+        throw (DataStoreSizeExceeded) failure;
+      } else if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure != null) {
+        throw new IllegalStateException(failure);
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /** the shard counts of the data stores present in the file path, 1 is the unsharded layout */
+  private List<Integer> storedShardCounts() throws IOException {
+    List<Integer> counts = new ArrayList<>();
+    Path root = Paths.get(filePath);
+    if (!Files.isDirectory(root)) {
+      return counts;
+    }
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(root)) {
+      for (Path path : stream) {
+        String name = path.getFileName().toString();
+        if (name.equals(Shard.DATA_FILE)
+            || name.equals(Shard.LOG_FILE)
+            || name.startsWith(Shard.LOG_FILE + ".")) {
+          if (!counts.contains(1)) {
+            counts.add(1);
+          }
+        } else if (name.matches("shards-[0-9]+") && Files.isDirectory(path)) {
+          counts.add(Integer.parseInt(name.substring("shards-".length())));
+        }
+      }
+    }
+    return counts;
+  }
+
+  private Path shardsDirectory(int count) {
+    return Paths.get(filePath, "shards-" + count);
+  }
+
+  private Path stagingDirectory() {
+    return Paths.get(filePath, "shards-" + shardCount + ".tmp");
+  }
+
+  private Path shardDirectory(int count, int index) {
+    return count == 1 ? Paths.get(filePath) : shardsDirectory(count).resolve(Integer.toString(index));
+  }
+
+  private void deleteShards(int count) throws IOException {
+    if (count > 1) {
+      deleteRecursively(shardsDirectory(count));
+      return;
+    }
+    try (DirectoryStream<Path> stream =
+        Files.newDirectoryStream(Paths.get(filePath), Shard.LOG_FILE + "*")) {
+      for (Path segment : stream) {
+        Files.delete(segment);
+      }
+    }
+    Files.deleteIfExists(Paths.get(filePath, Shard.DATA_FILE));
+  }
+
+  private static void deleteRecursively(Path directory) throws IOException {
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private void checkQuota(int count) throws IOException, DataStoreSizeExceeded {
+    long size = 0;
+    for (int i = 0; i < count; i++) {
+      Path dataFile = shardDirectory(count, i).resolve(Shard.DATA_FILE);
+      size += Files.exists(dataFile) ? Files.size(dataFile) : 0;
+    }
+    checkQuota(size);
+  }
+
+  private void checkQuota(long size) throws DataStoreSizeExceeded {
+    if (size > maxStoreSizeBytes) {
+      throw new DataStoreSizeExceeded(
+          "The data store size is greater than the quota of " + maxStoreSizeBytes + " bytes");
+    }
+  }
+
+  /**
+   * This method will be invoked by {@link CrdStore#close}, in the web application spring closes the
+   * store from its shutdown hook, this will stop the background snapshots and take a final snapshot
+   * of every shard in parallel, so the next startup doesn't have to replay the logs, the lock of
+   * the data store is released at last
    *
    * @return nothing
    * @throws IOException if some error occurs during writing the file
-   * @throws DataStoreSizeExceeded if the size of the data is to be written exceeds 1GB
+   * @throws DataStoreSizeExceeded if the size of the data is to be written exceeds the quota
    */
-  @PreDestroy
   void writeDataToFile() throws IOException, DataStoreSizeExceeded {
-    Gson gson = new Gson();
-    String json = gson.toJson(data);
-    ByteBuffer buffer = null;
-    if (json.getBytes(StandardCharsets.UTF_8).length / (1024 * 1024) > 1024) {
-      throw new DataStoreSizeExceeded("The data store size is greater than 1Gb");
-    }
-    if (data != null) {
-      try (FileOutputStream fileOutputStream = new FileOutputStream(filePath + "\\data.json")) {
-        log.info("writing data to data store.." + data);
-        FileChannel fileChannel = fileOutputStream.getChannel();
-        FileLock fileLock = fileChannel.tryLock();
-        if (fileLock == null) {
-          log.info("cant able to acquire lock");
-          return;
-        }
-        buffer = ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8));
-        buffer.put(json.getBytes(StandardCharsets.UTF_8));
-        buffer.flip();
-        while (buffer.hasRemaining()) {
-          fileChannel.write(buffer);
+    try {
+      expiryEngine.close();
+      for (Shard shard : shards) {
+        shard.snapshotter.close();
+      }
+      try {
+        log.info("Writing the snapshots of {} shards", shards.length);
+        forEachShard(shards.length, i -> shards[i].snapshotter.snapshot());
+      } finally {
+        for (Shard shard : shards) {
+          shard.writeAheadLog.close();
+          if (shard.data instanceof TieredDataMap) {
+            ((TieredDataMap) shard.data).close();
+          }
         }
       }
+    } finally {
+      storeLock.close();
     }
   }
 
@@ -110,7 +492,54 @@ public class DataRepository {
    *     optional
    */
   public Optional<Data> findByKey(String key) {
-    return Optional.ofNullable(data.get(key));
+    Shard shard = shard(key);
+    if (shard.data instanceof TieredDataMap) {
+      return Optional.ofNullable(findTiered(shard, key));
+    }
+    Data data = shard.data.get(key);
+    shard.budget.read(key, data != null);
+    return Optional.ofNullable(data);
+  }
+
+  /**
+   * reads the key of a {@link StorageMode#TIERED} shard, a cold value is moved back to memory and
+   * the shard is trimmed to its budget again afterwards, so the read never waits for an eviction
+   * while it holds the key
+   */
+  private Data findTiered(Shard shard, String key) {
+    boolean[] cold = new boolean[1];
+    Data data =
+        ((TieredDataMap) shard.data)
+            .getPromoting(
+                key,
+                (k, value) -> {
+                  cold[0] = true;
+                  shard.budget.written(k, null, value);
+                });
+    if (cold[0]) {
+      shard.budget.faulted();
+      trim(shard);
+    } else {
+      shard.budget.read(key, data != null);
+    }
+    return data;
+  }
+
+  /**
+   * This method will return the respective value for the provided key as UTF-8 bytes, in
+   * {@link StorageMode#OFF_HEAP} the stored bytes are handed over without being decoded
+   *
+   * @param key this is the key of the respective value to be retrieved
+   * @return Optional<RawData> this the respective data for the given key
+   */
+  public Optional<RawData> findRawByKey(String key) {
+    Shard shard = shard(key);
+    if (shard.data instanceof OffHeapDataMap) {
+      RawData data = ((OffHeapDataMap) shard.data).getRaw(key);
+      shard.budget.read(key, data != null);
+      return Optional.ofNullable(data);
+    }
+    return findByKey(key).map(RawData::from);
   }
 
   /**
@@ -121,18 +550,165 @@ public class DataRepository {
    * @throws DataNotFoundException when no data is found for the given key
    */
   public Data deleteByKey(String key) throws DataNotFoundException {
-    Data deletedData = null;
-    if (!data.containsKey(key)) {
+    Data[] deletedData = new Data[1];
+    long[] position = new long[1];
+    Shard shard = shard(key);
+    shard.rollLock.readLock().lock();
+    try {
+      shard.data.computeIfPresent(
+          key,
+          (k, existing) -> {
+            position[0] = shard.writeAheadLog.appendDelete(k);
+            shard.removed(k, existing);
+            deletedData[0] = existing;
+            return null;
+          });
+    } finally {
+      shard.rollLock.readLock().unlock();
+    }
+    await(commit(shard, position[0], fsyncPolicy.durability()));
+    if (deletedData[0] == null) {
       throw new DataNotFoundException("The given key is not present");
-    } else {
-      deletedData = data.remove(key);
     }
-    return deletedData;
+    return deletedData[0];
+  }
+
+  /**
+   * This method will delete and return the data of the key in a single atomic operation, so the
+   * data is deleted only if it was valid at the time of the delete
+   *
+   * @param key this is the key of the respective value to be deleted
+   * @return Data this the respective data for the given key which is being deleted
+   * @throws DataNotFoundException when no data is found for the given key
+   * @throws ValueExpiredException when the data has expired, the expired data is removed
+   */
+  public Data deleteIfValid(String key) throws DataNotFoundException, ValueExpiredException {
+    Data[] deletedData = new Data[1];
+    boolean[] expired = new boolean[1];
+    long[] position = new long[1];
+    long currentTimeStamp = System.currentTimeMillis();
+    Shard shard = shard(key);
+    shard.rollLock.readLock().lock();
+    try {
+      shard.data.computeIfPresent(
+          key,
+          (k, existing) -> {
+            position[0] = shard.writeAheadLog.appendDelete(k);
+            shard.removed(k, existing);
+            expired[0] = isExpired(existing, currentTimeStamp);
+            deletedData[0] = existing;
+            return null;
+          });
+    } finally {
+      shard.rollLock.readLock().unlock();
+    }
+    await(commit(shard, position[0], fsyncPolicy.durability()));
+    if (deletedData[0] == null) {
+      throw new DataNotFoundException("data not found");
+    }
+    if (expired[0]) {
+      throw new ValueExpiredException("The value has expired");
+    }
+    return deletedData[0];
   }
 
   public boolean exits(String key) {
-    log.info("the data is " + data);
-    return data.containsKey(key);
+    return shard(key).data.containsKey(key);
+  }
+
+  /**
+   * This method will hand over a point in time view of every live entry of all the shards, see
+   * {@link Snapshotter#export(List, SnapshotReader.EntryConsumer)}
+   *
+   * @param consumer this receives every live entry exactly once
+   * @return long this is the number of entries exported
+   * @throws IOException if some error occurs during reading or writing the data store
+   * @throws DataStoreSizeExceeded if the size of the data exceeds the quota
+   */
+  public long export(SnapshotReader.EntryConsumer consumer)
+      throws IOException, DataStoreSizeExceeded {
+    List<Snapshotter> snapshotters = new ArrayList<>();
+    for (Shard shard : shards) {
+      snapshotters.add(shard.snapshotter);
+    }
+    return Snapshotter.export(snapshotters, consumer);
+  }
+
+  /**
+   * @return boolean true if the keys are kept in the ordered index which serves {@link #scan}
+   */
+  public boolean isOrdered() {
+    return orderedIndex;
+  }
+
+  /**
+   * This method will hand over the live entries whose key starts with the prefix in the order of
+   * the keys, from the start key on. The ordered indexes of the shards are merged and read without
+   * any lock, so the scan never blocks the writers and is weakly consistent: a key written or
+   * deleted while the scan runs may or may not be handed over, every other key is handed over
+   * exactly once. The values are read without being counted as reads of the memory budget, the
+   * cold values of a {@link StorageMode#TIERED} shard are read from the disk and stay cold
+   *
+   * @param prefix this is the prefix of the keys, empty for every key
+   * @param start this is the first key of the scan, null to start at the prefix
+   * @param limit this is the maximum number of entries handed over
+   * @param consumer this receives the entries
+   * @return String this is the key the next page starts at, null if the scan reached the end
+   * @throws IOException if the consumer fails to take an entry
+   */
+  public String scan(String prefix, String start, int limit, SnapshotReader.EntryConsumer consumer)
+      throws IOException {
+    if (!orderedIndex) {
+      throw new IllegalStateException("The ordered index is disabled");
+    }
+    String from = start == null || start.compareTo(prefix) < 0 ? prefix : start;
+    PriorityQueue<ShardCursor> cursors =
+        new PriorityQueue<>(shards.length, Comparator.comparing(cursor -> cursor.key));
+    for (Shard shard : shards) {
+      ShardCursor cursor = new ShardCursor(shard, shard.keys.tailSet(from, true).iterator());
+      if (cursor.advance(prefix)) {
+        cursors.add(cursor);
+      }
+    }
+    long currentTimeStamp = System.currentTimeMillis();
+    int count = 0;
+    while (!cursors.isEmpty()) {
+      ShardCursor cursor = cursors.poll();
+      Data data = cursor.shard.data.get(cursor.key);
+      // a key removed since it was iterated has no value
+      if (data != null && !isExpired(data, currentTimeStamp)) {
+        if (count == limit) {
+          return cursor.key;
+        }
+        consumer.accept(cursor.key, data);
+        count++;
+      }
+      if (cursor.advance(prefix)) {
+        cursors.add(cursor);
+      }
+    }
+    return null;
+  }
+
+  /** the position of a scan in the ordered index of a shard */
+  private static final class ShardCursor {
+    final Shard shard;
+    final Iterator<String> keys;
+    String key;
+
+    ShardCursor(Shard shard, Iterator<String> keys) {
+      this.shard = shard;
+      this.keys = keys;
+    }
+
+    /** moves to the next key, the keys with the prefix are a single run of the ordered keys */
+    boolean advance(String prefix) {
+      if (!keys.hasNext()) {
+        return false;
+      }
+      key = keys.next();
+      return key.startsWith(prefix);
+    }
   }
 
   /**
@@ -141,15 +717,298 @@ public class DataRepository {
    * @param key this is the key of the respective value to be stored
    * @param value this is the value to be stored
    * @return Data this the respective data for the given key which is being stored
+   * @throws DataStoreSizeExceeded if the data doesn't fit the memory budget or the off-heap memory
+   */
+  public Data createData(String key, Data value) throws DataStoreSizeExceeded {
+    return createData(key, value, fsyncPolicy.durability());
+  }
+
+  /**
+   * This method will store the data like {@link #createData(String, Data)} as durable as asked,
+   * the writes of a bulk load are stored with {@link Durability#NONE} and made durable together
+   * by {@link #commitAll()}
+   *
+   * @param key this is the key of the respective value to be stored
+   * @param value this is the value to be stored
+   * @param durability this is the durability of the write
+   * @return Data this the respective data for the given key which is being stored
+   * @throws DataStoreSizeExceeded if the data doesn't fit the memory budget or the off-heap memory
    */
-  public Data createData(String key, Data value) {
-    if (!value.getTimeToLive().equals("0")) {
-      value.setTimeToLive(
-          Long.toString(
-              System.currentTimeMillis() + (Long.parseLong(value.getTimeToLive())) * 1000));
+  public Data createData(String key, Data value, Durability durability)
+      throws DataStoreSizeExceeded {
+    long[] position = new long[1];
+    Shard shard = shard(key);
+    makeRoom(shard, key, value);
+    Data allocated = shard.allocate(value);
+    shard.rollLock.readLock().lock();
+    try {
+      shard.data.compute(
+          key,
+          (k, existing) -> {
+            position[0] = shard.writeAheadLog.appendPut(k, value.getValue(), value.getExpiresAt());
+            shard.written(k, existing, value);
+            return allocated;
+          });
+    } finally {
+      shard.rollLock.readLock().unlock();
+      shard.release(allocated);
     }
-    log.info("The data is " + value);
-    data.put(key, value);
+    expiryEngine.schedule(key, value.getExpiresAt());
+    await(commit(shard, position[0], durability));
     return value;
   }
+
+  /**
+   * This method will make every record appended so far as durable as the fsync policy asks, the
+   * shards are committed together so their writes and forces overlap
+   *
+   * @throws UncheckedIOException if the log of a shard can't be written or forced
+   */
+  public void commitAll() {
+    List<CompletableFuture<Void>> commits = new ArrayList<>(shards.length);
+    for (Shard shard : shards) {
+      commits.add(commit(shard, shard.writeAheadLog.getAppended(), fsyncPolicy.durability()));
+    }
+    for (CompletableFuture<Void> commit : commits) {
+      await(commit);
+    }
+  }
+
+  /**
+   * This method will store the data with the provided key only if the key is free or its data has
+   * expired, the check and the store are a single atomic operation on the map, so of the
+   * concurrent creates of a key only one succeeds
+   *
+   * @param key this is the key of the respective value to be stored
+   * @param value this is the value to be stored
+   * @return Data this the respective data for the given key which is being stored
+   * @throws DuplicateKeyException if the key holds data that has not expired
+   * @throws DataStoreSizeExceeded if the data doesn't fit the memory budget or the off-heap memory
+   */
+  public Data createIfAbsentOrExpired(String key, Data value)
+      throws DuplicateKeyException, DataStoreSizeExceeded {
+    return await(createIfAbsentOrExpired(key, value, null));
+  }
+
+  /**
+   * This method will store the data like {@link #createIfAbsentOrExpired(String, Data)} and
+   * return once it is stored in memory, the returned future completes when the write is as durable
+   * as asked, so a write waiting for the disk doesn't hold a thread
+   *
+   * @param key this is the key of the respective value to be stored
+   * @param value this is the value to be stored
+   * @param durability this is the durability of the write, null for the one of the fsync policy
+   * @return CompletableFuture<Data> this the stored data, completed once the write is durable or
+   *     with an {@link UncheckedIOException} if the log can't be forced
+   * @throws DuplicateKeyException if the key holds data that has not expired
+   * @throws DataStoreSizeExceeded if the data doesn't fit the memory budget or the off-heap memory
+   */
+  public CompletableFuture<Data> createIfAbsentOrExpired(
+      String key, Data value, Durability durability)
+      throws DuplicateKeyException, DataStoreSizeExceeded {
+    boolean[] duplicate = new boolean[1];
+    long[] position = new long[1];
+    long currentTimeStamp = System.currentTimeMillis();
+    Shard shard = shard(key);
+    // a create of a key that holds live data fails, so it must not evict other keys first, the
+    // compute checks it again atomically
+    Data present = shard.data.get(key);
+    if (present != null && !isExpired(present, currentTimeStamp)) {
+      throw new DuplicateKeyException("Key already exists !");
+    }
+    makeRoom(shard, key, value);
+    Data allocated = shard.allocate(value);
+    shard.rollLock.readLock().lock();
+    try {
+      shard.data.compute(
+          key,
+          (k, existing) -> {
+            if (existing != null && !isExpired(existing, currentTimeStamp)) {
+              duplicate[0] = true;
+              return existing;
+            }
+            position[0] = shard.writeAheadLog.appendPut(k, value.getValue(), value.getExpiresAt());
+            shard.written(k, existing, value);
+            return allocated;
+          });
+    } finally {
+      shard.rollLock.readLock().unlock();
+      shard.release(allocated);
+    }
+    if (duplicate[0]) {
+      throw new DuplicateKeyException("Key already exists !");
+    }
+    expiryEngine.schedule(key, value.getExpiresAt());
+    return commit(shard, position[0], durability == null ? fsyncPolicy.durability() : durability)
+        .handle(
+            (committed, failure) -> {
+              if (failure != null) {
+                throw unchecked(failure);
+              }
+              return value;
+            });
+  }
+
+  /**
+   * This method will make room for the data of the key before it is stored, the bytes freed by
+   * overwriting the key are counted only when the data doesn't fit without them. The concurrent
+   * writers of a shard may overshoot the budget by the size of their data, the next write
+   * evicts it back
+   *
+   * @param shard this is the shard of the key
+   * @param key this is the key to be stored
+   * @param value this is the data to be stored
+   * @throws DataStoreSizeExceeded if the data can't fit or the mode refuses the writes that don't
+   */
+  private void makeRoom(Shard shard, String key, Data value) throws DataStoreSizeExceeded {
+    MemoryBudget budget = shard.budget;
+    long weight = MemoryBudget.weigh(key, value);
+    if (budget.fits(weight)) {
+      return;
+    }
+    Data existing = shard.isCold(key) ? null : shard.data.get(key);
+    long freed = existing == null ? 0 : MemoryBudget.weigh(key, existing);
+    String victim;
+    while (!budget.fits(weight - freed)) {
+      if (weight > budget.getLimitBytes() || (victim = budget.victim()) == null) {
+        budget.rejected();
+        throw new DataStoreSizeExceeded(
+            "The memory budget of " + budget.getLimitBytes() + " bytes is exhausted");
+      }
+      evict(shard, victim);
+      if (victim.equals(key)) {
+        freed = 0;
+      }
+    }
+  }
+
+  /** evicts the policy's victims until the shard fits its budget again */
+  private void trim(Shard shard) {
+    String victim;
+    while (!shard.budget.fits(0) && (victim = shard.budget.victim()) != null) {
+      evict(shard, victim);
+    }
+  }
+
+  /**
+   * removes the victim and logs its delete, the victim of a {@link StorageMode#TIERED} shard is
+   * spilled to the segments instead, a victim removed meanwhile is only forgotten
+   */
+  private void evict(Shard shard, String victim) {
+    boolean[] evicted = new boolean[1];
+    long[] position = new long[1];
+    if (shard.data instanceof TieredDataMap) {
+      evicted[0] = ((TieredDataMap) shard.data).spill(victim, shard.budget::removed);
+    } else {
+      shard.rollLock.readLock().lock();
+      try {
+        shard.data.computeIfPresent(
+            victim,
+            (k, existing) -> {
+              position[0] = shard.writeAheadLog.appendDelete(k);
+              shard.removed(k, existing);
+              evicted[0] = true;
+              return null;
+            });
+      } finally {
+        shard.rollLock.readLock().unlock();
+      }
+      // a lost delete of a victim is evicted again when the data store is recovered
+      commit(shard, position[0], Durability.NONE);
+    }
+    if (evicted[0]) {
+      shard.budget.evicted();
+    } else {
+      shard.budget.forget(victim);
+    }
+  }
+
+  /**
+   * This method will return the memory budgets of the shards, which hold the used bytes, the hit
+   * and miss counts of the reads and the eviction counts of each shard
+   *
+   * @return List<MemoryBudget> these are the budgets in the order of the shards
+   */
+  public List<MemoryBudget> getMemoryBudgets() {
+    List<MemoryBudget> budgets = new ArrayList<>();
+    for (Shard shard : shards) {
+      budgets.add(shard.budget);
+    }
+    return budgets;
+  }
+
+  private static boolean isExpired(Data value, long currentTimeStamp) {
+    return value.getExpiresAt() != 0 && value.getExpiresAt() < currentTimeStamp;
+  }
+
+  /**
+   * This method will remove the data of the key if it is still stored with the given expiry and
+   * that expiry has passed, so a key that was overwritten meanwhile is kept. It is invoked by the
+   * {@link ExpiryEngine} when a key is due and by the reads that find an expired value
+   *
+   * @param key this is the key of the expired data
+   * @param expiresAt this is the expiry the key was scheduled with
+   * @return boolean true if the key was removed
+   */
+  public boolean expireIfDue(String key, long expiresAt) {
+    boolean[] expired = new boolean[1];
+    long[] position = new long[1];
+    long currentTimeStamp = System.currentTimeMillis();
+    Shard shard = shard(key);
+    shard.rollLock.readLock().lock();
+    try {
+      shard.data.computeIfPresent(
+          key,
+          (k, existing) -> {
+            if (existing.getExpiresAt() != expiresAt || expiresAt >= currentTimeStamp) {
+              return existing;
+            }
+            position[0] = shard.writeAheadLog.appendDelete(k);
+            shard.removed(k, existing);
+            expired[0] = true;
+            return null;
+          });
+    } finally {
+      shard.rollLock.readLock().unlock();
+    }
+    // a lost delete of an expired key is skipped when the data store is recovered
+    commit(shard, position[0], Durability.NONE);
+    return expired[0];
+  }
+
+  /**
+   * The log is appended inside the map's compute so that the order of the records for a key in
+   * the log is the same order in which they are applied to the map, the record is committed after
+   * the locks of the shard are released, so a write waiting for the disk doesn't block the others
+   */
+  private static CompletableFuture<Void> commit(
+      Shard shard, long position, Durability durability) {
+    try {
+      return shard.writeAheadLog.commit(position, durability);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to write the write ahead log", e);
+    }
+  }
+
+  private static <T> T await(CompletableFuture<T> commit) {
+    try {
+      return commit.join();
+    } catch (CompletionException e) {
+      throw unchecked(e);
+    }
+  }
+
+  /** the failure of a commit as the writers see it, a failed force is an UncheckedIOException */
+  private static RuntimeException unchecked(Throwable failure) {
+    Throwable cause = failure;
+    if (cause instanceof CompletionException && cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    if (cause instanceof IOException) {
+      return new UncheckedIOException("Unable to force the write ahead log", (IOException) cause);
+    }
+    return cause instanceof RuntimeException
+        ? (RuntimeException) cause
+        : new CompletionException(cause);
+  }
 }
@@ -0,0 +1,131 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.eviction.MemoryBudget;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * This class will publish the state of the {@link DataRepository} as metrics, every value is
+ * summed over the shards when the registry is scraped, so nothing is recorded on the request path
+ *
+ * @author  Nandakumar12
+ */
+@Component
+@AllArgsConstructor
+public class DataRepositoryMetrics implements MeterBinder {
+
+  private final DataRepository dataRepository;
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    gauge(registry, "crd.store.keys", "The keys of the data store, the cold keys included", null,
+        repository -> sum(repository, shard -> shard.data.size()));
+    gauge(registry, "crd.store.memory", "The approximate bytes of the entries held in memory", "bytes",
+        repository -> sumBudgets(repository, MemoryBudget::getUsedBytes));
+    gauge(registry, "crd.store.cold", "The bytes of the live values spilled to the disk", "bytes",
+        DataRepositoryMetrics::coldBytes);
+    counter(registry, "crd.store.hits", "The reads which found their key in memory",
+        MemoryBudget::getHits);
+    counter(registry, "crd.store.misses", "The reads which didn't find their key in memory",
+        MemoryBudget::getMisses);
+    counter(registry, "crd.store.cold.reads", "The reads of keys spilled to the disk",
+        MemoryBudget::getColdReads);
+    counter(registry, "crd.store.evictions", "The keys evicted to fit the memory budget",
+        MemoryBudget::getEvictions);
+    counter(registry, "crd.store.rejections", "The writes refused by the memory budget",
+        MemoryBudget::getRejections);
+
+    gauge(registry, "crd.expiry.backlog", "The expired keys waiting for the budget of a tick", null,
+        repository -> repository.expiryEngine.getBacklogSize());
+    gauge(registry, "crd.expiry.scheduled", "The keys waiting for their expiry", null,
+        repository -> repository.expiryEngine.getScheduledSize());
+    TimeGauge.builder(
+            "crd.expiry.lag",
+            dataRepository,
+            TimeUnit.MILLISECONDS,
+            repository -> repository.expiryEngine.getLagMillis())
+        .description("How long the oldest key of the backlog is past its expiry")
+        .register(registry);
+    FunctionCounter.builder(
+            "crd.expiry.removed",
+            dataRepository,
+            repository -> repository.expiryEngine.getExpiredCount())
+        .description("The keys removed by the background expiry")
+        .register(registry);
+
+    FunctionTimer.builder(
+            "crd.wal.sync",
+            dataRepository,
+            repository -> sum(repository, shard -> shard.writeAheadLog.getSyncCount()),
+            repository -> sum(repository, shard -> shard.writeAheadLog.getSyncNanos()),
+            TimeUnit.NANOSECONDS)
+        .description("The forces of the write ahead logs to the disk")
+        .register(registry);
+    FunctionTimer.builder(
+            "crd.snapshot",
+            dataRepository,
+            repository -> sum(repository, shard -> shard.snapshotter.getSnapshotCount()),
+            repository -> sum(repository, shard -> shard.snapshotter.getTotalDurationMillis()),
+            TimeUnit.MILLISECONDS)
+        .description("The snapshots of the shards")
+        .register(registry);
+    FunctionCounter.builder(
+            "crd.snapshot.written",
+            dataRepository,
+            repository -> sum(repository, shard -> shard.snapshotter.getTotalBytesWritten()))
+        .description("The bytes written by the snapshots")
+        .baseUnit("bytes")
+        .register(registry);
+  }
+
+  private void gauge(
+      MeterRegistry registry,
+      String name,
+      String description,
+      String baseUnit,
+      ToDoubleFunction<DataRepository> value) {
+    Gauge.builder(name, dataRepository, value)
+        .description(description)
+        .baseUnit(baseUnit)
+        .register(registry);
+  }
+
+  private void counter(
+      MeterRegistry registry,
+      String name,
+      String description,
+      ToLongFunction<MemoryBudget> count) {
+    FunctionCounter.builder(name, dataRepository, repository -> sumBudgets(repository, count))
+        .description(description)
+        .register(registry);
+  }
+
+  private static long sum(DataRepository repository, ToLongFunction<Shard> value) {
+    long sum = 0;
+    for (Shard shard : repository.shards) {
+      sum += value.applyAsLong(shard);
+    }
+    return sum;
+  }
+
+  private static long sumBudgets(DataRepository repository, ToLongFunction<MemoryBudget> value) {
+    return sum(repository, shard -> value.applyAsLong(shard.budget));
+  }
+
+  private static double coldBytes(DataRepository repository) {
+    return sum(
+        repository,
+        shard ->
+            shard.data instanceof TieredDataMap ? ((TieredDataMap) shard.data).getColdBytes() : 0);
+  }
+}
@@ -0,0 +1,367 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.RawData;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * This is a concurrent map whose values are kept outside of the java heap, the heap holds only an
+ * index from the key to the location, length and expiry of the value while the value bytes live
+ * in the slabs of a {@link SlabAllocator}
+ *
+ * <p>every read decodes a fresh {@link Data}, so the long lived objects the garbage collector has
+ * to trace are the keys and the small index entries. The atomic operations ({@code compute},
+ * {@code putIfAbsent}, ...) are delegated to the index so they keep the guarantees of
+ * {@link ConcurrentHashMap}, the replaced slots are freed once the index no longer points at them
+ *
+ * <p>a writer that logs the value inside the {@code compute} copies it into its slot beforehand
+ * with {@link #allocate(Data)}, so a value that doesn't fit is refused before it is logged
+ *
+ * @author  Nandakumar12
+ */
+class OffHeapDataMap extends AbstractMap<String, Data> implements ConcurrentMap<String, Data> {
+
+  private final ConcurrentHashMap<String, Entry> index = new ConcurrentHashMap<>();
+  private final SlabAllocator allocator;
+
+  /**
+   * @param capacityBytes this is the maximum off-heap memory used by the values
+   */
+  OffHeapDataMap(long capacityBytes) {
+    this.allocator = new SlabAllocator(capacityBytes);
+  }
+
+  /** the index entry of a value, the expiry is kept on heap so it can be checked without a copy */
+  private static final class Entry {
+    final SlabAllocator.Slot slot;
+    final long expiresAt;
+
+    Entry(SlabAllocator.Slot slot, long expiresAt) {
+      this.slot = slot;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /**
+   * a value copied into its slot by {@link #allocate(Data)}, the first store of it takes the slot
+   * and the later ones copy it again
+   */
+  private static final class Allocated extends Data {
+    private Entry entry;
+
+    Allocated(Data value, Entry entry) {
+      super(value.getValue(), value.getExpiresAt());
+      this.entry = entry;
+    }
+
+    /** the slot of the value, null once it is taken */
+    Entry take() {
+      Entry taken = entry;
+      entry = null;
+      return taken;
+    }
+  }
+
+  /**
+   * This method will copy the value into a slot before it is stored, the returned data is then
+   * stored by a {@code compute} of this map without any further allocation
+   *
+   * @param value this is the data to be stored
+   * @return Data this is the data to be returned by the remapping function, it must be released
+   *     with {@link #release(Data)} once the {@code compute} is done
+   * @throws DataStoreSizeExceeded if the off-heap capacity is exhausted
+   */
+  Data allocate(Data value) throws DataStoreSizeExceeded {
+    try {
+      return new Allocated(value, encode(value));
+    } catch (IllegalStateException e) {
+      throw new DataStoreSizeExceeded(e.getMessage());
+    }
+  }
+
+  /**
+   * This method will free the slot of an allocated value that was not stored
+   *
+   * @param value this is the data returned by {@link #allocate(Data)}
+   */
+  void release(Data value) {
+    if (value instanceof Allocated) {
+      free(((Allocated) value).take());
+    }
+  }
+
+  private Entry encode(Data value) {
+    Objects.requireNonNull(value);
+    if (value instanceof Allocated) {
+      Entry entry = ((Allocated) value).take();
+      if (entry != null) {
+        return entry;
+      }
+    }
+    byte[] bytes = value.getValue().getBytes(StandardCharsets.UTF_8);
+    return new Entry(allocator.allocate(bytes), value.getExpiresAt());
+  }
+
+  private static Data decode(Entry entry, byte[] bytes) {
+    return new Data(new String(bytes, StandardCharsets.UTF_8), entry.expiresAt);
+  }
+
+  /** reads the value of the key, retrying when the slot is replaced while it is copied */
+  private Data read(Object key) {
+    return read(key, OffHeapDataMap::decode);
+  }
+
+  private <T> T read(Object key, BiFunction<Entry, byte[], T> decoder) {
+    Entry entry = index.get(key);
+    while (entry != null) {
+      byte[] bytes = allocator.read(entry.slot);
+      if (bytes != null) {
+        return decoder.apply(entry, bytes);
+      }
+      Entry current = index.get(key);
+      if (current == entry) {
+        Thread.onSpinWait();
+      }
+      entry = current;
+    }
+    return null;
+  }
+
+  /** reads the value of an entry the caller holds the bin lock of, so it can't be freed meanwhile */
+  private Data readLocked(Entry entry) {
+    return entry == null ? null : decode(entry, allocator.read(entry.slot));
+  }
+
+  private void free(Entry entry) {
+    if (entry != null) {
+      allocator.free(entry.slot);
+    }
+  }
+
+  @Override
+  public Data get(Object key) {
+    return read(key);
+  }
+
+  /**
+   * This method will read the value of the key as the stored UTF-8 bytes, the bytes are copied
+   * out of the slab once and never decoded into a string
+   *
+   * @param key this is the key of the value
+   * @return RawData this is the value and its expiry, null if the key is not present
+   */
+  RawData getRaw(Object key) {
+    return read(key, (entry, bytes) -> new RawData(bytes, entry.expiresAt));
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return index.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return index.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return index.isEmpty();
+  }
+
+  @Override
+  public Data put(String key, Data value) {
+    Entry replaced = index.put(key, encode(value));
+    Data previous = readLocked(replaced);
+    free(replaced);
+    return previous;
+  }
+
+  @Override
+  public Data remove(Object key) {
+    Entry removed = index.remove(key);
+    Data previous = readLocked(removed);
+    free(removed);
+    return previous;
+  }
+
+  @Override
+  public Data putIfAbsent(String key, Data value) {
+    Data[] present = new Data[1];
+    index.compute(
+        key,
+        (k, existing) -> {
+          if (existing != null) {
+            present[0] = readLocked(existing);
+            return existing;
+          }
+          return encode(value);
+        });
+    return present[0];
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    Entry[] removed = new Entry[1];
+    index.computeIfPresent(
+        (String) key,
+        (k, existing) -> {
+          if (readLocked(existing).equals(value)) {
+            removed[0] = existing;
+            return null;
+          }
+          return existing;
+        });
+    free(removed[0]);
+    return removed[0] != null;
+  }
+
+  @Override
+  public boolean replace(String key, Data oldValue, Data newValue) {
+    Entry[] replaced = new Entry[1];
+    index.computeIfPresent(
+        key,
+        (k, existing) -> {
+          if (readLocked(existing).equals(oldValue)) {
+            replaced[0] = existing;
+            return encode(newValue);
+          }
+          return existing;
+        });
+    free(replaced[0]);
+    return replaced[0] != null;
+  }
+
+  @Override
+  public Data replace(String key, Data value) {
+    Data[] previous = new Data[1];
+    Entry[] replaced = new Entry[1];
+    index.computeIfPresent(
+        key,
+        (k, existing) -> {
+          previous[0] = readLocked(existing);
+          replaced[0] = existing;
+          return encode(value);
+        });
+    free(replaced[0]);
+    return previous[0];
+  }
+
+  @Override
+  public Data compute(
+      String key, BiFunction<? super String, ? super Data, ? extends Data> remappingFunction) {
+    Entry[] replaced = new Entry[1];
+    Data[] result = new Data[1];
+    index.compute(
+        key,
+        (k, existing) -> {
+          Data current = readLocked(existing);
+          Data computed = remappingFunction.apply(k, current);
+          result[0] = computed;
+          if (computed == current) {
+            return existing;
+          }
+          replaced[0] = existing;
+          return computed == null ? null : encode(computed);
+        });
+    free(replaced[0]);
+    return result[0];
+  }
+
+  @Override
+  public Data computeIfPresent(
+      String key, BiFunction<? super String, ? super Data, ? extends Data> remappingFunction) {
+    return compute(
+        key, (k, existing) -> existing == null ? null : remappingFunction.apply(k, existing));
+  }
+
+  @Override
+  public Data computeIfAbsent(String key, Function<? super String, ? extends Data> mappingFunction) {
+    return compute(key, (k, existing) -> existing != null ? existing : mappingFunction.apply(k));
+  }
+
+  @Override
+  public Data merge(
+      String key,
+      Data value,
+      BiFunction<? super Data, ? super Data, ? extends Data> remappingFunction) {
+    return compute(
+        key,
+        (k, existing) -> existing == null ? value : remappingFunction.apply(existing, value));
+  }
+
+  @Override
+  public void clear() {
+    for (String key : index.keySet()) {
+      remove(key);
+    }
+  }
+
+  /**
+   * @return Set this is a weakly consistent view of the entries, the values are decoded while
+   *     iterating and the entries removed meanwhile are skipped
+   */
+  @Override
+  public Set<Map.Entry<String, Data>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Data>>() {
+      @Override
+      public Iterator<Map.Entry<String, Data>> iterator() {
+        Iterator<String> keys = index.keySet().iterator();
+        return new Iterator<Map.Entry<String, Data>>() {
+          Map.Entry<String, Data> next;
+          String lastKey;
+
+          @Override
+          public boolean hasNext() {
+            while (next == null && keys.hasNext()) {
+              String key = keys.next();
+              Data value = read(key);
+              if (value != null) {
+                next = new AbstractMap.SimpleImmutableEntry<>(key, value);
+              }
+            }
+            return next != null;
+          }
+
+          @Override
+          public Map.Entry<String, Data> next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            Map.Entry<String, Data> entry = next;
+            lastKey = entry.getKey();
+            next = null;
+            return entry;
+          }
+
+          @Override
+          public void remove() {
+            OffHeapDataMap.this.remove(lastKey);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return index.size();
+      }
+    };
+  }
+
+  /** @return long this is the off-heap memory held by the values */
+  long getAllocatedBytes() {
+    return allocator.getAllocatedBytes();
+  }
+
+  /** @return long this is the off-heap memory reserved by the slabs */
+  long getReservedBytes() {
+    return allocator.getReservedBytes();
+  }
+}
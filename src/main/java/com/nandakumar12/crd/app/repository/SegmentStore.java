@@ -0,0 +1,211 @@
+package com.nandakumar12.crd.app.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is an append only store of the values spilled out of memory, the records are appended to
+ * memory mapped segment files of a fixed size and never changed, a new segment is started when the
+ * active one is full. Every record is {@code [key length][value length][expiresAt][key][value]}
+ * so a segment can be scanned without the index
+ *
+ * <p>the store only holds values which are also in the snapshot and the write ahead log, so it is
+ * never forced to the disk and it is wiped when it is opened. A segment stays mapped while a
+ * reader holds a location in it, so it can be deleted while it is read
+ *
+ * @author  Nandakumar12
+ */
+final class SegmentStore {
+
+  static final int HEADER_SIZE = 4 + 4 + 8;
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final List<Segment> sealed = new ArrayList<>();
+  private Segment active;
+  private int nextId;
+  private final AtomicLong liveBytes = new AtomicLong();
+
+  /** a segment file and the bytes of its records that are still referenced */
+  static final class Segment {
+    final int id;
+    final Path file;
+    final MappedByteBuffer buffer;
+    final AtomicLong liveBytes = new AtomicLong();
+    volatile int end;
+
+    Segment(int id, Path file, MappedByteBuffer buffer) {
+      this.id = id;
+      this.file = file;
+      this.buffer = buffer;
+    }
+  }
+
+  /** the location of a record, it is immutable so a reader never sees a half moved record */
+  static final class Location {
+    final Segment segment;
+    final int offset;
+    final int length;
+    final int valueLength;
+    final long expiresAt;
+
+    Location(Segment segment, int offset, int length, int valueLength, long expiresAt) {
+      this.segment = segment;
+      this.offset = offset;
+      this.length = length;
+      this.valueLength = valueLength;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  /** receives the records of a segment in the order they were appended */
+  @FunctionalInterface
+  interface RecordConsumer {
+    void accept(String key, Location location);
+  }
+
+  /**
+   * @param directory this is where the segment files are kept, its files are deleted
+   * @param segmentBytes this is the size of a segment file
+   * @throws IOException if some error occurs during cleaning the directory
+   */
+  SegmentStore(Path directory, int segmentBytes) throws IOException {
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    Files.createDirectories(directory);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.seg")) {
+      for (Path file : stream) {
+        Files.delete(file);
+      }
+    }
+  }
+
+  /**
+   * This method will append a record to the active segment
+   *
+   * @param key this is the key of the value
+   * @param value this is the UTF-8 value
+   * @param expiresAt this is the expiry of the value
+   * @return Location this is where the record was written
+   */
+  synchronized Location append(String key, byte[] value, long expiresAt) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    int length = HEADER_SIZE + keyBytes.length + value.length;
+    if (active == null || active.end + length > active.buffer.capacity()) {
+      roll(length);
+    }
+    int offset = active.end;
+    ByteBuffer buffer = active.buffer.duplicate();
+    buffer.position(offset);
+    buffer.putInt(keyBytes.length).putInt(value.length).putLong(expiresAt).put(keyBytes).put(value);
+    active.end = offset + length;
+    active.liveBytes.addAndGet(length);
+    liveBytes.addAndGet(length);
+    return new Location(active, offset, length, value.length, expiresAt);
+  }
+
+  private void roll(int length) {
+    if (active != null) {
+      sealed.add(active);
+    }
+    Path file = directory.resolve(String.format("%08d.seg", nextId));
+    try (FileChannel channel =
+        FileChannel.open(
+            file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      active =
+          new Segment(
+              nextId++,
+              file,
+              channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(segmentBytes, length)));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to create the segment " + file, e);
+    }
+  }
+
+  /**
+   * @param location this is the location of a record
+   * @return byte[] this is the value of the record
+   */
+  static byte[] read(Location location) {
+    byte[] value = new byte[location.valueLength];
+    ByteBuffer buffer = location.segment.buffer.duplicate();
+    buffer.position(location.offset + location.length - location.valueLength);
+    buffer.get(value);
+    return value;
+  }
+
+  /**
+   * This method will mark a record as no longer referenced, the segments with few referenced
+   * records are compacted by the owner of the store
+   *
+   * @param location this is the location of the record
+   */
+  void release(Location location) {
+    location.segment.liveBytes.addAndGet(-location.length);
+    liveBytes.addAndGet(-location.length);
+  }
+
+  /** @return List<Segment> these are the full segments, the oldest first */
+  synchronized List<Segment> sealedSegments() {
+    return new ArrayList<>(sealed);
+  }
+
+  /**
+   * This method will hand over every record of a sealed segment
+   *
+   * @param segment this is the segment to be scanned
+   * @param consumer this receives the key and the location of every record
+   */
+  static void scan(Segment segment, RecordConsumer consumer) {
+    ByteBuffer buffer = segment.buffer.duplicate();
+    int offset = 0;
+    while (offset < segment.end) {
+      buffer.position(offset);
+      int keyLength = buffer.getInt();
+      int valueLength = buffer.getInt();
+      long expiresAt = buffer.getLong();
+      byte[] key = new byte[keyLength];
+      buffer.get(key);
+      int length = HEADER_SIZE + keyLength + valueLength;
+      consumer.accept(
+          new String(key, StandardCharsets.UTF_8),
+          new Location(segment, offset, length, valueLength, expiresAt));
+      offset += length;
+    }
+  }
+
+  /**
+   * This method will delete a sealed segment, the readers holding a location in it keep reading
+   * it until the mapping is collected
+   *
+   * @param segment this is the segment to be deleted
+   * @throws IOException if some error occurs during deleting the file
+   */
+  void delete(Segment segment) throws IOException {
+    synchronized (this) {
+      sealed.remove(segment);
+    }
+    Files.deleteIfExists(segment.file);
+  }
+
+  /** @return long this is the bytes of the records that are still referenced */
+  long getLiveBytes() {
+    return liveBytes.get();
+  }
+
+  /** @return int this is the size of a segment file */
+  int getSegmentBytes() {
+    return segmentBytes;
+  }
+}
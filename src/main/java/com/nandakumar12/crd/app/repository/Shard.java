@@ -0,0 +1,181 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.eviction.MemoryBudget;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import com.nandakumar12.crd.app.persistence.Snapshotter;
+import com.nandakumar12.crd.app.persistence.WriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.BiConsumer;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This is one partition of the data store, it owns the map of its keys, its write ahead log and
+ * its snapshot file, so the shards are recovered, logged and snapshotted independently of each
+ * other and the writers of different shards never wait for the same lock
+ *
+ * @author  Nandakumar12
+ */
+final class Shard {
+
+  static final String DATA_FILE = "data.db";
+  static final String LOG_FILE = "data.wal";
+
+  final Path directory;
+
+  final Map<String, Data> data;
+
+  final MemoryBudget budget;
+
+  /**
+   * the keys of the shard in their natural order, null if the ordered index is disabled. It is
+   * updated while the key is locked, its iterators never block the writers
+   */
+  final NavigableSet<String> keys;
+
+  WriteAheadLog writeAheadLog;
+
+  Snapshotter snapshotter;
+
+  /**
+   * the writers hold the read side while they update the map and append to the log, the snapshot
+   * holds the write side only while it rolls the log
+   */
+  final ReadWriteLock rollLock = new ReentrantReadWriteLock();
+
+  /**
+   * @param directory this is where the files of the shard are kept
+   * @param data this is the map of the keys of the shard
+   * @param budget this is the memory budget of the entries of the shard
+   * @param ordered true if the keys are also kept in an ordered index
+   */
+  Shard(Path directory, Map<String, Data> data, MemoryBudget budget, boolean ordered) {
+    this.directory = directory;
+    this.data = data;
+    this.budget = budget;
+    this.keys = ordered ? new ConcurrentSkipListSet<>() : null;
+  }
+
+  /** @return boolean true if the value of the key is spilled out of memory */
+  boolean isCold(String key) {
+    return data instanceof TieredDataMap && ((TieredDataMap) data).isCold(key);
+  }
+
+  /**
+   * This method will copy the data into the off-heap memory of an off-heap shard before it is
+   * stored, so a write that doesn't fit is refused before it is logged and accounted
+   *
+   * @param value this is the data to be stored
+   * @return Data this is the data to be returned by the {@code compute} that stores it, the given
+   *     data itself for the other storage modes
+   * @throws DataStoreSizeExceeded if the off-heap memory of the shard is exhausted
+   */
+  Data allocate(Data value) throws DataStoreSizeExceeded {
+    return data instanceof OffHeapDataMap ? ((OffHeapDataMap) data).allocate(value) : value;
+  }
+
+  /**
+   * This method will free the memory of an allocated data which was not stored by the
+   * {@code compute}, it has no effect once it was stored
+   *
+   * @param allocated this is the data returned by {@link #allocate(Data)}
+   */
+  void release(Data allocated) {
+    if (data instanceof OffHeapDataMap) {
+      ((OffHeapDataMap) data).release(allocated);
+    }
+  }
+
+  /**
+   * This method will account a stored key in the memory budget and the ordered index, it is
+   * called while the key is locked, a replaced cold value held no memory
+   *
+   * @param key this is the key that was stored
+   * @param previous this is the data the key held before, null if it was free
+   * @param value this is the data stored
+   */
+  void written(String key, Data previous, Data value) {
+    if (previous == null && keys != null) {
+      keys.add(key);
+    }
+    budget.written(key, previous == null || isCold(key) ? null : previous, value);
+  }
+
+  /**
+   * This method will account a removed key in the memory budget and the ordered index, it is
+   * called while the key is locked
+   *
+   * @param key this is the key that was removed
+   * @param previous this is the data the key held
+   */
+  void removed(String key, Data previous) {
+    if (keys != null) {
+      keys.remove(key);
+    }
+    if (!isCold(key)) {
+      budget.removed(key, previous);
+    }
+  }
+
+  /**
+   * This method will store a recovered entry, a tiered shard writes it to the segments so a data
+   * store larger than the memory can be recovered
+   *
+   * @param key this is the key of the entry
+   * @param value this is the data of the entry
+   */
+  void restore(String key, Data value) {
+    if (data instanceof TieredDataMap) {
+      ((TieredDataMap) data).putCold(key, value);
+    } else {
+      data.put(key, value);
+    }
+  }
+
+  /**
+   * This method will hand over the expiry of every key, the cold values are not read
+   *
+   * @param consumer this receives the key and its expiry
+   */
+  void forEachExpiry(BiConsumer<String, Long> consumer) {
+    if (data instanceof TieredDataMap) {
+      ((TieredDataMap) data).forEachExpiry(consumer);
+    } else {
+      data.forEach((key, value) -> consumer.accept(key, value.getExpiresAt()));
+    }
+  }
+
+  /** fills the ordered index with the recovered keys, the cold values are not read */
+  void indexKeys() {
+    if (keys != null) {
+      forEachExpiry((key, expiresAt) -> keys.add(key));
+    }
+  }
+
+  /**
+   * This method will open the log and the snapshotter of the shard, the data of the shard must
+   * have been loaded before
+   *
+   * @param fsyncPolicy this decides when the appended records are forced to the disk
+   * @param groupCommitIntervalMs this is the interval of the committer of the log
+   * @param maxSizeBytes this is the quota of the snapshot file of the shard
+   * @throws IOException if some error occurs during creating the directory of the shard
+   */
+  void open(FsyncPolicy fsyncPolicy, long groupCommitIntervalMs, long maxSizeBytes)
+      throws IOException {
+    Files.createDirectories(directory);
+    writeAheadLog =
+        new WriteAheadLog(directory.resolve(LOG_FILE), fsyncPolicy, groupCommitIntervalMs);
+    snapshotter =
+        new Snapshotter(
+            directory.resolve(DATA_FILE), data, writeAheadLog, rollLock.writeLock(), maxSizeBytes);
+  }
+}
@@ -0,0 +1,186 @@
+package com.nandakumar12.crd.app.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This is an allocator of off-heap memory, it carves direct buffers (slabs) of 1MB into slots of
+ * power of two size classes from 64 bytes to 1MB, so a value is stored in the smallest slot that
+ * fits it and the freed slots are reused by the values of the same class
+ *
+ * <p>every slot starts with an 8 byte stamp which is unique for each allocation, a reader copies
+ * the value and then checks the stamp again, so a slot that is freed and reused while it is being
+ * read is detected instead of returning the bytes of another value
+ *
+ * @author  Nandakumar12
+ */
+class SlabAllocator {
+
+  static final int SLAB_SIZE = 1024 * 1024;
+  static final int MIN_SLOT_SIZE = 64;
+  static final int STAMP_SIZE = 8;
+  static final int MAX_VALUE_SIZE = SLAB_SIZE - STAMP_SIZE;
+  private static final int SIZE_CLASSES =
+      Integer.numberOfTrailingZeros(SLAB_SIZE) - Integer.numberOfTrailingZeros(MIN_SLOT_SIZE) + 1;
+  private static final long FREE = 0;
+
+  private static final VarHandle STAMP =
+      MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+  private final long capacityBytes;
+  private final SizeClass[] sizeClasses = new SizeClass[SIZE_CLASSES];
+  private volatile ByteBuffer[] slabs = new ByteBuffer[0];
+  private final AtomicLong stamps = new AtomicLong();
+  private final AtomicLong allocatedBytes = new AtomicLong();
+
+  /**
+   * @param capacityBytes this is the maximum off-heap memory the allocator can reserve
+   */
+  SlabAllocator(long capacityBytes) {
+    this.capacityBytes = capacityBytes;
+    for (int i = 0; i < SIZE_CLASSES; i++) {
+      sizeClasses[i] = new SizeClass(MIN_SLOT_SIZE << i);
+    }
+  }
+
+  /**
+   * This method will copy the given bytes into a free slot
+   *
+   * @param bytes this is the value to be stored
+   * @return Slot this is the location of the stored value
+   * @throws IllegalStateException if the off-heap capacity is exhausted
+   */
+  Slot allocate(byte[] bytes) {
+    if (bytes.length > MAX_VALUE_SIZE) {
+      throw new IllegalArgumentException("Value of " + bytes.length + " bytes is too large");
+    }
+    SizeClass sizeClass = sizeClasses[classOf(bytes.length + STAMP_SIZE)];
+    long address = sizeClass.take();
+    int slabId = (int) (address >>> 32);
+    int offset = (int) address;
+    ByteBuffer slab = slabs[slabId].duplicate();
+    slab.position(offset + STAMP_SIZE);
+    slab.put(bytes);
+    long stamp = stamps.incrementAndGet();
+    STAMP.setVolatile(slabs[slabId], offset, stamp);
+    allocatedBytes.addAndGet(sizeClass.slotSize);
+    return new Slot(slabId, offset, bytes.length, stamp);
+  }
+
+  /**
+   * This method will copy the value stored in the slot
+   *
+   * @param slot this is the location of the value
+   * @return byte[] this is the value, null if the slot was freed before or while it was read
+   */
+  byte[] read(Slot slot) {
+    ByteBuffer slab = slabs[slot.slab];
+    if ((long) STAMP.getVolatile(slab, slot.offset) != slot.stamp) {
+      return null;
+    }
+    byte[] bytes = new byte[slot.length];
+    ByteBuffer view = slab.duplicate();
+    view.position(slot.offset + STAMP_SIZE);
+    view.get(bytes);
+    VarHandle.loadLoadFence();
+    if ((long) STAMP.getVolatile(slab, slot.offset) != slot.stamp) {
+      return null;
+    }
+    return bytes;
+  }
+
+  /**
+   * This method will return the slot to its size class, the slot must no longer be reachable
+   * from the index when it is freed
+   *
+   * @param slot this is the location of the value to be freed
+   */
+  void free(Slot slot) {
+    STAMP.setVolatile(slabs[slot.slab], slot.offset, FREE);
+    SizeClass sizeClass = sizeClasses[classOf(slot.length + STAMP_SIZE)];
+    sizeClass.give(((long) slot.slab << 32) | slot.offset);
+    allocatedBytes.addAndGet(-sizeClass.slotSize);
+  }
+
+  /** @return long this is the off-heap memory held by the stored values, including slot padding */
+  long getAllocatedBytes() {
+    return allocatedBytes.get();
+  }
+
+  /** @return long this is the off-heap memory reserved by the slabs */
+  long getReservedBytes() {
+    return (long) slabs.length * SLAB_SIZE;
+  }
+
+  private static int classOf(int size) {
+    int rounded = Math.max(MIN_SLOT_SIZE, Integer.highestOneBit(size - 1) << 1);
+    return Integer.numberOfTrailingZeros(rounded) - Integer.numberOfTrailingZeros(MIN_SLOT_SIZE);
+  }
+
+  private synchronized int newSlab() {
+    if ((long) (slabs.length + 1) * SLAB_SIZE > capacityBytes) {
+      throw new IllegalStateException(
+          "The off-heap store is full, capacity is " + capacityBytes + " bytes");
+    }
+    ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+    grown[slabs.length] = ByteBuffer.allocateDirect(SLAB_SIZE).order(ByteOrder.nativeOrder());
+    slabs = grown;
+    return grown.length - 1;
+  }
+
+  /**
+   * This is the location of a value, the stamp identifies the allocation
+   *
+   * @author  Nandakumar12
+   */
+  static final class Slot {
+    final int slab;
+    final int offset;
+    final int length;
+    final long stamp;
+
+    Slot(int slab, int offset, int length, long stamp) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+      this.stamp = stamp;
+    }
+  }
+
+  /** the free slots of one size class, kept as a stack of packed (slab, offset) addresses */
+  private final class SizeClass {
+    final int slotSize;
+    private long[] free = new long[16];
+    private int freeCount;
+    private int currentSlab = -1;
+    private int nextOffset = SLAB_SIZE;
+
+    SizeClass(int slotSize) {
+      this.slotSize = slotSize;
+    }
+
+    synchronized long take() {
+      if (freeCount > 0) {
+        return free[--freeCount];
+      }
+      if (nextOffset + slotSize > SLAB_SIZE) {
+        currentSlab = newSlab();
+        nextOffset = 0;
+      }
+      long address = ((long) currentSlab << 32) | nextOffset;
+      nextOffset += slotSize;
+      return address;
+    }
+
+    synchronized void give(long address) {
+      if (freeCount == free.length) {
+        free = Arrays.copyOf(free, free.length * 2);
+      }
+      free[freeCount++] = address;
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.nandakumar12.crd.app.repository;
+
+/**
+ * This enum decides where {@link DataRepository} keeps the values of the data store
+ *
+ * @author  Nandakumar12
+ */
+public enum StorageMode {
+  /** the values are kept as objects in a {@link java.util.concurrent.ConcurrentHashMap} */
+  HEAP,
+  /** the values are kept in direct memory slabs, only the key index lives on the heap */
+  OFF_HEAP,
+  /**
+   * the values that fit the memory budget are kept on the heap, the victims of the eviction
+   * policy are spilled to segment files on the disk and moved back when they are read
+   */
+  TIERED
+}
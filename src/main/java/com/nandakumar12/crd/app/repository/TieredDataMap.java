@@ -0,0 +1,420 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.model.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * This is a concurrent map of two tiers, the hot values are kept as objects on the heap and the
+ * cold values are spilled to the append only segments of a {@link SegmentStore}, the heap holds
+ * the key and the location of a cold value. A read of a cold value decodes it from the segment,
+ * {@link #getPromoting} also moves it back to memory
+ *
+ * <p>the map doesn't decide which values are cold, the owner spills them with {@link #spill}. The
+ * atomic operations are delegated to the index like in {@link OffHeapDataMap}, a value written
+ * through them is hot. A background compactor deletes the segments without live records and
+ * moves the live records of the segments which are mostly dead to the active segment
+ *
+ * @author  Nandakumar12
+ */
+@Slf4j
+class TieredDataMap extends AbstractMap<String, Data>
+    implements ConcurrentMap<String, Data>, Closeable {
+
+  static final long COMPACTION_INTERVAL_MS = 1000;
+
+  /** the key is either a hot {@link Data} or the {@link SegmentStore.Location} of a cold value */
+  private final ConcurrentHashMap<String, Object> index = new ConcurrentHashMap<>();
+  private final SegmentStore store;
+  private final ScheduledExecutorService compactor;
+
+  /**
+   * @param directory this is where the segments are kept, its segments are deleted
+   * @param segmentBytes this is the size of a segment file
+   * @throws IOException if some error occurs during cleaning the directory
+   */
+  TieredDataMap(Path directory, int segmentBytes) throws IOException {
+    this.store = new SegmentStore(directory, segmentBytes);
+    this.compactor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "crd-compactor");
+              thread.setDaemon(true);
+              return thread;
+            });
+    compactor.scheduleWithFixedDelay(
+        this::safeCompact, COMPACTION_INTERVAL_MS, COMPACTION_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  private Data decode(Object entry) {
+    if (entry instanceof SegmentStore.Location) {
+      SegmentStore.Location location = (SegmentStore.Location) entry;
+      return new Data(
+          new String(SegmentStore.read(location), StandardCharsets.UTF_8), location.expiresAt);
+    }
+    return (Data) entry;
+  }
+
+  /** frees the segment space of a replaced entry, it is called while the key is locked */
+  private void release(Object entry) {
+    if (entry instanceof SegmentStore.Location) {
+      store.release((SegmentStore.Location) entry);
+    }
+  }
+
+  private SegmentStore.Location append(String key, Data value) {
+    return store.append(key, value.getValue().getBytes(StandardCharsets.UTF_8), value.getExpiresAt());
+  }
+
+  /**
+   * the segments stay mapped while a location is held, so a cold value can be read without the
+   * lock of the key even when it is moved or its segment is deleted meanwhile
+   */
+  @Override
+  public Data get(Object key) {
+    return decode(index.get(key));
+  }
+
+  /**
+   * This method will read the value of the key, a cold value is moved back to memory and handed
+   * to the listener while the key is locked
+   *
+   * @param key this is the key of the value
+   * @param promoted this is called with the key and the value when the value was cold
+   * @return Data this is the value, null if the key is not present
+   */
+  Data getPromoting(String key, BiConsumer<String, Data> promoted) {
+    Object entry = index.get(key);
+    if (!(entry instanceof SegmentStore.Location)) {
+      return (Data) entry;
+    }
+    Data[] result = new Data[1];
+    index.computeIfPresent(
+        key,
+        (k, existing) -> {
+          result[0] = decode(existing);
+          if (existing instanceof SegmentStore.Location) {
+            release(existing);
+            promoted.accept(k, result[0]);
+            return result[0];
+          }
+          return existing;
+        });
+    return result[0];
+  }
+
+  /**
+   * This method will move a hot value to the segments, the listener is called while the key is
+   * locked so the owner accounts the freed memory in the same order as the writes of the key
+   *
+   * @param key this is the key to be spilled
+   * @param spilled this is called with the key and the value when a hot value was spilled
+   * @return boolean true if a hot value was spilled
+   */
+  boolean spill(String key, BiConsumer<String, Data> spilled) {
+    boolean[] moved = new boolean[1];
+    index.computeIfPresent(
+        key,
+        (k, existing) -> {
+          if (existing instanceof SegmentStore.Location) {
+            return existing;
+          }
+          SegmentStore.Location location = append(k, (Data) existing);
+          spilled.accept(k, (Data) existing);
+          moved[0] = true;
+          return location;
+        });
+    return moved[0];
+  }
+
+  /**
+   * This method will store the value directly in the segments, it is used by the recovery which
+   * would not fit the memory otherwise
+   *
+   * @param key this is the key of the value
+   * @param value this is the value to be stored
+   */
+  void putCold(String key, Data value) {
+    index.compute(
+        key,
+        (k, existing) -> {
+          release(existing);
+          return append(k, value);
+        });
+  }
+
+  /**
+   * @param key this is the key of the value
+   * @return boolean true if the key is present and its value is in the segments
+   */
+  boolean isCold(String key) {
+    return index.get(key) instanceof SegmentStore.Location;
+  }
+
+  /**
+   * This method will hand over the expiry of every key without reading the cold values
+   *
+   * @param consumer this receives the key and its expiry
+   */
+  void forEachExpiry(BiConsumer<String, Long> consumer) {
+    index.forEach(
+        (key, entry) ->
+            consumer.accept(
+                key,
+                entry instanceof SegmentStore.Location
+                    ? ((SegmentStore.Location) entry).expiresAt
+                    : ((Data) entry).getExpiresAt()));
+  }
+
+  private void safeCompact() {
+    try {
+      compact();
+    } catch (Exception e) {
+      log.error("Unable to compact the segments", e);
+    }
+  }
+
+  /**
+   * This method will delete the sealed segments without live records and move the live records of
+   * the sealed segments which are less than half live to the active segment
+   *
+   * @return int this is the number of segments deleted
+   * @throws IOException if some error occurs during deleting a segment
+   */
+  int compact() throws IOException {
+    int deleted = 0;
+    for (SegmentStore.Segment segment : store.sealedSegments()) {
+      if (segment.liveBytes.get() * 2 >= segment.end) {
+        continue;
+      }
+      if (segment.liveBytes.get() > 0) {
+        SegmentStore.scan(segment, this::relocate);
+      }
+      store.delete(segment);
+      deleted++;
+    }
+    return deleted;
+  }
+
+  /** moves the record if the key still points at it */
+  private void relocate(String key, SegmentStore.Location record) {
+    index.computeIfPresent(
+        key,
+        (k, existing) -> {
+          if (!(existing instanceof SegmentStore.Location)) {
+            return existing;
+          }
+          SegmentStore.Location location = (SegmentStore.Location) existing;
+          if (location.segment != record.segment || location.offset != record.offset) {
+            return existing;
+          }
+          SegmentStore.Location moved =
+              store.append(k, SegmentStore.read(location), location.expiresAt);
+          store.release(location);
+          return moved;
+        });
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return index.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return index.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return index.isEmpty();
+  }
+
+  @Override
+  public Data put(String key, Data value) {
+    Objects.requireNonNull(value);
+    Data[] previous = new Data[1];
+    compute(
+        key,
+        (k, existing) -> {
+          previous[0] = existing;
+          return value;
+        });
+    return previous[0];
+  }
+
+  @Override
+  public Data remove(Object key) {
+    Data[] previous = new Data[1];
+    computeIfPresent(
+        (String) key,
+        (k, existing) -> {
+          previous[0] = existing;
+          return null;
+        });
+    return previous[0];
+  }
+
+  @Override
+  public Data putIfAbsent(String key, Data value) {
+    Data[] present = new Data[1];
+    compute(
+        key,
+        (k, existing) -> {
+          present[0] = existing;
+          return existing != null ? existing : value;
+        });
+    return present[0];
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    boolean[] removed = new boolean[1];
+    computeIfPresent(
+        (String) key,
+        (k, existing) -> {
+          removed[0] = existing.equals(value);
+          return removed[0] ? null : existing;
+        });
+    return removed[0];
+  }
+
+  @Override
+  public boolean replace(String key, Data oldValue, Data newValue) {
+    boolean[] replaced = new boolean[1];
+    computeIfPresent(
+        key,
+        (k, existing) -> {
+          replaced[0] = existing.equals(oldValue);
+          return replaced[0] ? newValue : existing;
+        });
+    return replaced[0];
+  }
+
+  @Override
+  public Data replace(String key, Data value) {
+    Data[] previous = new Data[1];
+    computeIfPresent(
+        key,
+        (k, existing) -> {
+          previous[0] = existing;
+          return value;
+        });
+    return previous[0];
+  }
+
+  @Override
+  public Data compute(
+      String key, BiFunction<? super String, ? super Data, ? extends Data> remappingFunction) {
+    Data[] result = new Data[1];
+    index.compute(
+        key,
+        (k, existing) -> {
+          Data current = decode(existing);
+          Data computed = remappingFunction.apply(k, current);
+          result[0] = computed;
+          if (computed == current) {
+            return existing;
+          }
+          release(existing);
+          return computed;
+        });
+    return result[0];
+  }
+
+  @Override
+  public Data computeIfPresent(
+      String key, BiFunction<? super String, ? super Data, ? extends Data> remappingFunction) {
+    return compute(
+        key, (k, existing) -> existing == null ? null : remappingFunction.apply(k, existing));
+  }
+
+  @Override
+  public Data computeIfAbsent(String key, Function<? super String, ? extends Data> mappingFunction) {
+    return compute(key, (k, existing) -> existing != null ? existing : mappingFunction.apply(k));
+  }
+
+  @Override
+  public Data merge(
+      String key,
+      Data value,
+      BiFunction<? super Data, ? super Data, ? extends Data> remappingFunction) {
+    return compute(
+        key,
+        (k, existing) -> existing == null ? value : remappingFunction.apply(existing, value));
+  }
+
+  @Override
+  public void clear() {
+    for (String key : index.keySet()) {
+      remove(key);
+    }
+  }
+
+  /**
+   * @return Set this is a weakly consistent view of the entries, the cold values are read from the
+   *     segments while iterating and the entries removed meanwhile are skipped
+   */
+  @Override
+  public Set<Map.Entry<String, Data>> entrySet() {
+    return new AbstractSet<Map.Entry<String, Data>>() {
+      @Override
+      public Iterator<Map.Entry<String, Data>> iterator() {
+        Iterator<Map.Entry<String, Object>> entries = index.entrySet().iterator();
+        return new Iterator<Map.Entry<String, Data>>() {
+          String lastKey;
+
+          @Override
+          public boolean hasNext() {
+            return entries.hasNext();
+          }
+
+          @Override
+          public Map.Entry<String, Data> next() {
+            Map.Entry<String, Object> entry = entries.next();
+            lastKey = entry.getKey();
+            return new AbstractMap.SimpleImmutableEntry<>(lastKey, decode(entry.getValue()));
+          }
+
+          @Override
+          public void remove() {
+            TieredDataMap.this.remove(lastKey);
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        return index.size();
+      }
+    };
+  }
+
+  /** @return long this is the bytes of the cold records which are still referenced */
+  long getColdBytes() {
+    return store.getLiveBytes();
+  }
+
+  @Override
+  public void close() {
+    compactor.shutdown();
+    try {
+      compactor.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
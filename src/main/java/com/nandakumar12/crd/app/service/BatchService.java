@@ -0,0 +1,297 @@
+package com.nandakumar12.crd.app.service;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.repository.CrdStore;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This is an service class which will run many keys through {@link DataService} in a single pass,
+ * the request body is read and the response is written as a stream so a batch is never held in
+ * memory as a whole
+ *
+ * <p>the response is a json array with one result per key in the order of the request, a result
+ * holds either the value or the message of the error of that key:
+ *
+ * <pre>
+ *   [{"key":"1","value":"{\"key1\":\"value\"}"},{"key":"2","message":"Data not found"}]
+ * </pre>
+ *
+ * @author  Nandakumar12
+ */
+@Service
+@AllArgsConstructor
+public class BatchService {
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final DataService dataService;
+  private final DataParser dataParser;
+
+  /**
+   * This method will store every key of a json object, the value of a key is parsed and validated
+   * like the body of a single create and is stored as the client sent it
+   *
+   * @param body this is the json object of the keys and the values which are to be stored
+   * @param out this is where the results are written
+   * @throws IOException if some error occurs during reading the body or writing the results
+   */
+  public void createAll(InputStream body, OutputStream out) throws IOException {
+    try (MemberReader reader =
+        new MemberReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+      JsonWriter writer = writer(out);
+      writer.beginArray();
+      reader.beginObject();
+      while (reader.hasNext()) {
+        String key = reader.nextName();
+        String value = reader.nextValue();
+        writeResult(writer, key, k -> create(k, value));
+      }
+      writer.endArray();
+      writer.flush();
+    }
+  }
+
+  /**
+   * This method will read every given key
+   *
+   * @param keys these are the keys of the data to be read
+   * @param out this is where the results are written
+   * @throws IOException if some error occurs during writing the results
+   */
+  public void readAll(Iterable<String> keys, OutputStream out) throws IOException {
+    JsonWriter writer = writer(out);
+    writer.beginArray();
+    for (String key : keys) {
+      writeResult(writer, key, dataService::readData);
+    }
+    writer.endArray();
+    writer.flush();
+  }
+
+  /**
+   * This method will delete every key of a json array
+   *
+   * @param body this is the json array of the keys to be deleted
+   * @param out this is where the results are written
+   * @throws IOException if some error occurs during reading the body or writing the results
+   */
+  public void deleteAll(InputStream body, OutputStream out) throws IOException {
+    try (JsonReader reader = reader(body)) {
+      JsonWriter writer = writer(out);
+      writer.beginArray();
+      reader.beginArray();
+      while (reader.hasNext()) {
+        writeResult(writer, reader.nextString(), dataService::deleteData);
+      }
+      reader.endArray();
+      writer.endArray();
+      writer.flush();
+    }
+  }
+
+  private Data create(String key, String value) throws CrdException {
+    if (value.isEmpty() || value.charAt(0) != '{') {
+      throw new InvalidDataException("The value is not a json object");
+    }
+    dataParser.checkKey(key);
+    return dataService.storeData(key, dataParser.parse(value));
+  }
+
+  /** the operation on a single key of a batch */
+  @FunctionalInterface
+  private interface KeyOperation {
+    Data apply(String key) throws CrdException;
+  }
+
+  private static void writeResult(JsonWriter writer, String key, KeyOperation operation)
+      throws IOException {
+    String value = null;
+    String message = null;
+    try {
+      value = operation.apply(key).getValue();
+    } catch (CrdException e) {
+      message = e.getMessage();
+    }
+    writer.beginObject();
+    writer.name("key").value(key);
+    if (message == null) {
+      writer.name("value").value(value);
+    } else {
+      writer.name("message").value(message);
+    }
+    writer.endObject();
+  }
+
+  private static JsonReader reader(InputStream body) {
+    return new JsonReader(
+        new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), BUFFER_SIZE));
+  }
+
+  private static JsonWriter writer(OutputStream out) {
+    return new JsonWriter(
+        new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE));
+  }
+
+  /**
+   * reads the members of the json object of a batch through a fixed buffer, a name is decoded and
+   * a value is copied as the client sent it. The nesting of a value is only followed to find its
+   * end, the value is validated by {@link DataParser#parse(String)} like the body of a single
+   * create
+   */
+  static final class MemberReader implements Closeable {
+    /** a value of more chars fails the size check of {@link CrdStore} in any encoding */
+    static final int MAX_VALUE_CHARS = (CrdStore.MAX_VALUE_KB + 1) * 1024;
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder text = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean first = true;
+
+    MemberReader(Reader reader) {
+      this.reader = reader;
+    }
+
+    void beginObject() throws IOException {
+      whitespace();
+      expect('{');
+    }
+
+    /** consumes the end of the object when there are no more members */
+    boolean hasNext() throws IOException {
+      whitespace();
+      if (peek() == '}') {
+        position++;
+        return false;
+      }
+      if (!first) {
+        expect(',');
+        whitespace();
+      }
+      first = false;
+      return true;
+    }
+
+    String nextName() throws IOException {
+      if (peek() != '"') {
+        throw new MalformedJsonException("Expected a name");
+      }
+      text.setLength(0);
+      string(Integer.MAX_VALUE);
+      whitespace();
+      expect(':');
+      whitespace();
+      try {
+        return JsonObjectScanner.decode(text.toString());
+      } catch (InvalidDataException e) {
+        throw new MalformedJsonException("The name is not a valid json string");
+      }
+    }
+
+    /**
+     * the text of the next value, cut after {@link #MAX_VALUE_CHARS} so a value is never held
+     * whole when it is too large to be stored anyway
+     */
+    String nextValue() throws IOException {
+      text.setLength(0);
+      int depth = 0;
+      while (true) {
+        char c = peek();
+        if (c == '"') {
+          string(MAX_VALUE_CHARS);
+        } else if (c == '{' || c == '[') {
+          depth++;
+          append(c);
+          position++;
+          continue;
+        } else if (c == '}' || c == ']') {
+          if (depth == 0) {
+            return text.toString();
+          }
+          depth--;
+          append(c);
+          position++;
+        } else if (depth == 0 && (c == ',' || c == ' ' || c == '\n' || c == '\r' || c == '\t')) {
+          return text.toString();
+        } else {
+          append(c);
+          position++;
+          continue;
+        }
+        if (depth == 0) {
+          return text.toString();
+        }
+      }
+    }
+
+    /** copies a string with its quotes and escapes */
+    private void string(int max) throws IOException {
+      text.append(peek());
+      position++;
+      while (true) {
+        char c = peek();
+        position++;
+        if (text.length() < max) {
+          text.append(c);
+        }
+        if (c == '\\') {
+          if (text.length() < max) {
+            text.append(peek());
+          }
+          position++;
+        } else if (c == '"') {
+          return;
+        }
+      }
+    }
+
+    private void append(char c) {
+      if (text.length() < MAX_VALUE_CHARS) {
+        text.append(c);
+      }
+    }
+
+    private void whitespace() throws IOException {
+      while (true) {
+        char c = peek();
+        if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+          return;
+        }
+        position++;
+      }
+    }
+
+    private void expect(char c) throws IOException {
+      if (peek() != c) {
+        throw new MalformedJsonException("Expected '" + c + "'");
+      }
+      position++;
+    }
+
+    private char peek() throws IOException {
+      if (position == limit) {
+        limit = reader.read(buffer, 0, buffer.length);
+        position = 0;
+        if (limit <= 0) {
+          limit = 0;
+          throw new MalformedJsonException("End of input");
+        }
+      }
+      return buffer[position];
+    }
+
+    @Override
+    public void close() throws IOException {
+      reader.close();
+    }
+  }
+}
@@ -1,17 +1,17 @@
 package com.nandakumar12.crd.app.service;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
-import com.nandakumar12.crd.app.exception.DuplicateKeyException;
 import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.exception.InvalidKeyException;
+import com.nandakumar12.crd.app.metrics.CrdMetrics;
 import com.nandakumar12.crd.app.model.Data;
-import lombok.AllArgsConstructor;
+import com.nandakumar12.crd.app.persistence.Durability;
+import com.nandakumar12.crd.app.repository.CrdStore;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.nio.charset.StandardCharsets;
-import java.util.concurrent.ExecutionException;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * This is an helper class which contains few methods which will
@@ -22,43 +22,149 @@ import java.util.concurrent.ExecutionException;
  */
 @Service
 @Slf4j
-@AllArgsConstructor
 public class DataParser {
-  private final DataService dataService;
   static final String TIME_TO_LIVE = "timeToLive";
 
+  private final CrdMetrics metrics;
+
+  public DataParser() {
+    this(CrdMetrics.NONE);
+  }
+
+  /**
+   * @param metrics these are the timers the time of every parse is recorded in
+   */
+  @Autowired
+  public DataParser(CrdMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   /**
-   * This method will parse the json data provided to extract the timeToLive property and
-   * validate it
+   * This method will scan the json data provided in a single pass to extract the timeToLive
+   * property and validate it, the parsed data is stored by {@link DataService#addData}
+   *
+   * <p>the value is stored as the client sent it, only the timeToLive member is cut out of the
+   * text, so the body is never parsed into a tree and serialized again
    *
-   * @param key this is the key of the respective value to be stored
    * @param bodyData this is the value which is to be stored
    *
-   * @return Data This is the data that will be stored once it passes all validity checks
-   * @throws DuplicateKeyException if the key is already taken
-   * @throws ExecutionException if the future completed with some exception
-   * @throws InterruptedException if the thread that is waiting or sleeping is interrupted
+   * @return Data This is the data to be stored, it has passed all validity checks
    * @throws InvalidDataException if the provided data fails any validity check
    *
    */
-  public Data parse(String key, String bodyData)
-          throws DuplicateKeyException, InterruptedException, InvalidDataException, ExecutionException {
-    if (bodyData.getBytes(StandardCharsets.UTF_8).length / 1024 > 16) {
-      throw new InvalidDataException("Data size exceeded 16Kb");
+  public Data parse(String bodyData) throws InvalidDataException {
+    long start = System.nanoTime();
+    try {
+      return parseText(bodyData);
+    } finally {
+      metrics.recordParse(start);
+    }
+  }
+
+  private Data parseText(String bodyData) throws InvalidDataException {
+    checkSize(bodyData);
+    List<JsonObjectScanner.Member> members = JsonObjectScanner.members(bodyData);
+    JsonObjectScanner.Member timeToLive = null;
+    for (JsonObjectScanner.Member member : members) {
+      if (TIME_TO_LIVE.equals(member.name)) {
+        timeToLive = member;
+      }
+    }
+    if (timeToLive == null) {
+      return new Data(bodyData, 0);
+    }
+    String ttl = JsonObjectScanner.scalar(bodyData, timeToLive);
+    if (ttl == null) {
+      throw new InvalidDataException("The ttl is not an valid number");
+    }
+    checkTTLValidity(ttl);
+    return new Data(withoutMembers(bodyData, members, TIME_TO_LIVE), expiryOf(Long.parseLong(ttl)));
+  }
+
+  /**
+   * This method will cut the members of the given name with their separating comma out of a
+   * scanned json object, the rest of the text is kept as it is
+   *
+   * @param text this is the scanned json text
+   * @param members these are the top level members of the text
+   * @param name this is the name of the members to be cut out
+   * @return String this is the text without the members
+   */
+  static String withoutMembers(String text, List<JsonObjectScanner.Member> members, String name) {
+    int firstKept = 0;
+    while (firstKept < members.size() && name.equals(members.get(firstKept).name)) {
+      firstKept++;
+    }
+    StringBuilder kept = new StringBuilder(text.length());
+    int copied = 0;
+    for (int i = 0; i < members.size(); i++) {
+      JsonObjectScanner.Member member = members.get(i);
+      int from;
+      int to;
+      if (i == 0 && firstKept == members.size()) {
+        from = member.start;
+        to = members.get(members.size() - 1).valueEnd;
+      } else if (i == 0 && firstKept > 0) {
+        from = member.start;
+        to = members.get(firstKept).start;
+      } else if (i >= firstKept && name.equals(member.name)) {
+        from = members.get(i - 1).valueEnd;
+        to = member.valueEnd;
+      } else {
+        continue;
+      }
+      kept.append(text, copied, from);
+      copied = to;
+    }
+    return kept.append(text, copied, text.length()).toString();
+  }
+
+  /**
+   * This method will check the size of a value against the limit of 16Kb
+   *
+   * @param value this is the json value
+   * @throws InvalidDataException if the value is larger than the limit
+   */
+  public void checkSize(String value) throws InvalidDataException {
+    CrdStore.checkSize(value);
+  }
+
+  /**
+   * This method will check the length of a key against the limit of 32 chars
+   *
+   * @param key this is the key of the data
+   * @throws InvalidKeyException if the key is longer than the limit
+   */
+  public void checkKey(String key) throws InvalidKeyException {
+    CrdStore.checkKey(key);
+  }
+
+  /**
+   * This method will parse the durability asked for a write, case insensitively
+   *
+   * @param durability this is the durability, none, buffered or fsync, null if not given
+   * @return Durability This is the durability, null if not given
+   * @throws InvalidDataException if the durability is not one of the known
+   */
+  public Durability parseDurability(String durability) throws InvalidDataException {
+    if (durability == null) {
+      return null;
     }
-    Gson gson = new Gson();
-    JsonObject jsonObject = JsonParser.parseString(bodyData).getAsJsonObject();
-    Data data = null;
-    if (jsonObject.get(TIME_TO_LIVE) == null) {
-      data = new Data(gson.toJson(jsonObject), "0");
-    } else if (checkTTLValidity(jsonObject.get(TIME_TO_LIVE).getAsString())) {
-      String ttl = jsonObject.get(TIME_TO_LIVE).getAsString();
-      jsonObject.remove(TIME_TO_LIVE);
-      data = new Data(gson.toJson(jsonObject), ttl);
+    try {
+      return Durability.valueOf(durability.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new InvalidDataException("The durability should be one of none, buffered or fsync");
     }
-    Data newData = dataService.addData(key, data).get();
-    log.info("The new data is " + newData);
-    return newData;
+  }
+
+  /**
+   * This method will convert the time to live in seconds into the absolute expiry timestamp
+   *
+   * @param ttl this is the time to live in seconds, 0 if the data never expires
+   * @return long This is the expiry timestamp in millis, 0 if the data never expires
+   */
+  static long expiryOf(long ttl) {
+    return CrdStore.expiryOf(ttl);
   }
 
   boolean checkTTLValidity(String ttl) throws InvalidDataException {
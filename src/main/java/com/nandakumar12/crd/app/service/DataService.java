@@ -1,84 +1,147 @@
 package com.nandakumar12.crd.app.service;
 
 import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
 import com.nandakumar12.crd.app.exception.DuplicateKeyException;
 import com.nandakumar12.crd.app.exception.InvalidDataException;
 import com.nandakumar12.crd.app.exception.ValueExpiredException;
+import com.nandakumar12.crd.app.metrics.CrdMetrics;
 import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.RawData;
+import com.nandakumar12.crd.app.model.StoreStats;
+import com.nandakumar12.crd.app.persistence.Durability;
 import com.nandakumar12.crd.app.repository.DataRepository;
-import lombok.AllArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * This is an service class which will be used to access the data present in
- * the datastore, all the methods present in the class are asynchronous which will
- * use the multi-thread configuration provided in {@link com.nandakumar12.crd.app.config.AppConfig}
+ * the datastore, every operation is a plain in-memory operation, a write which waits for the disk
+ * returns the future of its commit in the write ahead log, so no thread waits for it. The creates
+ * of {@link #addData} run on the executor of {@code application.executor.mode}, see
+ * {@link com.nandakumar12.crd.app.config.AppConfig}, the rest runs on the calling thread. The time
+ * of every operation is recorded in the {@link CrdMetrics}
  *
  * @author  Nandakumar12
  */
 @Service
-@Slf4j
-@AllArgsConstructor
 public class DataService {
+  /** the executor of the INLINE mode, the creates run on the request thread */
+  public static final Executor CALLING_THREAD = Runnable::run;
+
   private final DataRepository dataRepository;
+  private final CrdMetrics metrics;
+  private final Executor createExecutor;
+
+  public DataService(DataRepository dataRepository) {
+    this(dataRepository, CrdMetrics.NONE);
+  }
+
+  public DataService(DataRepository dataRepository, CrdMetrics metrics) {
+    this(dataRepository, metrics, CALLING_THREAD);
+  }
+
+  /**
+   * @param dataRepository this is the datastore
+   * @param metrics these are the timers the time of every operation is recorded in
+   * @param createExecutor this is where the creates of {@link #addData} run
+   */
+  @Autowired
+  public DataService(
+      DataRepository dataRepository,
+      CrdMetrics metrics,
+      @Qualifier("createExecutor") Executor createExecutor) {
+    this.dataRepository = dataRepository;
+    this.metrics = metrics;
+    this.createExecutor = createExecutor;
+  }
 
   /**
    * This method has the logic for reading the data from data store
    *
    * @param key this is the key of the respective value which should be retrieved
    *
-   * @return CompletableFuture<Data>  This the data paired with the given key
-   *                                   which will be completed sometime in the future
+   * @return Data  This the data paired with the given key
    * @throws ValueExpiredException if the data we are trying to access is expired
    * @throws DataNotFoundException if no data is paired with the given key
    *
    */
-  @Async
-  public CompletableFuture<Data> readData(String key)
+  public Data readData(String key)
       throws ValueExpiredException, DataNotFoundException {
-    Optional<Data> data = dataRepository.findByKey(key);
-    Data foundData = null;
-    if (data.isPresent() && isValid(data.get(), key)) {
-      foundData = data.get();
+    long start = System.nanoTime();
+    try {
+      Optional<Data> data = dataRepository.findByKey(key);
+      Data foundData = null;
+      if (data.isPresent() && isValid(data.get(), key)) {
+        foundData = data.get();
+      }
+      if (foundData == null) {
+        throw new DataNotFoundException("Data not found");
+      }
+      return foundData;
+    } finally {
+      metrics.recordRead(start);
     }
-    if (foundData == null) {
-      throw new DataNotFoundException("Data not found");
+  }
+
+  /**
+   * This method will read the data like {@link #readData} but as the stored UTF-8 bytes, so the
+   * value can be written to the client without being encoded again
+   *
+   * @param key this is the key of the respective value which should be retrieved
+   *
+   * @return RawData  This the data paired with the given key
+   * @throws ValueExpiredException if the data we are trying to access is expired
+   * @throws DataNotFoundException if no data is paired with the given key
+   *
+   */
+  public RawData readRawData(String key)
+      throws ValueExpiredException, DataNotFoundException {
+    long start = System.nanoTime();
+    try {
+      Optional<RawData> data = dataRepository.findRawByKey(key);
+      if (!data.isPresent()) {
+        throw new DataNotFoundException("Data not found");
+      }
+      checkExpiry(key, data.get().getExpiresAt());
+      return data.get();
+    } finally {
+      metrics.recordRawRead(start);
     }
-    return CompletableFuture.completedFuture(foundData);
   }
 
   /**
-   * This method will safely delete the data which is paired with the provided key
+   * This method will safely delete the data which is paired with the provided key, the validity
+   * check and the delete are a single atomic operation in the repository
    *
    * @param key this is the key of the respective value which should be deleted
    *
-   * @return CompletableFuture<Data>  This the deleted data which will be completed sometime in the future
+   * @return Data  This the deleted data
    * @throws ValueExpiredException if the data we are trying to access is expired
    * @throws DataNotFoundException if no data is paired with the given key
    *
    */
-  @Async
-  public CompletableFuture<Data> deleteData(String key)
+  public Data deleteData(String key)
       throws DataNotFoundException, ValueExpiredException {
-    Optional<Data> data = dataRepository.findByKey(key);
-    log.info("Exec data service");
-    Data foundData = null;
-    if (data.isPresent() && isValid(data.get(), key)) {
-      foundData = dataRepository.deleteByKey(key);
-    }
-    if (foundData == null) {
-      throw new DataNotFoundException("data not found");
+    long start = System.nanoTime();
+    try {
+      return dataRepository.deleteIfValid(key);
+    } finally {
+      metrics.recordDelete(start);
     }
-    return CompletableFuture.completedFuture(foundData);
   }
 
   /**
-   * This method will add the data in the datastore and will be paired with the given key
+   * This method will add the data in the datastore and will be paired with the given key, the key
+   * is taken only if it is free or its data has expired, as a single atomic operation in the
+   * repository
    *
    * @param key this is the key of the respective value which should be stored
    * @param value this is the body of the value which is to be stored
@@ -86,37 +149,126 @@ public class DataService {
    * @return CompletableFuture<Data>  This the stored data which will be completed sometime in the future
    * @throws DuplicateKeyException if the provided key is already taken
    * @throws InvalidDataException if the provided fails for any validity checks
+   * @throws DataStoreSizeExceeded if the data doesn't fit the memory budget of the datastore
    *
    */
-  @Async
   public CompletableFuture<Data> addData(String key, Data value)
-      throws DuplicateKeyException, InvalidDataException {
+      throws DuplicateKeyException, InvalidDataException, DataStoreSizeExceeded {
+    return addData(key, value, null);
+  }
+
+  /**
+   * This method will add the data like {@link #addData(String, Data)} with the durability asked
+   * by the client, the future is completed at once unless the write waits for the disk, then it
+   * is completed by the commit of the write ahead log which is shared by the concurrent writes.
+   * A failed commit completes it with an {@link java.io.UncheckedIOException}
+   *
+   * <p>when the create runs on another thread than the caller, its exceptions complete the future
+   * wrapped in a {@link CompletionException} instead of being thrown
+   *
+   * @param key this is the key of the respective value which should be stored
+   * @param value this is the body of the value which is to be stored
+   * @param durability this is the durability of the write, null for the one of the configuration
+   *
+   * @return CompletableFuture<Data>  This the stored data which will be completed once it is durable
+   * @throws DuplicateKeyException if the provided key is already taken
+   * @throws InvalidDataException if the provided fails for any validity checks
+   * @throws DataStoreSizeExceeded if the data doesn't fit the memory budget of the datastore
+   *
+   */
+  public CompletableFuture<Data> addData(String key, Data value, Durability durability)
+      throws DuplicateKeyException, InvalidDataException, DataStoreSizeExceeded {
+    if (key == null || value == null) {
+      throw new InvalidDataException("Key or Data can't be null");
+    }
+    if (createExecutor == CALLING_THREAD) {
+      return create(key, value, durability);
+    }
+    return CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return create(key, value, durability);
+              } catch (DuplicateKeyException | DataStoreSizeExceeded e) {
+                throw new CompletionException(e);
+              }
+            },
+            createExecutor)
+        .thenCompose(Function.identity());
+  }
+
+  private CompletableFuture<Data> create(String key, Data value, Durability durability)
+      throws DuplicateKeyException, DataStoreSizeExceeded {
+    long start = System.nanoTime();
+    try {
+      return dataRepository
+          .createIfAbsentOrExpired(key, value, durability)
+          .whenComplete((data, failure) -> metrics.recordCreate(start));
+    } catch (DuplicateKeyException | DataStoreSizeExceeded | RuntimeException e) {
+      metrics.recordCreate(start);
+      throw e;
+    }
+  }
+
+  /**
+   * This method will add the data like {@link #addData} and wait for its commit, it is used by
+   * the batch operations which run a whole batch on one thread
+   *
+   * @param key this is the key of the respective value which should be stored
+   * @param value this is the body of the value which is to be stored
+   *
+   * @return Data  This the stored data
+   * @throws DuplicateKeyException if the provided key is already taken
+   * @throws InvalidDataException if the provided fails for any validity checks
+   * @throws DataStoreSizeExceeded if the data doesn't fit the memory budget of the datastore
+   *
+   */
+  public Data storeData(String key, Data value)
+      throws DuplicateKeyException, InvalidDataException, DataStoreSizeExceeded {
     if (key != null && value != null) {
-      if (dataRepository.exits(key)) {
-        try{
-          Optional<Data> data = dataRepository.findByKey(key);
-          if(data.isPresent() && isValid(data.get(),key)){
-            throw new DuplicateKeyException("Key already exists !");
-          }
-        } catch (ValueExpiredException | DataNotFoundException e) {
-          addData(key, value);
-        }
+      long start = System.nanoTime();
+      try {
+        return dataRepository.createIfAbsentOrExpired(key, value);
+      } finally {
+        metrics.recordCreate(start);
       }
-      log.info("The ttl is " + value.getTimeToLive());
-      return CompletableFuture.completedFuture(dataRepository.createData(key, value));
     } else {
       throw new InvalidDataException("Key or Data can't be null");
     }
   }
 
+  /**
+   * This method will return the memory usage, the hit rate of the reads and the eviction counts of
+   * the datastore
+   *
+   * @return StoreStats  This the statistics summed over the shards
+   *
+   */
+  public StoreStats readStats() {
+    return StoreStats.from(dataRepository.getMemoryBudgets());
+  }
+
+  /**
+   * This method will check whether the data has expired, the expired data is removed from the
+   * repository only if the key still holds that same data
+   *
+   * @param data this is the data read for the key
+   * @param key this is the key of the data
+   *
+   * @return boolean true if the data is valid
+   * @throws ValueExpiredException if the data has expired
+   *
+   */
   public boolean isValid(Data data, String key)
       throws DataNotFoundException, ValueExpiredException {
+    checkExpiry(key, data.getExpiresAt());
+    return true;
+  }
+
+  private void checkExpiry(String key, long expireTime) throws ValueExpiredException {
     long currentTimeStamp = System.currentTimeMillis();
-    long expireTime = Long.parseLong(data.getTimeToLive());
     if (expireTime != 0 && expireTime < currentTimeStamp) {
-      dataRepository.deleteByKey(key);
+      dataRepository.expireIfDue(key, expireTime);
       throw new ValueExpiredException("The value has expired");
     }
-    return true;
   }
 }
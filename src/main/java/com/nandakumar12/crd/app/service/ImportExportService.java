@@ -0,0 +1,229 @@
+package com.nandakumar12.crd.app.service;
+
+import com.google.gson.stream.JsonWriter;
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.metrics.CrdMetrics;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.ImportResult;
+import com.nandakumar12.crd.app.persistence.Durability;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is an service class which will import and export the whole datastore as NDJSON, one
+ * {@code {"key":"123","value":{...},"ttl":50}} object per line where the ttl is in seconds and
+ * is left out for the data which never expires
+ *
+ * <p>the import reads one line at a time from the request, so the memory held is bounded by the
+ * longest line and the client is slowed down by the socket when the store can't keep up, the
+ * value is stored as it is written in the line. The lines are stored with {@link Durability#NONE}
+ * and the write ahead log is committed once per {@link #COMMIT_LINES} lines and at the end of the
+ * body, so a bulk import writes the log in large batches instead of once per line. The export
+ * streams a point in time view of the datastore, see {@link DataRepository#export}
+ *
+ * @author  Nandakumar12
+ */
+@Service
+@Slf4j
+public class ImportExportService {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  static final int MAX_LINE_LENGTH = 64 * 1024;
+  static final int MAX_ERRORS = 100;
+  /** the lines stored between two commits of the write ahead log */
+  static final int COMMIT_LINES = 1024;
+
+  private final DataRepository dataRepository;
+  private final DataParser dataParser;
+  private final CrdMetrics metrics;
+
+  public ImportExportService(DataRepository dataRepository, DataParser dataParser) {
+    this(dataRepository, dataParser, CrdMetrics.NONE);
+  }
+
+  /**
+   * @param dataRepository this is the datastore
+   * @param dataParser this validates the keys, values and ttls of the imported lines
+   * @param metrics these are the timers the time of every imported line is recorded in
+   */
+  @Autowired
+  public ImportExportService(
+      DataRepository dataRepository, DataParser dataParser, CrdMetrics metrics) {
+    this.dataRepository = dataRepository;
+    this.dataParser = dataParser;
+    this.metrics = metrics;
+  }
+
+  /**
+   * This method will store every line of the NDJSON body, an existing key is overwritten. The
+   * imported lines are as durable as the fsync policy asks once this returns
+   *
+   * @param body this is the NDJSON to be imported
+   * @return ImportResult this is the number of imported and failed lines with the first errors
+   * @throws IOException if some error occurs during reading the body
+   */
+  public ImportResult importData(InputStream body) throws IOException {
+    LineReader reader = new LineReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    List<String> errors = new ArrayList<>();
+    long lineNumber = 0;
+    long imported = 0;
+    long failed = 0;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNumber++;
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      long start = System.nanoTime();
+      try {
+        if (reader.truncated) {
+          throw new InvalidDataException("The line is longer than " + MAX_LINE_LENGTH + " chars");
+        }
+        importLine(line);
+        imported++;
+        if (imported % COMMIT_LINES == 0) {
+          dataRepository.commitAll();
+        }
+      } catch (CrdException e) {
+        failed++;
+        if (errors.size() < MAX_ERRORS) {
+          errors.add("line " + lineNumber + ": " + e.getMessage());
+        }
+      } finally {
+        metrics.recordImport(start);
+      }
+    }
+    dataRepository.commitAll();
+    log.info("Imported {} entries, {} lines failed", imported, failed);
+    return new ImportResult(imported, failed, errors);
+  }
+
+  private void importLine(String line) throws CrdException {
+    List<JsonObjectScanner.Member> members = JsonObjectScanner.members(line);
+    JsonObjectScanner.Member key = null;
+    JsonObjectScanner.Member value = null;
+    JsonObjectScanner.Member ttl = null;
+    for (JsonObjectScanner.Member member : members) {
+      if ("key".equals(member.name)) {
+        key = member;
+      } else if ("value".equals(member.name)) {
+        value = member;
+      } else if ("ttl".equals(member.name)) {
+        ttl = member;
+      }
+    }
+    String keyName = key == null ? null : JsonObjectScanner.scalar(line, key);
+    if (keyName == null) {
+      throw new InvalidDataException("The key is missing");
+    }
+    if (value == null || line.charAt(value.valueStart) != '{') {
+      throw new InvalidDataException("The value is not a json object");
+    }
+    long expiresAt = 0;
+    if (ttl != null) {
+      String seconds = JsonObjectScanner.scalar(line, ttl);
+      if (seconds == null) {
+        throw new InvalidDataException("The ttl is not an valid number");
+      }
+      dataParser.checkTTLValidity(seconds);
+      expiresAt = DataParser.expiryOf(Long.parseLong(seconds));
+    }
+    dataParser.checkKey(keyName);
+    String json = line.substring(value.valueStart, value.valueEnd);
+    dataParser.checkSize(json);
+    dataRepository.createData(keyName, new Data(json, expiresAt), Durability.NONE);
+  }
+
+  /**
+   * This method will write every live entry of the datastore as NDJSON
+   *
+   * @param out this is where the entries are written
+   * @return long this is the number of entries exported
+   * @throws IOException if some error occurs during reading the datastore or writing the entries
+   * @throws DataStoreSizeExceeded if the size of the data exceeds the quota of the datastore
+   */
+  public long exportData(OutputStream out) throws IOException, DataStoreSizeExceeded {
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    long currentTimeMillis = System.currentTimeMillis();
+    long exported =
+        dataRepository.export(
+            (key, data) -> {
+              JsonWriter json = new JsonWriter(writer);
+              json.beginObject();
+              json.name("key").value(key);
+              json.name("value").jsonValue(data.getValue());
+              if (data.getExpiresAt() != 0) {
+                // rounded up, so the imported copy never expires before the original
+                json.name("ttl").value(Math.max(1, (data.getExpiresAt() - currentTimeMillis + 999) / 1000));
+              }
+              json.endObject();
+              writer.write('\n');
+            });
+    writer.flush();
+    log.info("Exported {} entries", exported);
+    return exported;
+  }
+
+  /** reads lines through a fixed buffer, the chars past the limit of a line are dropped */
+  static final class LineReader {
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder line = new StringBuilder();
+    private int position;
+    private int limit;
+    boolean truncated;
+
+    LineReader(Reader reader) {
+      this.reader = reader;
+    }
+
+    String readLine() throws IOException {
+      line.setLength(0);
+      truncated = false;
+      boolean read = false;
+      while (true) {
+        if (position == limit) {
+          limit = reader.read(buffer, 0, buffer.length);
+          position = 0;
+          if (limit <= 0) {
+            limit = 0;
+            return read ? finish() : null;
+          }
+        }
+        read = true;
+        int start = position;
+        while (position < limit && buffer[position] != '\n') {
+          position++;
+        }
+        append(start, position);
+        if (position < limit) {
+          position++;
+          return finish();
+        }
+      }
+    }
+
+    private void append(int start, int end) {
+      int length = Math.min(end - start, MAX_LINE_LENGTH - line.length());
+      line.append(buffer, start, length);
+      truncated |= length < end - start;
+    }
+
+    private String finish() {
+      int length = line.length();
+      if (length > 0 && line.charAt(length - 1) == '\r') {
+        line.setLength(length - 1);
+      }
+      return line.toString();
+    }
+  }
+}
@@ -0,0 +1,364 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This is a strict single pass scanner of a json object, it validates the whole text and reports
+ * where each top level member starts and ends without building a tree, so a member can be read or
+ * cut out while the rest of the text is kept exactly as the client sent it
+ *
+ * <p>the nested values are only validated, the nesting is tracked with a small stack instead of
+ * recursion so a deeply nested value can't overflow the thread stack
+ *
+ * <p>it is the only validator of the stored values: the single and the batch creates of the rest
+ * api go through {@link DataParser#parse(String)}, the import and
+ * {@link com.nandakumar12.crd.app.repository.CrdStore} call it directly, so they accept and
+ * refuse the same values
+ *
+ * @author  Nandakumar12
+ */
+public final class JsonObjectScanner {
+
+  private static final byte OBJECT = 1;
+  private static final byte ARRAY = 2;
+
+  private final String text;
+  private int position;
+  private byte[] stack = new byte[16];
+  private int depth;
+
+  private JsonObjectScanner(String text) {
+    this.text = text;
+  }
+
+  /**
+   * This is a top level member of the scanned object, the offsets index the scanned text
+   *
+   * @author  Nandakumar12
+   */
+  static final class Member {
+    final String name;
+    final int start;
+    final int valueStart;
+    final int valueEnd;
+
+    Member(String name, int start, int valueStart, int valueEnd) {
+      this.name = name;
+      this.start = start;
+      this.valueStart = valueStart;
+      this.valueEnd = valueEnd;
+    }
+  }
+
+  /**
+   * This method will validate the text as a json object and return its top level members
+   *
+   * @param text this is the json text
+   * @return List<Member> these are the members in the order of the text
+   * @throws InvalidDataException if the text is not a valid json object
+   */
+  static List<Member> members(String text) throws InvalidDataException {
+    return new JsonObjectScanner(text).object();
+  }
+
+  /**
+   * This method will validate the text as a json object
+   *
+   * @param text this is the json text
+   * @throws InvalidDataException if the text is not a valid json object
+   */
+  public static void validate(String text) throws InvalidDataException {
+    new JsonObjectScanner(text).object();
+  }
+
+  /**
+   * This method will decode a single json string
+   *
+   * @param text this is the string with its quotes
+   * @return String this is the content of the string
+   * @throws InvalidDataException if the text is not a single valid json string
+   */
+  static String decode(String text) throws InvalidDataException {
+    JsonObjectScanner scanner = new JsonObjectScanner(text);
+    scanner.expectQuote();
+    String decoded = scanner.string(true);
+    if (scanner.position != text.length()) {
+      throw scanner.invalid();
+    }
+    return decoded;
+  }
+
+  /**
+   * This method will read a scalar member value as a string
+   *
+   * @param text this is the scanned json text
+   * @param member this is the member of the text
+   * @return String this is the content of a string or the text of a number, null for other values
+   * @throws InvalidDataException never, the text has already been validated
+   */
+  static String scalar(String text, Member member) throws InvalidDataException {
+    char first = text.charAt(member.valueStart);
+    if (first == '"') {
+      JsonObjectScanner scanner = new JsonObjectScanner(text);
+      scanner.position = member.valueStart;
+      return scanner.string(true);
+    }
+    if (first == '-' || (first >= '0' && first <= '9')) {
+      return text.substring(member.valueStart, member.valueEnd);
+    }
+    return null;
+  }
+
+  private List<Member> object() throws InvalidDataException {
+    List<Member> members = new ArrayList<>();
+    whitespace();
+    expect('{');
+    whitespace();
+    if (peek() == '}') {
+      position++;
+    } else {
+      while (true) {
+        int start = position;
+        expectQuote();
+        String name = string(true);
+        whitespace();
+        expect(':');
+        whitespace();
+        int valueStart = position;
+        value();
+        members.add(new Member(name, start, valueStart, position));
+        whitespace();
+        char c = peek();
+        position++;
+        if (c == '}') {
+          break;
+        } else if (c != ',') {
+          throw invalid();
+        }
+        whitespace();
+      }
+    }
+    whitespace();
+    if (position != text.length()) {
+      throw invalid();
+    }
+    return members;
+  }
+
+  /** skips one value including all of its nested values */
+  private void value() throws InvalidDataException {
+    depth = 0;
+    while (true) {
+      char c = peek();
+      if (c == '{' || c == '[') {
+        position++;
+        whitespace();
+        if (peek() == (c == '{' ? '}' : ']')) {
+          position++;
+        } else {
+          push(c == '{' ? OBJECT : ARRAY);
+          if (c == '{') {
+            name();
+          }
+          continue;
+        }
+      } else if (c == '"') {
+        string(false);
+      } else if (c == '-' || (c >= '0' && c <= '9')) {
+        number();
+      } else if (c == 't') {
+        literal("true");
+      } else if (c == 'f') {
+        literal("false");
+      } else if (c == 'n') {
+        literal("null");
+      } else {
+        throw invalid();
+      }
+      // the value is complete, close the containers it completes
+      while (depth > 0) {
+        whitespace();
+        char next = peek();
+        position++;
+        byte container = stack[depth - 1];
+        if (next == ',') {
+          whitespace();
+          if (container == OBJECT) {
+            name();
+          }
+          break;
+        } else if (next == (container == OBJECT ? '}' : ']')) {
+          depth--;
+        } else {
+          throw invalid();
+        }
+      }
+      if (depth == 0) {
+        return;
+      }
+    }
+  }
+
+  /** skips the name and the colon of a nested member, up to its value */
+  private void name() throws InvalidDataException {
+    expectQuote();
+    string(false);
+    whitespace();
+    expect(':');
+    whitespace();
+  }
+
+  private void push(byte container) {
+    if (depth == stack.length) {
+      byte[] grown = new byte[depth * 2];
+      System.arraycopy(stack, 0, grown, 0, depth);
+      stack = grown;
+    }
+    stack[depth++] = container;
+  }
+
+  /** reads a string from its opening quote, decoding it only when asked to */
+  private String string(boolean decode) throws InvalidDataException {
+    position++;
+    int start = position;
+    StringBuilder decoded = null;
+    while (true) {
+      char c = peek();
+      position++;
+      if (c == '"') {
+        if (!decode) {
+          return null;
+        }
+        return decoded == null
+            ? text.substring(start, position - 1)
+            : decoded.append(text, start, position - 1).toString();
+      } else if (c == '\\') {
+        if (decode && decoded == null) {
+          decoded = new StringBuilder();
+        }
+        if (decoded != null) {
+          decoded.append(text, start, position - 1);
+        }
+        char escaped = escape();
+        if (decoded != null) {
+          decoded.append(escaped);
+        }
+        start = position;
+      } else if (c < 0x20) {
+        throw invalid();
+      }
+    }
+  }
+
+  private char escape() throws InvalidDataException {
+    char c = peek();
+    position++;
+    switch (c) {
+      case '"':
+      case '\\':
+      case '/':
+        return c;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        if (position + 4 > text.length()) {
+          throw invalid();
+        }
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = Character.digit(text.charAt(position++), 16);
+          if (digit < 0) {
+            throw invalid();
+          }
+          code = code * 16 + digit;
+        }
+        return (char) code;
+      default:
+        throw invalid();
+    }
+  }
+
+  private void number() throws InvalidDataException {
+    if (peek() == '-') {
+      position++;
+    }
+    if (peek() == '0') {
+      position++;
+    } else {
+      digits();
+    }
+    if (position < text.length() && text.charAt(position) == '.') {
+      position++;
+      digits();
+    }
+    if (position < text.length() && (text.charAt(position) == 'e' || text.charAt(position) == 'E')) {
+      position++;
+      if (peek() == '+' || peek() == '-') {
+        position++;
+      }
+      digits();
+    }
+  }
+
+  private void digits() throws InvalidDataException {
+    int start = position;
+    while (position < text.length() && text.charAt(position) >= '0' && text.charAt(position) <= '9') {
+      position++;
+    }
+    if (position == start) {
+      throw invalid();
+    }
+  }
+
+  private void literal(String literal) throws InvalidDataException {
+    if (!text.startsWith(literal, position)) {
+      throw invalid();
+    }
+    position += literal.length();
+  }
+
+  private void whitespace() {
+    while (position < text.length()) {
+      char c = text.charAt(position);
+      if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+        return;
+      }
+      position++;
+    }
+  }
+
+  private char peek() throws InvalidDataException {
+    if (position >= text.length()) {
+      throw invalid();
+    }
+    return text.charAt(position);
+  }
+
+  private void expect(char c) throws InvalidDataException {
+    if (peek() != c) {
+      throw invalid();
+    }
+    position++;
+  }
+
+  private void expectQuote() throws InvalidDataException {
+    if (peek() != '"') {
+      throw invalid();
+    }
+  }
+
+  private InvalidDataException invalid() {
+    return new InvalidDataException("The data is not a valid json object at position " + position);
+  }
+}
@@ -0,0 +1,84 @@
+package com.nandakumar12.crd.app.service;
+
+import com.google.gson.stream.JsonWriter;
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This is an service class which will list the keys with a prefix or from a start key in the
+ * order of the keys, a page at a time. The entries are written as a stream while the ordered
+ * index is scanned, see {@link DataRepository#scan}
+ *
+ * <p>the response holds the entries of the page and the key the next page starts at, which is
+ * left out on the last page:
+ *
+ * <pre>
+ *   {"entries":[{"key":"tenant:1:a","value":"{\"key1\":\"value\"}"}],"next":"tenant:1:b"}
+ * </pre>
+ *
+ * @author  Nandakumar12
+ */
+@Service
+@AllArgsConstructor
+public class ScanService {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  static final int MAX_LIMIT = 10_000;
+
+  private final DataRepository dataRepository;
+
+  /**
+   * This method will check a scan before its response is started, so an invalid scan is answered
+   * with an error instead of a broken stream
+   *
+   * @param limit this is the maximum number of entries of the page
+   * @throws InvalidDataException if the ordered index is disabled or the limit is out of range
+   */
+  public void checkScan(int limit) throws InvalidDataException {
+    if (!dataRepository.isOrdered()) {
+      throw new InvalidDataException(
+          "The scan needs the ordered index, enable application.store.ordered-index");
+    }
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new InvalidDataException("The limit should be between 1 and " + MAX_LIMIT);
+    }
+  }
+
+  /**
+   * This method will write a page of the entries whose key starts with the prefix
+   *
+   * @param prefix this is the prefix of the keys, empty for every key
+   * @param start this is the first key of the page, the next key of the previous page or null
+   * @param limit this is the maximum number of entries of the page
+   * @param out this is where the page is written
+   * @throws IOException if some error occurs during writing the page
+   */
+  public void scan(String prefix, String start, int limit, OutputStream out) throws IOException {
+    JsonWriter writer =
+        new JsonWriter(
+            new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE));
+    writer.beginObject();
+    writer.name("entries").beginArray();
+    String next =
+        dataRepository.scan(
+            prefix,
+            start,
+            limit,
+            (key, data) -> {
+              writer.beginObject();
+              writer.name("key").value(key);
+              writer.name("value").value(data.getValue());
+              writer.endObject();
+            });
+    writer.endArray();
+    if (next != null) {
+      writer.name("next").value(next);
+    }
+    writer.endObject();
+    writer.flush();
+  }
+}
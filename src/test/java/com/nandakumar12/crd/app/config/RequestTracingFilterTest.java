@@ -0,0 +1,52 @@
+package com.nandakumar12.crd.app.config;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+class RequestTracingFilterTest {
+
+    @Test
+    @DisplayName("This method will give a trace id only to the sampled requests and remove it afterwards")
+    void sample() throws ServletException, IOException {
+        List<String> traceIds = new ArrayList<>();
+        RequestTracingFilter filter = new RequestTracingFilter();
+
+        filter.sampleRate = 0;
+        filter.doFilter(request(), new MockHttpServletResponse(), chain(traceIds));
+        filter.sampleRate = 1;
+        filter.doFilter(request(), new MockHttpServletResponse(), chain(traceIds));
+
+        Assertions.assertThat(traceIds).hasSize(2);
+        Assertions.assertThat(traceIds.get(0)).isNull();
+        Assertions.assertThat(traceIds.get(1)).isNotEmpty();
+        Assertions.assertThat(MDC.get(RequestTracingFilter.TRACE_ID)).isNull();
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/crd/data");
+        request.setParameter("key", "1");
+        return request;
+    }
+
+    private static MockFilterChain chain(List<String> traceIds) {
+        return new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                traceIds.add(MDC.get(RequestTracingFilter.TRACE_ID));
+            }
+        });
+    }
+}
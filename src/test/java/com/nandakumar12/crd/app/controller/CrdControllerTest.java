@@ -4,10 +4,14 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.nandakumar12.crd.app.exception.DataNotFoundException;
 import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.RawData;
 import com.nandakumar12.crd.app.model.ResponseMessage;
 import com.nandakumar12.crd.app.repository.DataRepository;
+import com.nandakumar12.crd.app.service.BatchService;
 import com.nandakumar12.crd.app.service.DataParser;
 import com.nandakumar12.crd.app.service.DataService;
+import com.nandakumar12.crd.app.service.ImportExportService;
+import com.nandakumar12.crd.app.service.ScanService;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,10 +22,14 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
 
 @WebMvcTest(controllers = CrdController.class)
@@ -36,6 +44,15 @@ class CrdControllerTest {
     @MockBean
     private DataRepository dataRepository;
 
+    @MockBean
+    private BatchService batchService;
+
+    @MockBean
+    private ImportExportService importExportService;
+
+    @MockBean
+    private ScanService scanService;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -53,8 +70,8 @@ class CrdControllerTest {
         JsonObject jsonObject = new JsonObject();
         jsonObject.addProperty("key1","val1");
         jsonObject.addProperty("key2","val2");
-        Data expectedData = new Data(gson.toJson(jsonObject),"50");
-        Mockito.when(dataService.readData("15")).thenReturn(CompletableFuture.completedFuture(expectedData));
+        Data expectedData = new Data(gson.toJson(jsonObject),50L);
+        Mockito.when(dataService.readData("15")).thenReturn(expectedData);
         mockMvc.perform(MockMvcRequestBuilders.get("/api/crd/data?key=15"))
                 .andExpect(MockMvcResultMatchers.status().is(200))
                 .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON_VALUE))
@@ -62,6 +79,24 @@ class CrdControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.timeToLive").doesNotExist());
     }
 
+    @Test
+    @DisplayName("This method will write the stored json as the body when making GET request to - /api/crd/data?raw=true")
+    void getRawData() throws Exception {
+        String value = "{\"key1\":\"val1\",\"key2\":\"\u20ac\"}";
+        RawData expectedData = new RawData(value.getBytes(StandardCharsets.UTF_8), 0);
+        Mockito.when(dataService.readRawData("15")).thenReturn(expectedData);
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crd/data?key=15&raw=true"))
+                .andExpect(MockMvcResultMatchers.status().is(200))
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(MockMvcResultMatchers.content().bytes(value.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(MockMvcResultMatchers.header().longValue("Content-Length", value.getBytes(StandardCharsets.UTF_8).length))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", expectedData.etag()));
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/crd/data?key=15&raw=true")
+                .header("If-None-Match", expectedData.etag()))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().bytes(new byte[0]));
+    }
+
 
     @Test
     @DisplayName("This method will try to post data when making POST request to - /api/crd/data")
@@ -71,19 +106,42 @@ class CrdControllerTest {
         JsonObject jsonData = new JsonObject();
         jsonData.addProperty("key1","Mock value 1");
         jsonData.addProperty("key2","Mock value 2");
-        Data expectedData = new Data(gson.toJson(jsonData),"0");
+        Data expectedData = new Data(gson.toJson(jsonData),0);
         ArgumentMatcher<Data> dataArgumentMatcher = data -> data instanceof Data;
-        Mockito.when(dataService.addData(Mockito.eq("99"), Mockito.argThat(dataArgumentMatcher))).thenAnswer(i -> CompletableFuture.completedFuture(i.getArguments()[1]));
-        Mockito.when(dataParser.parse("99",gson.toJson(jsonData))).thenReturn(expectedData);
-        mockMvc.perform(MockMvcRequestBuilders.post("/api/crd/data?key=99")
+        Mockito.when(dataService.addData(Mockito.eq("99"), Mockito.argThat(dataArgumentMatcher), Mockito.isNull())).thenAnswer(i -> CompletableFuture.completedFuture(i.getArguments()[1]));
+        Mockito.when(dataParser.parse(gson.toJson(jsonData))).thenReturn(expectedData);
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/api/crd/data?key=99")
                 .content(gson.toJson(jsonData))
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
                 .andExpect(MockMvcResultMatchers.status().isCreated())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.value",Matchers.is(gson.toJson(jsonData))));
 
     }
 
+    @Test
+    @DisplayName("This method will answer an internal server error when the commit of a POST request to - /api/crd/data fails")
+    void postDataCommitFails() throws Exception {
+        Data expectedData = new Data("{\"key1\":\"value\"}", 0);
+        Mockito.when(dataParser.parse("{\"key1\":\"value\"}")).thenReturn(expectedData);
+        Mockito.when(dataService.addData(Mockito.eq("99"), Mockito.any(), Mockito.isNull()))
+                .thenReturn(CompletableFuture.failedFuture(new UncheckedIOException("Unable to force the write ahead log", new IOException("No space left on device"))));
+        // the handler bean is a mock for the other tests, this one answers with the real handler
+        Mockito.when(customExceptionHandler.handleStorageException(Mockito.any())).thenCallRealMethod();
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/api/crd/data?key=99")
+                .content("{\"key1\":\"value\"}")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().isInternalServerError())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.message", Matchers.is("Unable to store the data: Unable to force the write ahead log")));
+    }
+
     @Test
     @DisplayName("This method will try to delete a missing data when make DELETE - /api/crd/data")
     void deleteData() throws Exception {
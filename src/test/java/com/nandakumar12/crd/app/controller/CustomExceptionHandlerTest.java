@@ -0,0 +1,27 @@
+package com.nandakumar12.crd.app.controller;
+
+import com.nandakumar12.crd.app.model.ResponseMessage;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+class CustomExceptionHandlerTest {
+
+    CustomExceptionHandler customExceptionHandler = new CustomExceptionHandler();
+
+    @Test
+    @DisplayName("This method will answer a failed write to the disk with an internal server error")
+    void handleStorageException() {
+        ResponseEntity<Object> response = customExceptionHandler.handleStorageException(
+                new UncheckedIOException("Unable to force the write ahead log", new IOException("No space left on device")));
+        Assertions.assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+        Assertions.assertThat(response.getBody()).isInstanceOf(ResponseMessage.class);
+        Assertions.assertThat(((ResponseMessage) response.getBody()).getMessage())
+                .isEqualTo("Unable to store the data: Unable to force the write ahead log");
+    }
+}
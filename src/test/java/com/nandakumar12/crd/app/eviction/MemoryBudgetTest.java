@@ -0,0 +1,104 @@
+package com.nandakumar12.crd.app.eviction;
+
+import com.nandakumar12.crd.app.model.Data;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class MemoryBudgetTest {
+
+    static final Data VALUE = new Data("{}", 0);
+
+    /** every key is 5 chars long, so every entry has the same weight */
+    static final long WEIGHT = MemoryBudget.weigh("00000", VALUE);
+
+    @Test
+    @DisplayName("This method will evict the least recently used keys first in LRU mode")
+    void lru() {
+        MemoryBudget budget = new MemoryBudget(3 * WEIGHT, EvictionMode.LRU);
+        Map<String, Data> store = new HashMap<>();
+        put(budget, store, "key-1");
+        put(budget, store, "key-2");
+        put(budget, store, "key-3");
+        budget.read("key-1", true);
+        put(budget, store, "key-4");
+        Assertions.assertThat(store).containsOnlyKeys("key-1", "key-3", "key-4");
+        Assertions.assertThat(budget.getEvictions()).isEqualTo(1);
+        Assertions.assertThat(budget.getUsedBytes()).isEqualTo(3 * WEIGHT);
+    }
+
+    @Test
+    @DisplayName("This method will evict the least frequently used keys first in LFU mode")
+    void lfu() {
+        MemoryBudget budget = new MemoryBudget(3 * WEIGHT, EvictionMode.LFU);
+        Map<String, Data> store = new HashMap<>();
+        put(budget, store, "key-1");
+        put(budget, store, "key-2");
+        put(budget, store, "key-3");
+        budget.read("key-1", true);
+        budget.read("key-1", true);
+        budget.read("key-2", true);
+        budget.read("key-3", true);
+        budget.read("key-3", true);
+        put(budget, store, "key-4");
+        Assertions.assertThat(store).containsOnlyKeys("key-1", "key-3", "key-4");
+        // the new key has the fewest uses now
+        put(budget, store, "key-5");
+        Assertions.assertThat(store).containsOnlyKeys("key-1", "key-3", "key-5");
+    }
+
+    @Test
+    @DisplayName("This method will keep the popular keys during a scan of keys used once in TINY_LFU mode and not in LRU mode")
+    void tinyLfuResistsScans() {
+        for (EvictionMode mode : new EvictionMode[] {EvictionMode.LRU, EvictionMode.TINY_LFU}) {
+            MemoryBudget budget = new MemoryBudget(100 * WEIGHT, mode);
+            Map<String, Data> store = new HashMap<>();
+            for (int i = 0; i < 50; i++) {
+                put(budget, store, String.format("h%04d", i));
+            }
+            // pushes the last popular key out of the window, so every popular key is read in the main area
+            put(budget, store, "w0000");
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < 50; i++) {
+                    budget.read(String.format("h%04d", i), true);
+                }
+            }
+            for (int i = 0; i < 2000; i++) {
+                put(budget, store, String.format("c%04d", i));
+            }
+            long hotKeys = store.keySet().stream().filter(key -> key.startsWith("h")).count();
+            Assertions.assertThat(hotKeys).isEqualTo(mode == EvictionMode.TINY_LFU ? 50 : 0);
+            Assertions.assertThat(store).hasSize(100);
+            Assertions.assertThat(budget.getUsedBytes()).isEqualTo(100 * WEIGHT);
+        }
+    }
+
+    @Test
+    @DisplayName("This method will count the hits and misses and never offer a victim in REJECT mode")
+    void reject() {
+        MemoryBudget budget = new MemoryBudget(WEIGHT, EvictionMode.REJECT);
+        budget.written("key-1", null, VALUE);
+        budget.read("key-1", true);
+        budget.read("key-2", false);
+        Assertions.assertThat(budget.fits(WEIGHT)).isFalse();
+        Assertions.assertThat(budget.isEvicting()).isFalse();
+        Assertions.assertThat(budget.victim()).isNull();
+        Assertions.assertThat(budget.getHits()).isEqualTo(1);
+        Assertions.assertThat(budget.getMisses()).isEqualTo(1);
+        budget.removed("key-1", VALUE);
+        Assertions.assertThat(budget.getUsedBytes()).isZero();
+    }
+
+    /** stores the key the way the repository does, evicting until the entry fits */
+    private static void put(MemoryBudget budget, Map<String, Data> store, String key) {
+        while (!budget.fits(WEIGHT)) {
+            String victim = budget.victim();
+            budget.removed(victim, store.remove(victim));
+            budget.evicted();
+        }
+        budget.written(key, store.put(key, VALUE), VALUE);
+    }
+}
@@ -0,0 +1,99 @@
+package com.nandakumar12.crd.app.expiry;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class HierarchicalTimingWheelTest {
+
+    @Test
+    @DisplayName("This method will hand out every timer exactly at the tick after its expiry, across every level of the wheel")
+    void timersFireAtTheirTick() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(1, 0);
+        long[] deadlines = {1, 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 300000, 16777215, 16777216, 20000000};
+        for (long deadline : deadlines) {
+            wheel.add(new HierarchicalTimingWheel.Timer(Long.toString(deadline), deadline));
+        }
+        List<String> late = new ArrayList<>();
+        List<Long> fired = new ArrayList<>();
+        for (long tick = 1; tick <= 20000001; tick++) {
+            long currentTick = tick;
+            wheel.advance(tick, timer -> {
+                fired.add(timer.expiresAt);
+                if (timer.expiresAt + 1 != currentTick) {
+                    late.add(timer.key);
+                }
+            });
+        }
+        Assertions.assertThat(late).isEmpty();
+        Assertions.assertThat(fired).containsExactly(1L, 63L, 64L, 65L, 4095L, 4096L, 4097L, 262143L, 262144L, 300000L, 16777215L, 16777216L, 20000000L);
+        Assertions.assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("This method will hand out every timer only once it is past its expiry and within a tick of it when a tick spans many millis")
+    void timersFireAfterTheirExpiry() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(100, 0);
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            wheel.add(new HierarchicalTimingWheel.Timer(Integer.toString(i), 1 + random.nextInt(3000)));
+        }
+        wheel.add(new HierarchicalTimingWheel.Timer("boundary", 1000));
+        List<String> early = new ArrayList<>();
+        List<String> late = new ArrayList<>();
+        List<String> fired = new ArrayList<>();
+        // the background thread doesn't tick at exact multiples of the tick
+        for (long now = 0; now <= 3200; now += 7) {
+            long currentTimeMillis = now;
+            wheel.advance(now, timer -> {
+                fired.add(timer.key);
+                // the check of DataRepository.expireIfDue
+                if (timer.expiresAt >= currentTimeMillis) {
+                    early.add(timer.key);
+                }
+                if (currentTimeMillis - timer.expiresAt > 200) {
+                    late.add(timer.key);
+                }
+            });
+        }
+        Assertions.assertThat(early).isEmpty();
+        Assertions.assertThat(late).isEmpty();
+        Assertions.assertThat(fired).hasSize(1001);
+        Assertions.assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("This method will hand out the timers that are already due on the next advance")
+    void dueTimersFireImmediately() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(100, 10_000);
+        wheel.add(new HierarchicalTimingWheel.Timer("1", 5_000));
+        List<String> fired = new ArrayList<>();
+        wheel.advance(10_000, timer -> fired.add(timer.key));
+        Assertions.assertThat(fired).containsExactly("1");
+    }
+
+    @Test
+    @DisplayName("This method will expire only the budget of keys per tick and keep the rest in the backlog")
+    void expiryBudgetPerTick() {
+        List<String> expired = new ArrayList<>();
+        ExpiryEngine expiryEngine = new ExpiryEngine(60_000, 2, (key, expiresAt) -> expired.add(key));
+        try {
+            for (int i = 0; i < 5; i++) {
+                expiryEngine.schedule(Integer.toString(i), 1);
+            }
+            expiryEngine.tick(System.currentTimeMillis());
+            Assertions.assertThat(expired).hasSize(2);
+            Assertions.assertThat(expiryEngine.getBacklogSize()).isEqualTo(3);
+            expiryEngine.tick(System.currentTimeMillis());
+            expiryEngine.tick(System.currentTimeMillis());
+            Assertions.assertThat(expired).hasSize(5);
+            Assertions.assertThat(expiryEngine.getExpiredCount()).isEqualTo(5);
+        } finally {
+            expiryEngine.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.nandakumar12.crd.app.persistence;
+
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("This method will write a snapshot and read back only the entries that are not expired")
+    void snapshotRoundTrip() throws IOException, DataStoreSizeExceeded {
+        Map<String, Data> data = new ConcurrentHashMap<>();
+        data.put("1", new Data("{\"key1\":\"value1\"}", 0));
+        data.put("2", new Data("{\"key2\":\"value2\"}", System.currentTimeMillis() + 500000L));
+        data.put("3", new Data("{\"key3\":\"value3\"}", System.currentTimeMillis() - 100L));
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(tempDir.resolve("data.wal"), FsyncPolicy.OS, 0)) {
+            writeAheadLog.appendPut("1", "{\"key1\":\"value1\"}", 0);
+            new Snapshotter(tempDir.resolve("data.db"), data, writeAheadLog, new ReentrantLock(), Long.MAX_VALUE)
+                    .snapshot();
+        }
+        Assertions.assertThat(Files.list(tempDir).map(path -> path.getFileName().toString()))
+                .containsExactly("data.db");
+
+        Map<String, Data> loaded = new ConcurrentHashMap<>();
+        new SnapshotReader().load(tempDir.resolve("data.db"), loaded, System.currentTimeMillis());
+        Assertions.assertThat(loaded).containsOnlyKeys("1", "2");
+        Assertions.assertThat(loaded.get("2")).isEqualTo(data.get("2"));
+    }
+
+    @Test
+    @DisplayName("This method will refuse to write a snapshot larger than the quota")
+    void snapshotExceedingQuota() throws IOException {
+        Map<String, Data> data = new ConcurrentHashMap<>();
+        data.put("1", new Data("{\"key1\":\"value1\"}", 0));
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(tempDir.resolve("data.wal"), FsyncPolicy.OS, 0)) {
+            Snapshotter snapshotter = new Snapshotter(tempDir.resolve("data.db"), data, writeAheadLog, new ReentrantLock(), 16);
+            assertThrows(DataStoreSizeExceeded.class, snapshotter::snapshot);
+        }
+        Assertions.assertThat(tempDir.resolve("data.db")).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("This method will export the changes written while the snapshot is streamed on top of the snapshot")
+    void exportIsPointInTime() throws IOException, DataStoreSizeExceeded {
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(tempDir.resolve("data.wal"), FsyncPolicy.OS, 0)) {
+            Map<String, Data> data = new ConcurrentHashMap<String, Data>() {
+                @Override
+                public Set<Map.Entry<String, Data>> entrySet() {
+                    // the writers change the map right after the snapshot has passed the entries
+                    Map<String, Data> passed = new HashMap<>();
+                    super.forEach(passed::put);
+                    change(this, writeAheadLog);
+                    return passed.entrySet();
+                }
+            };
+            data.put("1", new Data("{\"key1\":\"old\"}", 0));
+            data.put("2", new Data("{\"key2\":\"value2\"}", 0));
+            Snapshotter snapshotter = new Snapshotter(tempDir.resolve("data.db"), data, writeAheadLog, new ReentrantLock(), Long.MAX_VALUE);
+            Map<String, Data> exported = new LinkedHashMap<>();
+            Assertions.assertThat(snapshotter.export(exported::put)).isEqualTo(2);
+            Assertions.assertThat(exported).containsOnlyKeys("1", "3");
+            Assertions.assertThat(exported.get("1").getValue()).isEqualTo("{\"key1\":\"new\"}");
+        }
+    }
+
+    private static void change(Map<String, Data> data, WriteAheadLog writeAheadLog) {
+        try {
+            if (data.remove("2") != null) {
+                writeAheadLog.appendDelete("2");
+                data.put("1", new Data("{\"key1\":\"new\"}", 0));
+                writeAheadLog.appendPut("1", "{\"key1\":\"new\"}", 0);
+                data.put("3", new Data("{\"key3\":\"value3\"}", 0));
+                writeAheadLog.appendPut("3", "{\"key3\":\"value3\"}", 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
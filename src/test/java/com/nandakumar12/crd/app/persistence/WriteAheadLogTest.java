@@ -0,0 +1,146 @@
+package com.nandakumar12.crd.app.persistence;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("This method will replay the puts and deletes in the order they were appended")
+    void replayAppendedRecords() throws IOException {
+        Path file = tempDir.resolve("data.wal");
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(file, FsyncPolicy.ALWAYS, 0)) {
+            writeAheadLog.appendPut("1", "{\"key1\":\"value1\"}", 0);
+            writeAheadLog.appendPut("2", "{\"key2\":\"value2\"}", 1234L);
+            writeAheadLog.appendDelete("1");
+        }
+        Map<String, String> replayed = replay(file);
+        Assertions.assertThat(replayed).containsOnlyKeys("2");
+        Assertions.assertThat(replayed.get("2")).isEqualTo("{\"key2\":\"value2\"}|1234");
+    }
+
+    @Test
+    @DisplayName("This method will drop a torn record at the tail of the log and keep appending after the valid ones")
+    void truncateTornTail() throws IOException {
+        Path file = tempDir.resolve("data.wal");
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(file, FsyncPolicy.OS, 0)) {
+            writeAheadLog.appendPut("1", "{\"key1\":\"value1\"}", 0);
+            writeAheadLog.appendPut("2", "{\"key2\":\"value2\"}", 0);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) - 3);
+        }
+        Assertions.assertThat(replay(file)).containsOnlyKeys("1");
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(file, FsyncPolicy.OS, 0)) {
+            writeAheadLog.appendPut("3", "{}", 0);
+        }
+        Assertions.assertThat(replay(file)).containsOnlyKeys("1", "3");
+    }
+
+    @Test
+    @DisplayName("This method will write the records when they are committed and share the forces of the concurrent durable commits")
+    void groupCommit() throws Exception {
+        Path file = tempDir.resolve("data.wal");
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(file, FsyncPolicy.OS, 0)) {
+            long position = writeAheadLog.appendPut("1", "{}", 0);
+            Assertions.assertThat(writeAheadLog.commit(position, Durability.NONE)).isDone();
+            Assertions.assertThat(file).doesNotExist();
+            Assertions.assertThat(writeAheadLog.commit(position, Durability.BUFFERED)).isDone();
+            Assertions.assertThat(Files.size(file)).isEqualTo(position);
+            Assertions.assertThat(writeAheadLog.getSyncCount()).isZero();
+
+            int writers = 16;
+            int writes = 100;
+            ExecutorService executor = Executors.newFixedThreadPool(writers);
+            try {
+                List<Future<?>> results = new ArrayList<>();
+                for (int i = 0; i < writers; i++) {
+                    int writer = i;
+                    results.add(executor.submit(() -> {
+                        for (int j = 0; j < writes; j++) {
+                            long appended = writeAheadLog.appendPut(writer + "-" + j, "{}", 0);
+                            writeAheadLog.commit(appended, Durability.FSYNC).get();
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            Assertions.assertThat(writeAheadLog.getSyncCount()).isLessThan((long) writers * writes);
+        }
+        Assertions.assertThat(replay(file)).hasSize(1 + 16 * 100);
+    }
+
+    @Test
+    @DisplayName("This method will write the records without durability on a timer when the group commit interval is 0")
+    void writeRecordsWithoutDurability() throws Exception {
+        Path file = tempDir.resolve("data.wal");
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(file, FsyncPolicy.GROUP_COMMIT, 0)) {
+            long position = writeAheadLog.appendPut("1", "{}", 0);
+            Assertions.assertThat(writeAheadLog.commit(position, Durability.NONE)).isDone();
+            long deadline = System.currentTimeMillis() + 10 * WriteAheadLog.MAX_PENDING_MS;
+            while (!(Files.exists(file) && Files.size(file) == position) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertThat(Files.size(file)).isEqualTo(position);
+            Assertions.assertThat(writeAheadLog.getSyncCount()).isZero();
+        }
+    }
+
+    @Test
+    @DisplayName("This method will refuse to write the records committed after the close")
+    void commitAfterClose() throws IOException {
+        Path file = tempDir.resolve("data.wal");
+        WriteAheadLog writeAheadLog = new WriteAheadLog(file, FsyncPolicy.OS, 0);
+        writeAheadLog.commit(writeAheadLog.appendPut("1", "{}", 0), Durability.BUFFERED);
+        writeAheadLog.close();
+        long position = writeAheadLog.appendPut("2", "{}", 0);
+        for (Durability durability : Durability.values()) {
+            assertThrows(ClosedChannelException.class, () -> writeAheadLog.commit(position, durability), durability.name());
+        }
+        Assertions.assertThat(replay(file)).containsOnlyKeys("1");
+    }
+
+    private Map<String, String> replay(Path file) throws IOException {
+        Map<String, String> replayed = new LinkedHashMap<>();
+        try (WriteAheadLog writeAheadLog = new WriteAheadLog(file, FsyncPolicy.OS, 0)) {
+            writeAheadLog.replay(new WriteAheadLog.Replayer() {
+                @Override
+                public void put(String key, String value, long expiresAt) {
+                    replayed.put(key, value + "|" + expiresAt);
+                }
+
+                @Override
+                public void delete(String key) {
+                    replayed.remove(key);
+                }
+            });
+        }
+        return replayed;
+    }
+}
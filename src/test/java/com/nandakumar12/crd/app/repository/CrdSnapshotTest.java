@@ -0,0 +1,76 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class CrdSnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CrdStore open(int shards) throws IOException, CrdException {
+        return CrdStore.builder()
+                .filePath(tempDir.toString())
+                .fsyncPolicy(FsyncPolicy.OS)
+                .shards(shards)
+                .open();
+    }
+
+    @Test
+    @DisplayName("This method will refuse to open a data store which is already opened for writing and open it once it is closed")
+    void singleWriter() throws IOException, CrdException {
+        try (CrdStore store = open(1)) {
+            store.create("1", "{\"key\":\"value\"}", 0);
+            Assertions.assertThatThrownBy(() -> open(1))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("already opened for writing by this process");
+            Assertions.assertThat(store.get("1")).contains("{\"key\":\"value\"}");
+        }
+
+        try (CrdStore store = open(1)) {
+            Assertions.assertThat(store.get("1")).contains("{\"key\":\"value\"}");
+        }
+    }
+
+    @Test
+    @DisplayName("This method will read the last snapshot of every shard while the writer keeps the data store open")
+    void readWhileWriting() throws IOException, CrdException {
+        try (CrdSnapshot snapshot = CrdSnapshot.open(tempDir.toString())) {
+            Assertions.assertThat(snapshot.size()).isZero();
+        }
+        try (CrdStore store = open(4)) {
+            for (int i = 0; i < 100; i++) {
+                store.create(Integer.toString(i), "{\"key\":" + i + "}", 0);
+            }
+        }
+
+        try (CrdStore store = open(4)) {
+            store.put("1", "{\"key\":\"changed\"}", 0);
+            store.create("expired", "{\"key\":\"value\"}", 1);
+            try (CrdSnapshot snapshot = CrdSnapshot.open(tempDir.toString())) {
+                Assertions.assertThat(snapshot.size()).isEqualTo(100);
+                Assertions.assertThat(snapshot.get("1")).contains("{\"key\":1}");
+                Assertions.assertThat(snapshot.get("99")).contains("{\"key\":99}");
+                Assertions.assertThat(snapshot.get("expired")).isEmpty();
+            }
+
+            store.repository().createData("expired", new Data("{\"key\":\"value\"}", System.currentTimeMillis() - 1000));
+            for (Shard shard : store.repository().shards) {
+                shard.snapshotter.snapshot();
+            }
+            try (CrdSnapshot snapshot = CrdSnapshot.open(tempDir.toString())) {
+                Assertions.assertThat(snapshot.get("1")).contains("{\"key\":\"changed\"}");
+                Assertions.assertThat(snapshot.get("expired")).isEmpty();
+                Assertions.assertThat(snapshot.size()).isEqualTo(100);
+            }
+        }
+    }
+}
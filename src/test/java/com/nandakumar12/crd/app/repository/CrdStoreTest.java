@@ -0,0 +1,93 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.exception.DuplicateKeyException;
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.exception.InvalidKeyException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+class CrdStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private CrdStore open() throws IOException, CrdException {
+        return CrdStore.builder()
+                .filePath(tempDir.toString())
+                .fsyncPolicy(FsyncPolicy.OS)
+                .shards(2)
+                .open();
+    }
+
+    @Test
+    @DisplayName("This method will create, overwrite, read and delete values without a spring context and keep them across a reopen")
+    void createReadDelete() throws IOException, CrdException {
+        try (CrdStore store = open()) {
+            store.create("1", "{\"key\":\"first\"}", 0);
+            Assertions.assertThatThrownBy(() -> store.create("1", "{\"key\":\"second\"}", 0))
+                    .isInstanceOf(DuplicateKeyException.class);
+            store.put("1", "{\"key\":\"second\"}", 0);
+            store.create("2", "{\"key\":\"deleted\"}", 0);
+
+            Assertions.assertThat(store.get("1")).contains("{\"key\":\"second\"}");
+            Assertions.assertThat(store.delete("2")).contains("{\"key\":\"deleted\"}");
+            Assertions.assertThat(store.delete("2")).isEmpty();
+            Assertions.assertThat(store.get("3")).isEmpty();
+        }
+
+        try (CrdStore store = open()) {
+            Assertions.assertThat(store.get("1")).contains("{\"key\":\"second\"}");
+            Assertions.assertThat(store.get("2")).isEmpty();
+        }
+    }
+
+    @Test
+    @DisplayName("This method will hide an expired value and let its key be created again")
+    void timeToLive() throws IOException, CrdException {
+        try (CrdStore store = open()) {
+            store.create("1", "{\"key\":\"value\"}", 1);
+            Assertions.assertThat(store.get("1")).isPresent();
+            // expired a second ago
+            store.repository().createData("1", new Data("{\"key\":\"value\"}", System.currentTimeMillis() - 1000));
+
+            Assertions.assertThat(store.get("1")).isEmpty();
+            Assertions.assertThat(store.delete("1")).isEmpty();
+            store.create("1", "{\"key\":\"again\"}", 0);
+            Assertions.assertThat(store.get("1")).isEqualTo(Optional.of("{\"key\":\"again\"}"));
+        }
+    }
+
+    @Test
+    @DisplayName("This method will refuse the keys and values the rest api refuses")
+    void validation() throws IOException, CrdException {
+        try (CrdStore store = open()) {
+            Assertions.assertThatThrownBy(() -> store.put("123456789012345678901234567890123", "{}", 0))
+                    .isInstanceOf(InvalidKeyException.class);
+            Assertions.assertThatThrownBy(() -> store.put(null, "{}", 0))
+                    .isInstanceOf(InvalidKeyException.class);
+            Assertions.assertThatThrownBy(() -> store.put("1", "[1, 2]", 0))
+                    .isInstanceOf(InvalidDataException.class);
+            Assertions.assertThatThrownBy(() -> store.put("1", "{\"key\":", 0))
+                    .isInstanceOf(InvalidDataException.class);
+            Assertions.assertThatThrownBy(() -> store.put("1", "{} {}", 0))
+                    .isInstanceOf(InvalidDataException.class);
+            // a control char must be escaped in a json string, the rest api refuses it as well
+            Assertions.assertThatThrownBy(() -> store.put("1", "{\"key\":\"a\tb\"}", 0))
+                    .isInstanceOf(InvalidDataException.class);
+            Assertions.assertThatThrownBy(() -> store.put("1", "{}", -1))
+                    .isInstanceOf(InvalidDataException.class);
+            Assertions.assertThatThrownBy(() -> store.put("1", "{\"key\":\"" + "x".repeat(17 * 1024) + "\"}", 0))
+                    .isInstanceOf(InvalidDataException.class);
+            Assertions.assertThat(store.get("1")).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.exception.CrdException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import com.nandakumar12.crd.app.service.DataService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Stress tests for the atomic create and delete of {@link DataRepository}, every key is raced by
+ * all the threads and exactly one of them must win
+ */
+class DataRepositoryConcurrencyTest {
+
+    static final int THREADS = 16;
+    static final int KEYS = 2000;
+
+    @TempDir
+    Path tempDir;
+
+    DataRepository dataRepository;
+
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @AfterEach
+    void tearDown() throws IOException, DataStoreSizeExceeded {
+        executor.shutdownNow();
+        if (dataRepository != null) {
+            dataRepository.writeDataToFile();
+        }
+    }
+
+    static DataRepository newRepository(Path directory, StorageMode storageMode) throws IOException, DataStoreSizeExceeded {
+        return newRepository(directory, storageMode, 1);
+    }
+
+    static DataRepository newRepository(Path directory, StorageMode storageMode, int shards) throws IOException, DataStoreSizeExceeded {
+        if (storageMode == StorageMode.TIERED) {
+            // about a tenth of the keys fit the memory, the others are spilled to the disk
+            return newRepository(directory, storageMode, shards, 16 * 1024, EvictionMode.LRU);
+        }
+        return newRepository(directory, storageMode, shards, 0, EvictionMode.REJECT);
+    }
+
+    static DataRepository newRepository(Path directory, StorageMode storageMode, int shards, long memoryBudgetBytes, EvictionMode evictionMode) throws IOException, DataStoreSizeExceeded {
+        DataRepository dataRepository = new DataRepository();
+        dataRepository.filePath = directory.toString();
+        dataRepository.fsyncPolicy = FsyncPolicy.OS;
+        dataRepository.snapshotIntervalMs = 60_000;
+        dataRepository.snapshotMinLogBytes = Long.MAX_VALUE;
+        dataRepository.maxStoreSizeBytes = Long.MAX_VALUE;
+        dataRepository.expiryTickMs = 100;
+        dataRepository.expiryBudgetPerTick = 10_000;
+        dataRepository.storageMode = storageMode;
+        dataRepository.offHeapCapacityBytes = 256L * 1024 * 1024;
+        dataRepository.shardCount = shards;
+        dataRepository.recoveryThreads = 0;
+        dataRepository.memoryBudgetBytes = memoryBudgetBytes;
+        dataRepository.evictionMode = evictionMode;
+        dataRepository.coldSegmentBytes = 64 * 1024;
+        dataRepository.orderedIndex = true;
+        dataRepository.initializeData();
+        return dataRepository;
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    @DisplayName("This method will race creates of the same keys and expect exactly one winner per key")
+    void concurrentCreatesHaveOneWinner(StorageMode storageMode) throws Exception {
+        dataRepository = newRepository(tempDir, storageMode);
+        DataService dataService = new DataService(dataRepository);
+        AtomicIntegerArray winners = race(key -> dataService.addData(key, new Data("{\"owner\":\"" + Thread.currentThread().getName() + "\"}", 0)));
+        assertOneWinnerPerKey(winners);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    @DisplayName("This method will race creates of expired keys and expect exactly one replacement per key")
+    void concurrentReplacesOfExpiredKeysHaveOneWinner(StorageMode storageMode) throws Exception {
+        dataRepository = newRepository(tempDir, storageMode);
+        for (int i = 0; i < KEYS; i++) {
+            dataRepository.createData(Integer.toString(i), new Data("{}", System.currentTimeMillis() - 1000L));
+        }
+        DataService dataService = new DataService(dataRepository);
+        AtomicIntegerArray winners = race(key -> dataService.addData(key, new Data("{}", 0)));
+        assertOneWinnerPerKey(winners);
+    }
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    @DisplayName("This method will race deletes of the same keys and expect exactly one successful delete per key")
+    void concurrentDeletesHaveOneWinner(StorageMode storageMode) throws Exception {
+        dataRepository = newRepository(tempDir, storageMode);
+        for (int i = 0; i < KEYS; i++) {
+            dataRepository.createData(Integer.toString(i), new Data("{}", 0));
+        }
+        DataService dataService = new DataService(dataRepository);
+        AtomicIntegerArray winners = race(dataService::deleteData);
+        assertOneWinnerPerKey(winners);
+        Assertions.assertThat(dataRepository.shards).allSatisfy(shard -> {
+            Assertions.assertThat(shard.data).isEmpty();
+            Assertions.assertThat(shard.keys).isEmpty();
+        });
+    }
+
+    interface KeyOperation {
+        void apply(String key) throws CrdException;
+    }
+
+    private AtomicIntegerArray race(KeyOperation operation) throws Exception {
+        AtomicIntegerArray winners = new AtomicIntegerArray(KEYS);
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < KEYS; i++) {
+                    try {
+                        operation.apply(Integer.toString(i));
+                        winners.incrementAndGet(i);
+                    } catch (CrdException e) {
+                        // lost the race for this key
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        return winners;
+    }
+
+    private void assertOneWinnerPerKey(AtomicIntegerArray winners) {
+        for (int i = 0; i < KEYS; i++) {
+            Assertions.assertThat(winners.get(i)).as("winners of key %d", i).isEqualTo(1);
+        }
+    }
+}
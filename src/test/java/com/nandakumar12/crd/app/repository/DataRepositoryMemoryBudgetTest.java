@@ -0,0 +1,173 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.eviction.MemoryBudget;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.exception.DuplicateKeyException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.StoreStats;
+import com.nandakumar12.crd.app.persistence.FsyncPolicy;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class DataRepositoryMemoryBudgetTest {
+
+    static final Data VALUE = new Data("{\"key\":\"value\"}", 0);
+
+    /** every key is 3 chars long, so every entry has the same weight */
+    static final long WEIGHT = MemoryBudget.weigh("000", VALUE);
+
+    @TempDir
+    Path tempDir;
+
+    DataRepository dataRepository;
+
+    @AfterEach
+    void tearDown() throws IOException, DataStoreSizeExceeded {
+        if (dataRepository != null) {
+            dataRepository.writeDataToFile();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = StorageMode.class, names = {"HEAP", "OFF_HEAP"})
+    @DisplayName("This method will refuse the writes that don't fit the memory budget in REJECT mode")
+    void rejectWrites(StorageMode storageMode) throws Exception {
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, storageMode, 1, 10 * WEIGHT, EvictionMode.REJECT);
+        for (int i = 0; i < 10; i++) {
+            dataRepository.createData(String.format("%03d", i), VALUE);
+        }
+        Assertions.assertThatThrownBy(() -> dataRepository.createData("010", VALUE))
+                .isInstanceOf(DataStoreSizeExceeded.class);
+        // an overwrite of the same size frees the bytes it replaces
+        dataRepository.createData("009", VALUE);
+        dataRepository.deleteByKey("000");
+        dataRepository.createData("010", VALUE);
+        Assertions.assertThat(dataRepository.findByKey("010")).isPresent();
+        Assertions.assertThat(dataRepository.findByKey("000")).isEmpty();
+
+        StoreStats stats = StoreStats.from(dataRepository.getMemoryBudgets());
+        Assertions.assertThat(stats.getUsedBytes()).isEqualTo(10 * WEIGHT);
+        Assertions.assertThat(stats.getRejections()).isEqualTo(1);
+        Assertions.assertThat(stats.getEvictions()).isZero();
+        Assertions.assertThat(stats.getHitRate()).isEqualTo(0.5);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = StorageMode.class, names = {"HEAP", "OFF_HEAP"})
+    @DisplayName("This method will evict the least recently used keys to fit the memory budget in LRU mode, also after a restart with a smaller budget")
+    void evictWrites(StorageMode storageMode) throws Exception {
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, storageMode, 1, 10 * WEIGHT, EvictionMode.LRU);
+        for (int i = 0; i < 10; i++) {
+            dataRepository.createData(String.format("%03d", i), VALUE);
+        }
+        dataRepository.findByKey("000");
+        dataRepository.createData("010", VALUE);
+        Assertions.assertThat(dataRepository.findByKey("001")).isEmpty();
+        Assertions.assertThat(dataRepository.findByKey("000")).isPresent();
+        Assertions.assertThat(dataRepository.getMemoryBudgets().get(0).getEvictions()).isEqualTo(1);
+        Assertions.assertThatThrownBy(() -> dataRepository.createData("big", new Data("{\"key\":\"" + "x".repeat((int) (10 * WEIGHT)) + "\"}", 0)))
+                .isInstanceOf(DataStoreSizeExceeded.class);
+        dataRepository.writeDataToFile();
+
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, storageMode, 1, 5 * WEIGHT, EvictionMode.LRU);
+        Assertions.assertThat(dataRepository.shards[0].data).hasSize(5);
+        Assertions.assertThat(dataRepository.getMemoryBudgets().get(0).getUsedBytes()).isEqualTo(5 * WEIGHT);
+        dataRepository.writeDataToFile();
+
+        // the evictions are logged, so the evicted keys stay gone
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, storageMode, 1, 0, EvictionMode.LRU);
+        Assertions.assertThat(dataRepository.shards[0].data).hasSize(5);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = StorageMode.class, names = {"HEAP", "OFF_HEAP"})
+    @DisplayName("This method will refuse the create of an existing key without evicting other keys for it")
+    void duplicateCreateDoesNotEvict(StorageMode storageMode) throws Exception {
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, storageMode, 1, 10 * WEIGHT, EvictionMode.LRU);
+        for (int i = 0; i < 10; i++) {
+            dataRepository.createData(String.format("%03d", i), VALUE);
+        }
+        Assertions.assertThatThrownBy(() -> dataRepository.createIfAbsentOrExpired("005", VALUE))
+                .isInstanceOf(DuplicateKeyException.class);
+        Assertions.assertThat(dataRepository.getMemoryBudgets().get(0).getEvictions()).isZero();
+        Assertions.assertThat(dataRepository.shards[0].data).hasSize(10);
+    }
+
+    @Test
+    @DisplayName("This method will spill the keys that don't fit the memory budget to the disk and move them back when they are read")
+    void tiered() throws Exception {
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.TIERED, 1, 10 * WEIGHT, EvictionMode.LRU);
+        for (int i = 0; i < 100; i++) {
+            dataRepository.createData(String.format("%03d", i), VALUE);
+        }
+        Assertions.assertThat(dataRepository.getMemoryBudgets().get(0).getUsedBytes()).isEqualTo(10 * WEIGHT);
+        Assertions.assertThat(dataRepository.getMemoryBudgets().get(0).getEvictions()).isEqualTo(90);
+        // the last ten keys are still in memory
+        for (int i = 99; i >= 0; i--) {
+            Assertions.assertThat(dataRepository.findByKey(String.format("%03d", i))).contains(VALUE);
+        }
+        StoreStats stats = StoreStats.from(dataRepository.getMemoryBudgets());
+        Assertions.assertThat(stats.getColdReads()).isEqualTo(90);
+        Assertions.assertThat(stats.getUsedBytes()).isEqualTo(10 * WEIGHT);
+        Assertions.assertThat(dataRepository.deleteByKey("000")).isEqualTo(VALUE);
+        dataRepository.writeDataToFile();
+
+        // the recovered entries start cold
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.TIERED, 1, 10 * WEIGHT, EvictionMode.LRU);
+        Assertions.assertThat(dataRepository.getMemoryBudgets().get(0).getUsedBytes()).isZero();
+        Assertions.assertThat(dataRepository.findByKey("000")).isEmpty();
+        Assertions.assertThat(dataRepository.findByKey("099")).contains(VALUE);
+        Assertions.assertThat(dataRepository.shards[0].isCold("099")).isFalse();
+        Assertions.assertThat(dataRepository.shards[0].data).hasSize(99);
+    }
+
+    @Test
+    @DisplayName("This method will refuse a write that doesn't fit the off-heap memory before it is logged or accounted")
+    void offHeapCapacityExhausted() throws Exception {
+        Data value = new Data("{\"key\":\"" + "x".repeat(10_000) + "\"}", 0);
+        int stored = 0;
+        try (CrdStore store = openOffHeap()) {
+            DataRepository repository = store.repository();
+            Assertions.assertThatThrownBy(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    repository.createData(String.format("%03d", i), value);
+                }
+            }).isInstanceOf(DataStoreSizeExceeded.class);
+            stored = repository.shards[0].data.size();
+            Assertions.assertThat(stored).isPositive();
+            Assertions.assertThat(repository.shards[0].keys).hasSize(stored);
+            Assertions.assertThat(repository.getMemoryBudgets().get(0).getUsedBytes())
+                    .isEqualTo(stored * MemoryBudget.weigh("000", value));
+            Assertions.assertThatThrownBy(() -> repository.createIfAbsentOrExpired("new", value))
+                    .isInstanceOf(DataStoreSizeExceeded.class);
+            // a refused create doesn't leak the memory of the value
+            repository.deleteByKey("000");
+            repository.createIfAbsentOrExpired("000", value);
+        }
+
+        // nothing refused was logged, so the log replays within the same capacity
+        try (CrdStore store = openOffHeap()) {
+            Assertions.assertThat(store.repository().shards[0].data).hasSize(stored);
+            Assertions.assertThat(store.repository().findByKey("new")).isEmpty();
+        }
+    }
+
+    private CrdStore openOffHeap() throws IOException, DataStoreSizeExceeded {
+        return CrdStore.builder()
+                .filePath(tempDir.toString())
+                .fsyncPolicy(FsyncPolicy.OS)
+                .storageMode(StorageMode.OFF_HEAP)
+                .offHeapCapacityBytes(SlabAllocator.SLAB_SIZE)
+                .orderedIndex(true)
+                .open();
+    }
+}
@@ -0,0 +1,47 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.eviction.EvictionMode;
+import com.nandakumar12.crd.app.eviction.MemoryBudget;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+class DataRepositoryMetricsTest {
+
+    static final Data VALUE = new Data("{\"key\":\"value\"}", 0);
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("This method will publish the keys, the memory, the evictions and the snapshots summed over the shards")
+    void bindTo() throws IOException, DataStoreSizeExceeded {
+        long weight = MemoryBudget.weigh("000", VALUE);
+        DataRepository dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 4, 40 * weight, EvictionMode.LRU);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new DataRepositoryMetrics(dataRepository).bindTo(registry);
+        for (int i = 0; i < 100; i++) {
+            dataRepository.createData(String.format("%03d", i), VALUE);
+        }
+        long keys = dataRepository.getMemoryBudgets().stream().mapToLong(MemoryBudget::getUsedBytes).sum() / weight;
+
+        Assertions.assertThat(registry.get("crd.store.keys").gauge().value()).isEqualTo(keys);
+        Assertions.assertThat(registry.get("crd.store.memory").gauge().value()).isEqualTo(keys * weight);
+        Assertions.assertThat(registry.get("crd.store.evictions").functionCounter().count()).isEqualTo(100 - keys);
+        Assertions.assertThat(registry.get("crd.snapshot").functionTimer().count()).isZero();
+
+        for (Shard shard : dataRepository.shards) {
+            shard.snapshotter.snapshot();
+        }
+        Assertions.assertThat(registry.get("crd.snapshot").functionTimer().count()).isEqualTo(4);
+        Assertions.assertThat(registry.get("crd.snapshot.written").functionCounter().count()).isPositive();
+        dataRepository.writeDataToFile();
+    }
+}
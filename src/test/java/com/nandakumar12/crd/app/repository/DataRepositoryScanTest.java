@@ -0,0 +1,70 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class DataRepositoryScanTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(StorageMode.class)
+    @DisplayName("This method will page through the keys of a prefix in order across the shards")
+    void scanPrefix(StorageMode storageMode) throws IOException, DataStoreSizeExceeded, DataNotFoundException {
+        DataRepository dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, storageMode, 4);
+        List<String> expected = new ArrayList<>();
+        for (int tenant = 1; tenant <= 3; tenant++) {
+            for (int i = 0; i < 100; i++) {
+                String key = String.format("tenant:%d:%03d", tenant, i);
+                dataRepository.createData(key, new Data("{\"key\":\"" + key + "\"}", 0));
+                if (tenant == 2 && i % 10 != 0) {
+                    expected.add(key);
+                }
+            }
+        }
+        dataRepository.createData("tenant:2", new Data("{}", 0));
+        // deleted and expired keys are left out
+        for (int i = 0; i < 100; i += 10) {
+            dataRepository.deleteByKey(String.format("tenant:2:%03d", i));
+        }
+        dataRepository.createData("tenant:2:100", new Data("{}", System.currentTimeMillis() - 1000L));
+
+        Assertions.assertThat(scanAll(dataRepository, "tenant:2:", 7)).isEqualTo(expected);
+        dataRepository.writeDataToFile();
+
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, storageMode, 4);
+        Assertions.assertThat(scanAll(dataRepository, "tenant:2:", 1000)).isEqualTo(expected);
+        List<String> page = new ArrayList<>();
+        Assertions.assertThat(dataRepository.scan("tenant:", "tenant:2:095", 3, (key, data) -> page.add(key)))
+                .isEqualTo("tenant:2:098");
+        Assertions.assertThat(page).containsExactly("tenant:2:095", "tenant:2:096", "tenant:2:097");
+        Assertions.assertThat(dataRepository.scan("tenant:4", null, 3, (key, data) -> page.add(key))).isNull();
+        dataRepository.writeDataToFile();
+    }
+
+    private static List<String> scanAll(DataRepository dataRepository, String prefix, int limit) throws IOException {
+        List<String> keys = new ArrayList<>();
+        String start = null;
+        do {
+            int scanned = keys.size();
+            start = dataRepository.scan(prefix, start, limit, (key, data) -> {
+                Assertions.assertThat(data.getValue()).isEqualTo("{\"key\":\"" + key + "\"}");
+                keys.add(key);
+            });
+            Assertions.assertThat(keys.size() - scanned).isLessThanOrEqualTo(limit);
+        } while (start != null);
+        return keys;
+    }
+}
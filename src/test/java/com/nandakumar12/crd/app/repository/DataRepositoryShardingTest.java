@@ -0,0 +1,114 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.StoreLock;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+class DataRepositoryShardingTest {
+
+    static final int KEYS = 1000;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("This method will spread the keys over the shards and recover every shard from its own files")
+    void recoverShards() throws IOException, DataStoreSizeExceeded {
+        DataRepository dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 4);
+        fill(dataRepository);
+        Assertions.assertThat(dataRepository.shards).allSatisfy(shard -> Assertions.assertThat(shard.data).isNotEmpty());
+        dataRepository.writeDataToFile();
+
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 4);
+        assertFilled(dataRepository);
+        dataRepository.createData("changed", new Data("{\"key\":\"changed\"}", 0));
+        crash(dataRepository);
+
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 4);
+        assertFilled(dataRepository);
+        Assertions.assertThat(dataRepository.findByKey("changed")).isPresent();
+        dataRepository.writeDataToFile();
+        Assertions.assertThat(names(tempDir)).containsExactlyInAnyOrder(StoreLock.LOCK_FILE, "shards-4");
+        Assertions.assertThat(names(tempDir.resolve("shards-4"))).containsExactlyInAnyOrder("0", "1", "2", "3");
+    }
+
+    @Test
+    @DisplayName("This method will reshard the data store when it is opened with another number of shards")
+    void reshard() throws IOException, DataStoreSizeExceeded {
+        DataRepository dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 1);
+        fill(dataRepository);
+        // the records after the last snapshot are only in the write ahead log
+        crash(dataRepository);
+
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.OFF_HEAP, 4);
+        assertFilled(dataRepository);
+        crash(dataRepository);
+        Assertions.assertThat(names(tempDir)).containsExactlyInAnyOrder(StoreLock.LOCK_FILE, "shards-4");
+
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 2);
+        assertFilled(dataRepository);
+        dataRepository.writeDataToFile();
+        Assertions.assertThat(names(tempDir)).containsExactlyInAnyOrder(StoreLock.LOCK_FILE, "shards-2");
+
+        dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 1);
+        assertFilled(dataRepository);
+        dataRepository.writeDataToFile();
+        Assertions.assertThat(names(tempDir)).containsExactlyInAnyOrder(StoreLock.LOCK_FILE, "data.db");
+    }
+
+    @Test
+    @DisplayName("This method will export the live entries of all the shards")
+    void exportShards() throws IOException, DataStoreSizeExceeded {
+        DataRepository dataRepository = DataRepositoryConcurrencyTest.newRepository(tempDir, StorageMode.HEAP, 4);
+        fill(dataRepository);
+        Map<String, Data> exported = new HashMap<>();
+        Assertions.assertThat(dataRepository.export(exported::put)).isEqualTo(KEYS - KEYS / 10);
+        Assertions.assertThat(exported).hasSize(KEYS - KEYS / 10);
+        dataRepository.writeDataToFile();
+    }
+
+    private static void fill(DataRepository dataRepository) throws DataStoreSizeExceeded {
+        for (int i = 0; i < KEYS; i++) {
+            dataRepository.createData(Integer.toString(i), new Data("{\"key\":" + i + "}", 0));
+        }
+        // every tenth key is expired and removed again
+        for (int i = 0; i < KEYS; i += 10) {
+            dataRepository.createData(Integer.toString(i), new Data("{}", 1));
+            dataRepository.expireIfDue(Integer.toString(i), 1);
+        }
+    }
+
+    private static void assertFilled(DataRepository dataRepository) {
+        for (int i = 0; i < KEYS; i++) {
+            Assertions.assertThat(dataRepository.findByKey(Integer.toString(i)).map(Data::getValue))
+                    .isEqualTo(i % 10 == 0 ? Optional.empty() : Optional.of("{\"key\":" + i + "}"));
+        }
+    }
+
+    /** stops the repository without the final snapshot, like a crash after the last fsync */
+    private static void crash(DataRepository dataRepository) throws IOException {
+        dataRepository.expiryEngine.close();
+        for (Shard shard : dataRepository.shards) {
+            shard.snapshotter.close();
+            shard.writeAheadLog.close();
+        }
+        dataRepository.storeLock.close();
+    }
+
+    private static List<String> names(Path directory) throws IOException {
+        return Files.list(directory).map(path -> path.getFileName().toString()).collect(Collectors.toList());
+    }
+}
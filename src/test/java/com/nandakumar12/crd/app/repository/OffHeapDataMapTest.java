@@ -0,0 +1,59 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.RawData;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapDataMapTest {
+
+    OffHeapDataMap data = new OffHeapDataMap(4 * SlabAllocator.SLAB_SIZE);
+
+    @Test
+    @DisplayName("This method will store, replace and remove values like a heap map")
+    void storeReplaceAndRemove() {
+        Assertions.assertThat(data.put("1", new Data("{\"key1\":\"value1\"}", 0))).isNull();
+        Assertions.assertThat(data.put("1", new Data("{\"key1\":\"value2\"}", 1234L))).isEqualTo(new Data("{\"key1\":\"value1\"}", 0));
+        Assertions.assertThat(data.get("1")).isEqualTo(new Data("{\"key1\":\"value2\"}", 1234L));
+        Assertions.assertThat(data.entrySet()).extracting(Map.Entry::getKey).containsExactly("1");
+        Assertions.assertThat(data.remove("1")).isEqualTo(new Data("{\"key1\":\"value2\"}", 1234L));
+        Assertions.assertThat(data.get("1")).isNull();
+        Assertions.assertThat(data.getAllocatedBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("This method will read the stored UTF-8 bytes of a value without decoding them")
+    void getRaw() {
+        data.put("1", new Data("{\"key1\":\"\u20ac\"}", 1234L));
+        RawData raw = data.getRaw("1");
+        Assertions.assertThat(raw.getValue()).isEqualTo("{\"key1\":\"\u20ac\"}".getBytes(StandardCharsets.UTF_8));
+        Assertions.assertThat(raw.getExpiresAt()).isEqualTo(1234L);
+        Assertions.assertThat(data.getRaw("2")).isNull();
+    }
+
+    @Test
+    @DisplayName("This method will reuse the freed slots instead of reserving new slabs")
+    void reuseFreedSlots() {
+        for (int i = 0; i < 100_000; i++) {
+            data.put("1", new Data("{\"key\":\"" + i + "\"}", 0));
+        }
+        Assertions.assertThat(data.getReservedBytes()).isEqualTo(SlabAllocator.SLAB_SIZE);
+    }
+
+    @Test
+    @DisplayName("This method will refuse values once the off-heap capacity is exhausted")
+    void capacityExhausted() {
+        String value = new String(new char[SlabAllocator.MAX_VALUE_SIZE]).replace('\0', 'x');
+        for (int i = 0; i < 4; i++) {
+            data.put(Integer.toString(i), new Data(value, 0));
+        }
+        assertThrows(IllegalStateException.class, () -> data.put("4", new Data(value, 0)));
+        Assertions.assertThat(data).hasSize(4);
+    }
+}
@@ -0,0 +1,90 @@
+package com.nandakumar12.crd.app.repository;
+
+import com.nandakumar12.crd.app.model.Data;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+class TieredDataMapTest {
+
+    @TempDir
+    Path tempDir;
+
+    TieredDataMap data;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        data = new TieredDataMap(tempDir, 4096);
+    }
+
+    @AfterEach
+    void tearDown() {
+        data.close();
+    }
+
+    @Test
+    @DisplayName("This method will spill a value to the disk, read it from there and move it back to memory")
+    void spillAndPromote() {
+        data.put("1", new Data("{\"key1\":\"\u20ac\"}", 1234L));
+        List<String> spilled = new ArrayList<>();
+        Assertions.assertThat(data.spill("1", (key, value) -> spilled.add(key))).isTrue();
+        Assertions.assertThat(data.spill("1", (key, value) -> spilled.add(key))).isFalse();
+        Assertions.assertThat(spilled).containsExactly("1");
+        Assertions.assertThat(data.isCold("1")).isTrue();
+        Assertions.assertThat(data.get("1")).isEqualTo(new Data("{\"key1\":\"\u20ac\"}", 1234L));
+        Assertions.assertThat(data.entrySet()).extracting(Map.Entry::getValue).containsExactly(new Data("{\"key1\":\"\u20ac\"}", 1234L));
+
+        List<Data> promoted = new ArrayList<>();
+        Assertions.assertThat(data.getPromoting("1", (key, value) -> promoted.add(value))).isEqualTo(new Data("{\"key1\":\"\u20ac\"}", 1234L));
+        Assertions.assertThat(promoted).containsExactly(new Data("{\"key1\":\"\u20ac\"}", 1234L));
+        Assertions.assertThat(data.isCold("1")).isFalse();
+        Assertions.assertThat(data.getColdBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("This method will replace and remove cold values like hot ones and release their records")
+    void replaceAndRemoveCold() {
+        data.putCold("1", new Data("{}", 0));
+        data.putCold("2", new Data("{}", 0));
+        Assertions.assertThat(data.put("1", new Data("{\"key\":1}", 0))).isEqualTo(new Data("{}", 0));
+        Assertions.assertThat(data.isCold("1")).isFalse();
+        Assertions.assertThat(data.remove("2")).isEqualTo(new Data("{}", 0));
+        Assertions.assertThat(data).containsOnlyKeys("1");
+        Assertions.assertThat(data.getColdBytes()).isZero();
+    }
+
+    @Test
+    @DisplayName("This method will delete the dead segments and move the live records out of the mostly dead ones")
+    void compact() throws IOException {
+        for (int i = 0; i < 1000; i++) {
+            data.putCold(Integer.toString(i), new Data("{\"key\":" + i + "}", 0));
+        }
+        int segments = segmentFiles().size();
+        // every key but each tenth is overwritten in memory
+        for (int i = 0; i < 1000; i++) {
+            if (i % 10 != 0) {
+                data.put(Integer.toString(i), new Data("{}", 0));
+            }
+        }
+        Assertions.assertThat(data.compact()).isEqualTo(segments - 1);
+        Assertions.assertThat(segmentFiles()).hasSizeLessThanOrEqualTo(2);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertThat(data.get(Integer.toString(i))).isEqualTo(new Data(i % 10 == 0 ? "{\"key\":" + i + "}" : "{}", 0));
+        }
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        return Files.list(tempDir).collect(Collectors.toList());
+    }
+}
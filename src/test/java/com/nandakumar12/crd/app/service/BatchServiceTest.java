@@ -0,0 +1,96 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.exception.DuplicateKeyException;
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.exception.ValueExpiredException;
+import com.nandakumar12.crd.app.model.Data;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+@ExtendWith(MockitoExtension.class)
+class BatchServiceTest {
+
+    @Mock
+    private DataService dataService;
+
+    BatchService batchService;
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setup(){
+        batchService = new BatchService(dataService, new DataParser());
+    }
+
+    private static ByteArrayInputStream body(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String result() {
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("This method will create many keys and report the error of each failed key")
+    void createAll() throws IOException, DuplicateKeyException, InvalidDataException, DataStoreSizeExceeded {
+        Mockito.when(dataService.storeData(Mockito.eq("1"), Mockito.any(Data.class))).thenAnswer(i -> i.getArguments()[1]);
+        Mockito.when(dataService.storeData(Mockito.eq("2"), Mockito.any(Data.class))).thenThrow(new DuplicateKeyException("Key already exists !"));
+        batchService.createAll(body("{\"1\":{\"key1\":\"value\",\"timeToLive\":\"50\"},\"2\":{\"key1\":\"value\"},\"3\":\"text\"}"), out);
+        Assertions.assertThat(result()).isEqualTo(
+                "[{\"key\":\"1\",\"value\":\"{\\\"key1\\\":\\\"value\\\"}\"}," +
+                "{\"key\":\"2\",\"message\":\"Key already exists !\"}," +
+                "{\"key\":\"3\",\"message\":\"The value is not a json object\"}]");
+        Mockito.verify(dataService, Mockito.never()).storeData(Mockito.eq("3"), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("This method will store the values as they were sent and refuse a lenient value for its key only")
+    void createAllStrict() throws IOException, DuplicateKeyException, InvalidDataException, DataStoreSizeExceeded {
+        Mockito.when(dataService.storeData(Mockito.anyString(), Mockito.any(Data.class))).thenAnswer(i -> i.getArguments()[1]);
+        batchService.createAll(body("{\"1\" : {\"key1\" : \"x<y\", \"n\":1.50},\"2\":{key1:'x<y'},\"3\":{\"n\":NaN}," +
+                "\"4\":{\"timeToLive\":{}},\"5\":{\"key1\":true}}"), out);
+        Assertions.assertThat(result()).isEqualTo(
+                "[{\"key\":\"1\",\"value\":\"{\\\"key1\\\" : \\\"x<y\\\", \\\"n\\\":1.50}\"}," +
+                "{\"key\":\"2\",\"message\":\"The data is not a valid json object at position 1\"}," +
+                "{\"key\":\"3\",\"message\":\"The data is not a valid json object at position 5\"}," +
+                "{\"key\":\"4\",\"message\":\"The ttl is not an valid number\"}," +
+                "{\"key\":\"5\",\"value\":\"{\\\"key1\\\":true}\"}]");
+        Mockito.verify(dataService).storeData("1", new Data("{\"key1\" : \"x<y\", \"n\":1.50}", 0));
+        Mockito.verify(dataService).storeData("5", new Data("{\"key1\":true}", 0));
+        Mockito.verify(dataService, Mockito.times(2)).storeData(Mockito.anyString(), Mockito.any());
+    }
+
+    @Test
+    @DisplayName("This method will read many keys and report the missing keys")
+    void readAll() throws IOException, ValueExpiredException, DataNotFoundException {
+        Mockito.when(dataService.readData("1")).thenReturn(new Data("{}", 0));
+        Mockito.when(dataService.readData("2")).thenThrow(new DataNotFoundException("Data not found"));
+        batchService.readAll(Arrays.asList("1", "2"), out);
+        Assertions.assertThat(result()).isEqualTo(
+                "[{\"key\":\"1\",\"value\":\"{}\"},{\"key\":\"2\",\"message\":\"Data not found\"}]");
+    }
+
+    @Test
+    @DisplayName("This method will delete many keys and report the expired keys")
+    void deleteAll() throws IOException, ValueExpiredException, DataNotFoundException {
+        Mockito.when(dataService.deleteData("1")).thenReturn(new Data("{}", 0));
+        Mockito.when(dataService.deleteData("2")).thenThrow(new ValueExpiredException("The value has expired"));
+        batchService.deleteAll(body("[\"1\",\"2\"]"), out);
+        Assertions.assertThat(result()).isEqualTo(
+                "[{\"key\":\"1\",\"value\":\"{}\"},{\"key\":\"2\",\"message\":\"The value has expired\"}]");
+    }
+}
@@ -0,0 +1,64 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.Durability;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DataParserTest {
+
+    DataParser dataParser = new DataParser();
+
+    @Test
+    @DisplayName("This method will store the value as it was sent when it has no timeToLive")
+    void parseKeepsTheOriginalText() throws InvalidDataException {
+        String body = "{ \"key1\" : \"value <1>\",\n  \"key2\": [1, 2.5e3, {\"a\": null}] }";
+        Data data = dataParser.parse(body);
+        Assertions.assertThat(data.getValue()).isSameAs(body);
+        Assertions.assertThat(data.getExpiresAt()).isZero();
+    }
+
+    @Test
+    @DisplayName("This method will cut the timeToLive out of the value and keep the rest of the text")
+    void parseCutsTheTimeToLive() throws InvalidDataException {
+        long before = System.currentTimeMillis();
+        Assertions.assertThat(dataParser.parse("{\"timeToLive\":\"50\", \"key1\":\"value\"}").getValue())
+                .isEqualTo("{\"key1\":\"value\"}");
+        Assertions.assertThat(dataParser.parse("{\"key1\":\"value\",\n \"timeToLive\":50,\n \"key2\":true}").getValue())
+                .isEqualTo("{\"key1\":\"value\",\n \"key2\":true}");
+        Data data = dataParser.parse("{\"timeToLive\":50}");
+        Assertions.assertThat(data.getValue()).isEqualTo("{}");
+        Assertions.assertThat(data.getExpiresAt()).isBetween(before + 50_000L, System.currentTimeMillis() + 50_000L);
+    }
+
+    @Test
+    @DisplayName("This method will refuse a body which is not a valid json object")
+    void parseInvalidJson() {
+        for (String body : new String[] {"", "[1]", "{'key1':1}", "{\"key1\":1,}", "{\"key1\":01}", "{\"key1\":[1}", "{} {}"}) {
+            assertThrows(InvalidDataException.class, () -> dataParser.parse(body), body);
+        }
+    }
+
+    @Test
+    @DisplayName("This method will refuse a timeToLive which is not a positive whole number")
+    void parseInvalidTimeToLive() {
+        for (String body : new String[] {"{\"timeToLive\":\"-1\"}", "{\"timeToLive\":1.5}", "{\"timeToLive\":{}}"}) {
+            InvalidDataException exception = assertThrows(InvalidDataException.class, () -> dataParser.parse(body));
+            Assertions.assertThat(exception).hasMessageContaining("ttl");
+        }
+    }
+
+    @Test
+    @DisplayName("This method will parse the durability of a write case insensitively and refuse the unknown ones")
+    void parseDurability() throws InvalidDataException {
+        Assertions.assertThat(dataParser.parseDurability(null)).isNull();
+        Assertions.assertThat(dataParser.parseDurability("none")).isEqualTo(Durability.NONE);
+        Assertions.assertThat(dataParser.parseDurability("Buffered")).isEqualTo(Durability.BUFFERED);
+        Assertions.assertThat(dataParser.parseDurability("FSYNC")).isEqualTo(Durability.FSYNC);
+        assertThrows(InvalidDataException.class, () -> dataParser.parseDurability("always"));
+    }
+}
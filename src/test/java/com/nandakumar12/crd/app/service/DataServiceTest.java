@@ -3,11 +3,14 @@ package com.nandakumar12.crd.app.service;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.nandakumar12.crd.app.exception.DataNotFoundException;
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
 import com.nandakumar12.crd.app.exception.DuplicateKeyException;
 import com.nandakumar12.crd.app.exception.InvalidDataException;
 import com.nandakumar12.crd.app.exception.ValueExpiredException;
+import com.nandakumar12.crd.app.metrics.CrdMetrics;
 import com.nandakumar12.crd.app.model.Data;
 import com.nandakumar12.crd.app.repository.DataRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,8 +19,11 @@ import org.mockito.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.assertj.core.api.Assertions;
 
+
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -46,18 +52,17 @@ class DataServiceTest {
 
     @Test
     @DisplayName("This method will read unexpired data from repository")
-    void readValidDataFromRepository() throws ValueExpiredException, DataNotFoundException, ExecutionException, InterruptedException {
-        Data expectedData = new Data(gson.toJson(jsonObject),Long.toString(System.currentTimeMillis()+500000L));
+    void readValidDataFromRepository() throws ValueExpiredException, DataNotFoundException {
+        Data expectedData = new Data(gson.toJson(jsonObject),System.currentTimeMillis()+500000L);
         Mockito.when(dataRepository.findByKey("1")).thenReturn(java.util.Optional.of(expectedData));
-        CompletableFuture<Data> actualData = dataService.readData("1");
-        Assertions.assertThat(actualData).isCompleted();
-        Assertions.assertThat(actualData.get().getValue()).isEqualTo(expectedData.getValue());
+        Data actualData = dataService.readData("1");
+        Assertions.assertThat(actualData.getValue()).isEqualTo(expectedData.getValue());
     }
 
     @Test
     @DisplayName("This method will try to read an expired data from repository")
     void readExpiredDataFromRepository() {
-        Data expectedData = new Data(gson.toJson(jsonObject),Long.toString(System.currentTimeMillis()-100L));
+        Data expectedData = new Data(gson.toJson(jsonObject),System.currentTimeMillis()-100L);
         Mockito.when(dataRepository.findByKey(Mockito.anyString())).thenReturn(java.util.Optional.of(expectedData));
         ValueExpiredException exception = assertThrows(ValueExpiredException.class,()->dataService.readData("1"));
         Assertions.assertThat(exception).hasMessageContaining("expired");
@@ -67,18 +72,16 @@ class DataServiceTest {
     @Test
     @DisplayName("This method will try to delete an data which is present in the repository")
     void deleteValidDataFromRepo() throws ValueExpiredException, DataNotFoundException {
-        Data expectedData = new Data(gson.toJson(jsonObject),Long.toString(System.currentTimeMillis()+50000L));
-        Mockito.when(dataRepository.findByKey("1")).thenReturn(java.util.Optional.of(expectedData));
-        Mockito.when(dataRepository.deleteByKey("1")).thenReturn(expectedData);
-        CompletableFuture<Data> actualData = dataService.deleteData("1");
-        actualData.thenAccept(data -> Assertions.assertThat(data.getValue()).isEqualTo(expectedData.getValue()));
+        Data expectedData = new Data(gson.toJson(jsonObject),System.currentTimeMillis()+50000L);
+        Mockito.when(dataRepository.deleteIfValid("1")).thenReturn(expectedData);
+        Data actualData = dataService.deleteData("1");
+        Assertions.assertThat(actualData.getValue()).isEqualTo(expectedData.getValue());
     }
 
     @Test
     @DisplayName("This method will try to delete an data which is not present")
-    void deleteDataNotPresentInRepository() throws DataNotFoundException {
-        Data expectedData = new Data(gson.toJson(jsonObject),Long.toString(System.currentTimeMillis()));
-        Mockito.when(dataRepository.findByKey("2")).thenReturn(java.util.Optional.empty());
+    void deleteDataNotPresentInRepository() throws DataNotFoundException, ValueExpiredException {
+        Mockito.when(dataRepository.deleteIfValid("2")).thenThrow(new DataNotFoundException("data not found"));
         DataNotFoundException exception = assertThrows(DataNotFoundException.class,()->dataService.deleteData("2"));
         Assertions.assertThat(exception).hasMessageContaining("not found");
 
@@ -87,9 +90,9 @@ class DataServiceTest {
     @Test
     @DisplayName("This method will check the validity of an proper data")
     void checkValidityOfData() throws ValueExpiredException, DataNotFoundException {
-        Data expectedData = new Data(gson.toJson(jsonObject),Long.toString(System.currentTimeMillis()-100L));
+        Data expectedData = new Data(gson.toJson(jsonObject),System.currentTimeMillis()-100L);
         assertThrows(ValueExpiredException.class,()->dataService.isValid(expectedData, "1"));
-        Mockito.verify(dataRepository,Mockito.times(1)).deleteByKey(stringArgumentCaptor.capture());
+        Mockito.verify(dataRepository,Mockito.times(1)).expireIfDue(stringArgumentCaptor.capture(), Mockito.eq(expectedData.getExpiresAt()));
         Assertions.assertThat(stringArgumentCaptor.getValue()).isEqualTo("1");
 
     }
@@ -97,19 +100,48 @@ class DataServiceTest {
     @Test
     @DisplayName("This method will try to add an data whose key is null")
     void addInvalidDataToRepository(){
-        Data expectedData = new Data(gson.toJson(jsonObject),Long.toString(System.currentTimeMillis()-100L));
+        Data expectedData = new Data(gson.toJson(jsonObject),System.currentTimeMillis()-100L);
         assertThrows(InvalidDataException.class,()->dataService.addData(null, expectedData));
 
     }
 
     @Test
     @DisplayName("This method will try to add an data whose key is already been used")
-    void addDuplicateDataToRepository() throws ValueExpiredException, DataNotFoundException {
-        Data expectedData = new Data(gson.toJson(jsonObject),Long.toString(System.currentTimeMillis()+5000L));
-        Mockito.when(dataRepository.exits("1")).thenReturn(true);
-        Mockito.when(dataRepository.findByKey("1")).thenReturn(java.util.Optional.of(expectedData));
+    void addDuplicateDataToRepository() throws DuplicateKeyException, DataStoreSizeExceeded {
+        Data expectedData = new Data(gson.toJson(jsonObject),System.currentTimeMillis()+5000L);
+        Mockito.when(dataRepository.createIfAbsentOrExpired(Mockito.eq("1"), Mockito.eq(expectedData), Mockito.isNull())).thenThrow(new DuplicateKeyException("Key already exists !"));
         assertThrows(DuplicateKeyException.class,()->dataService.addData("1", expectedData));
     }
 
+    @Test
+    @DisplayName("This method will time the reads which fail like the reads which succeed")
+    void timeReads() throws ValueExpiredException, DataNotFoundException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dataService = new DataService(dataRepository, new CrdMetrics(registry));
+        Mockito.when(dataRepository.findByKey("1")).thenReturn(java.util.Optional.of(new Data("{}", 0)));
+        Mockito.when(dataRepository.findByKey("2")).thenReturn(java.util.Optional.empty());
+        dataService.readData("1");
+        assertThrows(DataNotFoundException.class, () -> dataService.readData("2"));
+        Assertions.assertThat(registry.get("crd.requests").tag("operation", "read").timer().count()).isEqualTo(2);
+        Assertions.assertThat(registry.get("crd.requests").tag("operation", "delete").timer().count()).isZero();
+    }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("This method will run the creates on the executor and complete the future with their errors")
+    void addDataOnExecutor() throws DuplicateKeyException, DataStoreSizeExceeded, InvalidDataException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "create-thread"));
+        try {
+            dataService = new DataService(dataRepository, CrdMetrics.NONE, executor);
+            Data expectedData = new Data(gson.toJson(jsonObject), 0);
+            Mockito.when(dataRepository.createIfAbsentOrExpired(Mockito.eq("1"), Mockito.eq(expectedData), Mockito.isNull()))
+                    .thenAnswer(i -> CompletableFuture.completedFuture(new Data(Thread.currentThread().getName(), 0)));
+            Mockito.when(dataRepository.createIfAbsentOrExpired(Mockito.eq("2"), Mockito.eq(expectedData), Mockito.isNull()))
+                    .thenThrow(new DuplicateKeyException("Key already exists !"));
+            Assertions.assertThat(dataService.addData("1", expectedData).join().getValue()).isEqualTo("create-thread");
+            CompletionException exception = assertThrows(CompletionException.class, () -> dataService.addData("2", expectedData).join());
+            Assertions.assertThat(exception.getCause()).isInstanceOf(DuplicateKeyException.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
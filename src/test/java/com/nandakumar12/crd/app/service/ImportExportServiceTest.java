@@ -0,0 +1,103 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.exception.DataStoreSizeExceeded;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.model.ImportResult;
+import com.nandakumar12.crd.app.persistence.Durability;
+import com.nandakumar12.crd.app.persistence.SnapshotReader;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@ExtendWith(MockitoExtension.class)
+class ImportExportServiceTest {
+
+    @Mock
+    private DataRepository dataRepository;
+
+    @Captor
+    private ArgumentCaptor<Data> dataArgumentCaptor;
+
+    ImportExportService importExportService;
+
+    @BeforeEach
+    public void setup(){
+        importExportService = new ImportExportService(dataRepository, new DataParser());
+    }
+
+    @Test
+    @DisplayName("This method will import the valid lines of a NDJSON body and report the invalid ones")
+    void importData() throws IOException, DataStoreSizeExceeded {
+        String body = "{\"key\":\"1\",\"value\":{\"key1\":\"value\"},\"ttl\":50}\r\n"
+                + "\n"
+                + "{\"key\":\"2\",\"value\":\"text\"}\n"
+                + "{\"key\":\"3\",\"value\":{},\"ttl\":\"-1\"}\n"
+                + "{\"key\":\"4\",\"value\":{}}";
+        ImportResult result = importExportService.importData(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertThat(result.getImported()).isEqualTo(2);
+        Assertions.assertThat(result.getFailed()).isEqualTo(2);
+        Assertions.assertThat(result.getErrors()).containsExactly(
+                "line 3: The value is not a json object", "line 4: The ttl is not an valid number");
+        Mockito.verify(dataRepository).createData(Mockito.eq("1"), dataArgumentCaptor.capture(), Mockito.eq(Durability.NONE));
+        Assertions.assertThat(dataArgumentCaptor.getValue().getValue()).isEqualTo("{\"key1\":\"value\"}");
+        Assertions.assertThat(dataArgumentCaptor.getValue().getExpiresAt()).isGreaterThan(System.currentTimeMillis());
+        Mockito.verify(dataRepository).createData(Mockito.eq("4"), Mockito.any(Data.class), Mockito.eq(Durability.NONE));
+        Mockito.verify(dataRepository).commitAll();
+    }
+
+    @Test
+    @DisplayName("This method will commit the imported lines once per chunk and at the end of the body")
+    void importDataInChunks() throws IOException, DataStoreSizeExceeded {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 2 * ImportExportService.COMMIT_LINES + 1; i++) {
+            body.append("{\"key\":\"").append(i).append("\",\"value\":{}}\n");
+        }
+        ImportResult result = importExportService.importData(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertThat(result.getImported()).isEqualTo(2 * ImportExportService.COMMIT_LINES + 1);
+        Mockito.verify(dataRepository, Mockito.times(2 * ImportExportService.COMMIT_LINES + 1))
+                .createData(Mockito.anyString(), Mockito.any(Data.class), Mockito.eq(Durability.NONE));
+        Mockito.verify(dataRepository, Mockito.never()).createData(Mockito.anyString(), Mockito.any(Data.class));
+        Mockito.verify(dataRepository, Mockito.times(3)).commitAll();
+    }
+
+    @Test
+    @DisplayName("This method will refuse a line longer than the limit without holding it in memory")
+    void importTooLongLine() throws IOException {
+        StringBuilder body = new StringBuilder("{\"key\":\"1\",\"value\":{\"key1\":\"");
+        while (body.length() <= ImportExportService.MAX_LINE_LENGTH) {
+            body.append('x');
+        }
+        body.append("\"}}\n{\"key\":\"2\",\"value\":{}}\n");
+        ImportResult result = importExportService.importData(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertThat(result.getImported()).isEqualTo(1);
+        Assertions.assertThat(result.getErrors()).containsExactly("line 1: The line is longer than " + ImportExportService.MAX_LINE_LENGTH + " chars");
+    }
+
+    @Test
+    @DisplayName("This method will export every entry as a line of NDJSON")
+    void exportData() throws IOException, DataStoreSizeExceeded {
+        Mockito.when(dataRepository.export(Mockito.any())).thenAnswer(invocation -> {
+            SnapshotReader.EntryConsumer consumer = invocation.getArgument(0);
+            consumer.accept("1", new Data("{\"key1\":\"value\"}", 0));
+            consumer.accept("2", new Data("{}", System.currentTimeMillis() + 49_500L));
+            return 2L;
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Assertions.assertThat(importExportService.exportData(out)).isEqualTo(2);
+        Assertions.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"key\":\"1\",\"value\":{\"key1\":\"value\"}}\n{\"key\":\"2\",\"value\":{},\"ttl\":50}\n");
+    }
+}
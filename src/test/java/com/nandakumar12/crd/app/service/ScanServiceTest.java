@@ -0,0 +1,58 @@
+package com.nandakumar12.crd.app.service;
+
+import com.nandakumar12.crd.app.exception.InvalidDataException;
+import com.nandakumar12.crd.app.model.Data;
+import com.nandakumar12.crd.app.persistence.SnapshotReader;
+import com.nandakumar12.crd.app.repository.DataRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+@ExtendWith(MockitoExtension.class)
+class ScanServiceTest {
+
+    @Mock
+    private DataRepository dataRepository;
+
+    ScanService scanService;
+
+    @BeforeEach
+    public void setup(){
+        scanService = new ScanService(dataRepository);
+    }
+
+    @Test
+    @DisplayName("This method will write a page of entries with the start of the next page")
+    void scan() throws IOException {
+        Mockito.when(dataRepository.scan(Mockito.eq("tenant:1:"), Mockito.isNull(), Mockito.eq(2), Mockito.any())).thenAnswer(invocation -> {
+            SnapshotReader.EntryConsumer consumer = invocation.getArgument(3);
+            consumer.accept("tenant:1:a", new Data("{\"key1\":\"value\"}", 0));
+            consumer.accept("tenant:1:b", new Data("{}", 0));
+            return "tenant:1:c";
+        });
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        scanService.scan("tenant:1:", null, 2, out);
+        Assertions.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8)).isEqualTo(
+                "{\"entries\":[{\"key\":\"tenant:1:a\",\"value\":\"{\\\"key1\\\":\\\"value\\\"}\"},"
+                        + "{\"key\":\"tenant:1:b\",\"value\":\"{}\"}],\"next\":\"tenant:1:c\"}");
+    }
+
+    @Test
+    @DisplayName("This method will refuse a scan without the ordered index or with a limit out of range")
+    void checkScan() throws InvalidDataException {
+        Assertions.assertThatThrownBy(() -> scanService.checkScan(10)).isInstanceOf(InvalidDataException.class);
+        Mockito.when(dataRepository.isOrdered()).thenReturn(true);
+        Assertions.assertThatThrownBy(() -> scanService.checkScan(0)).isInstanceOf(InvalidDataException.class);
+        Assertions.assertThatThrownBy(() -> scanService.checkScan(ScanService.MAX_LIMIT + 1)).isInstanceOf(InvalidDataException.class);
+        scanService.checkScan(ScanService.MAX_LIMIT);
+    }
+}